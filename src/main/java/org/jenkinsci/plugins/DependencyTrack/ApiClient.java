@@ -15,6 +15,7 @@
  */
 package org.jenkinsci.plugins.DependencyTrack;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.FilePath;
 import java.io.BufferedInputStream;
@@ -23,29 +24,55 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Serializable;
 import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.Value;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
-import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.jenkinsci.plugins.DependencyTrack.model.Finding;
 import org.jenkinsci.plugins.DependencyTrack.model.Project;
+import org.jenkinsci.plugins.DependencyTrack.model.ProjectMetrics;
 import org.jenkinsci.plugins.DependencyTrack.model.UploadResult;
 
+import static java.net.HttpURLConnection.HTTP_BAD_METHOD;
 import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
+import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
+import static java.net.HttpURLConnection.HTTP_NO_CONTENT;
 import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
 import static java.net.HttpURLConnection.HTTP_OK;
 import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
+import static java.net.HttpURLConnection.HTTP_UNSUPPORTED_TYPE;
 
 @RequiredArgsConstructor
 public class ApiClient {
@@ -53,8 +80,28 @@ public class ApiClient {
     private static final String HEADER_CONTENT_TYPE = "Content-Type";
     private static final String HEADER_ACCEPT = "Accept";
     private static final String MEDIATYPE_JSON = "application/json";
+    private static final String MEDIATYPE_MULTIPART_FORM = "multipart/form-data";
+    private static final String MEDIATYPE_OCTET_STREAM = "application/octet-stream";
+    private static final String CRLF = "\r\n";
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String ENCODING_GZIP = "gzip";
+    private static final int BUFFER_SIZE = 8192;
     private static final String API_URL = "/api/v1";
     private static final int MS_TO_S_FACTOR = 1000;
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+    static final int HTTP_TOO_MANY_REQUESTS = 429;
+    /**
+     * the delay in milliseconds before the first retry. it is doubled for
+     * every further retry.
+     */
+    static final long FIRST_RETRY_DELAY = 1000;
+    /**
+     * the maximum delay in milliseconds before a retry. If DT asks to wait
+     * longer, the request is not retried.
+     */
+    static final long MAX_RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
+    private static final double RETRY_JITTER = 0.2;
     static final String API_KEY_HEADER = "X-Api-Key";
     static final String PROJECT_FINDINGS_URL = API_URL + "/finding/project";
     static final String BOM_URL = API_URL + "/bom";
@@ -63,6 +110,25 @@ public class ApiClient {
     static final String PROJECT_LOOKUP_URL = PROJECT_URL + "/lookup";
     static final String PROJECT_LOOKUP_NAME_PARAM = "name";
     static final String PROJECT_LOOKUP_VERSION_PARAM = "version";
+    static final String PROJECT_SEARCH_PARAM = "searchText";
+    static final String PROJECT_METRICS_URL = API_URL + "/metrics/project";
+    /**
+     * answers without authentication and with a tiny body
+     */
+    static final String VERSION_URL = "/api/version";
+
+    /**
+     * how long in milliseconds uploads to a DT instance that rejected a
+     * multipart upload fall back to JSON before multipart is tried again. The
+     * rejection may come from a proxy or from DT before an upgrade.
+     */
+    static final long MULTIPART_RETRY_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * the time in milliseconds since the epoch when a DT instance rejected a
+     * multipart upload, by its base url
+     */
+    private static final ConcurrentMap<String, Long> MULTIPART_REJECTED = new ConcurrentHashMap<>();
 
     /**
      * the base url to DT instance without trailing slashes, e.g.
@@ -87,16 +153,55 @@ public class ApiClient {
      */
     private final int readTimeout;
 
+    /**
+     * whether request bodies are compressed with gzip. DT itself does not
+     * decompress requests, so this requires a reverse proxy that does.
+     */
+    @Setter
+    private boolean compressUploads;
+
+    /**
+     * the number of times a request that does not change anything in DT is
+     * repeated if DT cannot be reached or answers with 429 or a server error
+     */
+    @Setter
+    private int maxRetries;
+
+    /**
+     * the delay in milliseconds before the first retry
+     */
+    @Setter(AccessLevel.PACKAGE)
+    private long firstRetryDelay = FIRST_RETRY_DELAY;
+
+    /**
+     * see {@link #MULTIPART_RETRY_INTERVAL}
+     */
+    @Setter(AccessLevel.PACKAGE)
+    private long multipartRetryInterval = MULTIPART_RETRY_INTERVAL;
+
+    /**
+     * whether this client runs on an agent. The {@link CircuitBreaker} and
+     * the {@link ConcurrencyLimiter} of DT that matter are those of the
+     * controller then, so the client neither consults nor updates the ones of
+     * the agent but only remembers the {@link #getLastOutcome() outcome} of
+     * its last request.
+     */
+    @Setter(AccessLevel.PACKAGE)
+    private boolean onAgent;
+
+    /**
+     * how DT answered the last request or why it could not be reached
+     */
+    @CheckForNull
+    @Getter(AccessLevel.PACKAGE)
+    private volatile Outcome lastOutcome;
+
     @NonNull
     public String testConnection() throws ApiClientException {
         try {
-            final HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + PROJECT_URL).openConnection();
-            conn.setRequestProperty(HEADER_ACCEPT, MEDIATYPE_JSON);
-            conn.setRequestProperty(API_KEY_HEADER, apiKey);
-            conn.setConnectTimeout(connectionTimeout * MS_TO_S_FACTOR);
-            conn.setReadTimeout(readTimeout * MS_TO_S_FACTOR);
-            conn.connect();
+            final HttpURLConnection conn = get(PROJECT_URL, PROJECT_URL);
             if (conn.getResponseCode() == HTTP_OK) {
+                consumeQuietly(conn);
                 return StringUtils.trimToEmpty(conn.getHeaderField("X-Powered-By"));
             } else {
                 logHttpError(conn);
@@ -109,59 +214,91 @@ public class ApiClient {
         }
     }
 
-    @NonNull
-    public List<Project> getProjects() throws ApiClientException {
-        List<Project> projects = new ArrayList<>();
-        int page = 1;
-        boolean fetchMore = true;
-        while (fetchMore) {
-            List<Project> fetchedProjects = getProjectsPaged(page++);
-            fetchMore = !fetchedProjects.isEmpty();
-            projects.addAll(fetchedProjects);
+    /**
+     * Connects to DT ahead of a request that is about to follow, so that the
+     * DNS lookup and the TCP and TLS handshakes do not delay that request. The
+     * connection is left in the keep-alive cache, see
+     * {@link #createConnection(String)}.
+     * <p>
+     * Nothing is sent while the {@link CircuitBreaker} of {@link #baseUrl} is
+     * not closed. Failures are ignored because the request that follows will
+     * report them.
+     */
+    public void warmUp() {
+        if (CircuitBreaker.forUrl(baseUrl).getState() != CircuitBreaker.State.CLOSED) {
+            return;
+        }
+        try {
+            final HttpURLConnection conn = createConnection(VERSION_URL);
+            conn.connect();
+            consumeQuietly(conn);
+        } catch (IOException ignore) {
+            // see above
         }
-        return projects;
     }
 
+    /**
+     * Searches the active projects by name.
+     *
+     * @param query the text the name of the projects must contain
+     * @param limit the maximum number of projects to return
+     * @return the first matching projects ordered by name
+     * @throws ApiClientException if the search fails
+     */
     @NonNull
-    private List<Project> getProjectsPaged(int page) throws ApiClientException {
+    public List<Project> searchProjects(String query, int limit) throws ApiClientException {
         try {
-            final HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + PROJECT_URL + "?limit=500&excludeInactive=true&page=" + page).openConnection();
-            conn.setRequestProperty(HEADER_ACCEPT, MEDIATYPE_JSON);
-            conn.setRequestProperty(API_KEY_HEADER, apiKey);
-            conn.setConnectTimeout(connectionTimeout * MS_TO_S_FACTOR);
-            conn.setReadTimeout(readTimeout * MS_TO_S_FACTOR);
-            conn.setDoOutput(true);
-            conn.connect();
+            final HttpURLConnection conn = get(PROJECT_URL, PROJECT_URL + "?limit=" + limit + "&excludeInactive=true&page=1&"
+                    + PROJECT_SEARCH_PARAM + "=" + URLEncoder.encode(query, StandardCharsets.UTF_8.name()));
+            if (conn.getResponseCode() == HTTP_OK) {
+                return readProjects(conn);
+            } else {
+                logHttpError(conn);
+                throw new ApiClientException(Messages.ApiClient_Error_Connection(conn.getResponseCode(), conn.getResponseMessage()));
+            }
+        } catch (ApiClientException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ApiClientException(Messages.ApiClient_Error_Connection(StringUtils.EMPTY, StringUtils.EMPTY), e);
+        }
+    }
+
+    /**
+     * @param projectUuid the uuid of the project
+     * @return the project or {@code null} if there is no such project
+     * @throws ApiClientException if the project could not be retrieved
+     */
+    @CheckForNull
+    public Project getProject(String projectUuid) throws ApiClientException {
+        try {
+            final HttpURLConnection conn = get(PROJECT_URL, PROJECT_URL + "/" + URLEncoder.encode(projectUuid, StandardCharsets.UTF_8.name()));
             if (conn.getResponseCode() == HTTP_OK) {
-                try (InputStream in = new BufferedInputStream(conn.getInputStream())) {
-                    JSONArray array = JSONArray.fromObject(getResponseBody(in));
-                    return array.stream()
-                            .map(o -> ProjectParser.parse((JSONObject) o))
-                            .collect(Collectors.toList());
+                try (InputStream in = getResponseStream(conn)) {
+                    return ProjectParser.parse(JSONObject.fromObject(getResponseBody(in)));
                 }
+            } else if (conn.getResponseCode() == HTTP_NOT_FOUND) {
+                consumeQuietly(conn);
+                return null;
+            } else {
+                logHttpError(conn);
+                throw new ApiClientException(Messages.ApiClient_Error_Connection(conn.getResponseCode(), conn.getResponseMessage()));
             }
+        } catch (ApiClientException e) {
+            throw e;
         } catch (IOException e) {
             throw new ApiClientException(Messages.ApiClient_Error_Connection(StringUtils.EMPTY, StringUtils.EMPTY), e);
         }
-        return Collections.emptyList();
     }
 
     @NonNull
     public Project lookupProject(String projectName, String projectVersion) throws ApiClientException {
         try {
-            final HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + PROJECT_LOOKUP_URL + "?"
+            final HttpURLConnection conn = get(PROJECT_LOOKUP_URL, PROJECT_LOOKUP_URL + "?"
                     + PROJECT_LOOKUP_NAME_PARAM + "=" + URLEncoder.encode(projectName, StandardCharsets.UTF_8.name()) + "&"
-                    + PROJECT_LOOKUP_VERSION_PARAM + "=" + URLEncoder.encode(projectVersion, StandardCharsets.UTF_8.name()))
-                    .openConnection();
-            conn.setDoOutput(true);
-            conn.setRequestProperty(API_KEY_HEADER, apiKey);
-            conn.setRequestProperty(HEADER_ACCEPT, MEDIATYPE_JSON);
-            conn.setConnectTimeout(connectionTimeout * MS_TO_S_FACTOR);
-            conn.setReadTimeout(readTimeout * MS_TO_S_FACTOR);
-            conn.connect();
+                    + PROJECT_LOOKUP_VERSION_PARAM + "=" + URLEncoder.encode(projectVersion, StandardCharsets.UTF_8.name()));
             // Checks the server response
             if (conn.getResponseCode() == HTTP_OK) {
-                try (InputStream in = new BufferedInputStream(conn.getInputStream())) {
+                try (InputStream in = getResponseStream(conn)) {
                     final JSONObject jsonObject = JSONObject.fromObject(getResponseBody(in));
                     final String version = jsonObject.getString("version");
                     final Project.ProjectBuilder builder = Project.builder()
@@ -174,7 +311,7 @@ public class ApiClient {
                 }
             } else {
                 logHttpError(conn);
-                throw new ApiClientException(Messages.ApiClient_Error_ProjectLookup(projectName, projectVersion, conn.getResponseCode(), conn.getResponseMessage()));
+                throw new ApiClientException(Messages.ApiClient_Error_ProjectLookup(projectName, projectVersion, conn.getResponseCode(), conn.getResponseMessage()), conn.getResponseCode());
             }
         } catch (ApiClientException e) {
             throw e;
@@ -186,22 +323,22 @@ public class ApiClient {
     @NonNull
     public List<Finding> getFindings(String projectUuid) throws ApiClientException {
         try {
-            final HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + PROJECT_FINDINGS_URL + "/" + URLEncoder.encode(projectUuid, StandardCharsets.UTF_8.name()))
-                    .openConnection();
-            conn.setDoOutput(true);
-            conn.setRequestProperty(API_KEY_HEADER, apiKey);
-            conn.setRequestProperty(HEADER_ACCEPT, MEDIATYPE_JSON);
-            conn.setConnectTimeout(connectionTimeout * MS_TO_S_FACTOR);
-            conn.setReadTimeout(readTimeout * MS_TO_S_FACTOR);
-            conn.connect();
+            final HttpURLConnection conn = get(PROJECT_FINDINGS_URL, PROJECT_FINDINGS_URL + "/" + URLEncoder.encode(projectUuid, StandardCharsets.UTF_8.name()));
             // Checks the server response
             if (conn.getResponseCode() == HTTP_OK) {
-                try (InputStream in = new BufferedInputStream(conn.getInputStream())) {
-                    return FindingParser.parse(getResponseBody(in));
+                final CountingInputStream wire = new CountingInputStream(conn.getInputStream());
+                final CountingInputStream in = new CountingInputStream(decode(conn, wire));
+                // the findings are parsed while being read. for large projects the response is far too big to be held in memory as a whole
+                try (Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                    final List<Finding> findings = FindingParser.parse(reader);
+                    if (isCompressed(conn)) {
+                        logger.log(Messages.ApiClient_Download_Compressed(in.getByteCount(), wire.getByteCount(), percentSaved(in.getByteCount(), wire.getByteCount())));
+                    }
+                    return findings;
                 }
             } else {
                 logHttpError(conn);
-                throw new ApiClientException(Messages.ApiClient_Error_RetrieveFindings(conn.getResponseCode(), conn.getResponseMessage()));
+                throw new ApiClientException(Messages.ApiClient_Error_RetrieveFindings(conn.getResponseCode(), conn.getResponseMessage()), conn.getResponseCode());
             }
         } catch (ApiClientException e) {
             throw e;
@@ -210,19 +347,173 @@ public class ApiClient {
         }
     }
 
+    /**
+     * Fetches the current metrics of the project. They are a few hundred bytes
+     * regardless of the number of findings.
+     *
+     * @param projectUuid the uuid of the project
+     * @return the metrics or {@code null} if DT has not calculated any for the
+     * project yet
+     * @throws ApiClientException if the metrics could not be retrieved
+     */
+    @CheckForNull
+    public ProjectMetrics getCurrentMetrics(String projectUuid) throws ApiClientException {
+        try {
+            final HttpURLConnection conn = get(PROJECT_METRICS_URL, PROJECT_METRICS_URL + "/" + URLEncoder.encode(projectUuid, StandardCharsets.UTF_8.name()) + "/current");
+            if (conn.getResponseCode() == HTTP_OK) {
+                try (InputStream in = getResponseStream(conn)) {
+                    final String body = getResponseBody(in);
+                    final JSONObject jsonObject = JSONObject.fromObject(StringUtils.defaultIfBlank(body, "null"));
+                    if (jsonObject.isNullObject()) {
+                        return null;
+                    }
+                    return ProjectMetrics.builder()
+                            .critical(jsonObject.optInt("critical"))
+                            .high(jsonObject.optInt("high"))
+                            .medium(jsonObject.optInt("medium"))
+                            .low(jsonObject.optInt("low"))
+                            .unassigned(jsonObject.optInt("unassigned"))
+                            .lastOccurrence(jsonObject.optLong("lastOccurrence"))
+                            .serverTime(conn.getDate())
+                            .build();
+                }
+            } else if (conn.getResponseCode() == HTTP_NO_CONTENT) {
+                consumeQuietly(conn);
+                return null;
+            } else {
+                logHttpError(conn);
+                throw new ApiClientException(Messages.ApiClient_Error_RetrieveMetrics(conn.getResponseCode(), conn.getResponseMessage()), conn.getResponseCode());
+            }
+        } catch (ApiClientException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ApiClientException(Messages.ApiClient_Error_RetrieveMetrics(StringUtils.EMPTY, StringUtils.EMPTY), e);
+        }
+    }
+
     @NonNull
     public UploadResult upload(String projectId, String projectName, String projectVersion, FilePath artifact,
             boolean autoCreateProject) throws IOException {
-        final String encodedScan;
+        // uploads are never retried, DT would process the BOM twice. but there is no point in sending it while DT is down.
+        if (!onAgent && !tryAcquire(baseUrl, logger)) {
+            return new UploadResult(false, null, true);
+        }
+        lastOutcome = null;
+        try {
+            if (isMultipartSupported()) {
+                final UploadResult result = uploadMultipart(projectId, projectName, projectVersion, artifact, autoCreateProject);
+                if (result != null) {
+                    MULTIPART_REJECTED.remove(baseUrl);
+                    return result;
+                }
+                // remember the rejection so that the BOM is not sent twice on every upload
+                MULTIPART_REJECTED.put(baseUrl, System.currentTimeMillis());
+                logger.log(Messages.ApiClient_Upload_MultipartFallback());
+            }
+            return uploadJson(projectId, projectName, projectVersion, artifact, autoCreateProject);
+        } catch (IOException e) {
+            recordFailure(e);
+            throw e;
+        } finally {
+            if (!onAgent && lastOutcome == null) {
+                // the artifact could not be read, nothing was sent
+                CircuitBreaker.forUrl(baseUrl).release();
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if DT rejected a multipart upload less than
+     * {@link #multipartRetryInterval} ago
+     */
+    private boolean isMultipartSupported() {
+        final Long rejectedAt = MULTIPART_REJECTED.get(baseUrl);
+        return rejectedAt == null || System.currentTimeMillis() - rejectedAt >= multipartRetryInterval;
+    }
+
+    /**
+     * Uploads the BOM as raw bytes using {@code POST /api/v1/bom} with
+     * {@code multipart/form-data}.
+     *
+     * @return the result or {@code null} if the server does not support
+     * multipart uploads
+     */
+    private UploadResult uploadMultipart(String projectId, String projectName, String projectVersion, FilePath artifact,
+            boolean autoCreateProject) throws IOException {
+        final long artifactLength;
+        final InputStream bom;
         try {
-            encodedScan = Base64.encodeBase64String(artifact.readToString().getBytes(StandardCharsets.UTF_8));
+            artifactLength = artifact.length();
+            bom = openArtifact(artifact);
         } catch (IOException | InterruptedException e) {
             logger.log(Messages.Builder_Error_Processing(artifact.getRemote(), e.getLocalizedMessage()));
             return new UploadResult(false);
         }
-        // Creates the JSON payload that will be sent to Dependency-Track
-        JSONObject jsonObject = new JSONObject();
-        jsonObject.element("bom", encodedScan);
+        final String boundary = "----DependencyTrackJenkinsPlugin" + UUID.randomUUID().toString().replace("-", StringUtils.EMPTY);
+        final StringBuilder head = new StringBuilder();
+        if (projectId != null) {
+            appendFormField(head, boundary, "project", projectId);
+        } else {
+            appendFormField(head, boundary, "projectName", projectName);
+            appendFormField(head, boundary, "projectVersion", projectVersion);
+            appendFormField(head, boundary, "autoCreate", String.valueOf(autoCreateProject));
+        }
+        head.append("--").append(boundary).append(CRLF)
+                .append("Content-Disposition: form-data; name=\"bom\"; filename=\"").append(artifact.getName().replace("\"", "%22")).append('"').append(CRLF)
+                .append(HEADER_CONTENT_TYPE).append(": ").append(MEDIATYPE_OCTET_STREAM).append(CRLF)
+                .append(CRLF);
+        final byte[] payloadStart = head.toString().getBytes(StandardCharsets.UTF_8);
+        final byte[] payloadEnd = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.UTF_8);
+        final HttpURLConnection conn;
+        try (InputStream in = bom) {
+            conn = createConnection(BOM_URL);
+            conn.setDoOutput(true);
+            conn.setRequestMethod("POST");
+            conn.setRequestProperty(HEADER_CONTENT_TYPE, MEDIATYPE_MULTIPART_FORM + "; boundary=" + boundary);
+            final long payloadLength = payloadStart.length + artifactLength + payloadEnd.length;
+            prepareRequestBody(conn, payloadLength);
+            conn.connect();
+            try {
+                sendRequestBody(conn, payloadLength, os -> {
+                    os.write(payloadStart);
+                    IOUtils.copy(in, os);
+                    os.write(payloadEnd);
+                });
+            } catch (IOException e) {
+                // the server may have answered and closed the connection before the whole BOM was sent
+                if (isMultipartRejected(conn)) {
+                    return null;
+                }
+                recordFailure(e);
+                logger.log(Messages.Builder_Error_Processing(artifact.getRemote(), e.getLocalizedMessage()));
+                return new UploadResult(false, null, true);
+            }
+        }
+        if (isMultipartRejected(conn)) {
+            consumeQuietly(conn);
+            return null;
+        }
+        return readUploadResponse(conn);
+    }
+
+    /**
+     * Uploads the BOM Base64-encoded within a JSON document using
+     * {@code PUT /api/v1/bom}.
+     */
+    private UploadResult uploadJson(String projectId, String projectName, String projectVersion, FilePath artifact,
+            boolean autoCreateProject) throws IOException {
+        final long artifactLength;
+        final InputStream bom;
+        try {
+            artifactLength = artifact.length();
+            bom = openArtifact(artifact);
+        } catch (IOException | InterruptedException e) {
+            logger.log(Messages.Builder_Error_Processing(artifact.getRemote(), e.getLocalizedMessage()));
+            return new UploadResult(false);
+        }
+        // Creates the JSON payload that will be sent to Dependency-Track.
+        // The BOM is not part of it but will be streamed Base64-encoded into the "bom" field, so that it never needs to be held in memory.
+        final JSONObject jsonObject = new JSONObject();
         if (projectId != null) {
             jsonObject.element("project", projectId);
         } else {
@@ -230,30 +521,44 @@ public class ApiClient {
                     .element("projectVersion", projectVersion)
                     .element("autoCreate", autoCreateProject);
         }
-        byte[] payloadBytes = jsonObject.toString().getBytes(StandardCharsets.UTF_8);
-        // Creates the request and connects
-        final HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + BOM_URL).openConnection();
-        conn.setDoOutput(true);
-        conn.setRequestMethod("PUT");
-        conn.setRequestProperty(HEADER_CONTENT_TYPE, MEDIATYPE_JSON);
-        conn.setRequestProperty(HEADER_ACCEPT, MEDIATYPE_JSON);
-        conn.setConnectTimeout(connectionTimeout * MS_TO_S_FACTOR);
-        conn.setReadTimeout(readTimeout * MS_TO_S_FACTOR);
-        conn.setRequestProperty("Content-Length", Integer.toString(payloadBytes.length));
-        conn.setRequestProperty(API_KEY_HEADER, apiKey);
-        conn.connect();
-        // Sends the payload bytes
-        try (OutputStream os = new BufferedOutputStream(conn.getOutputStream())) {
-            os.write(payloadBytes);
-            os.flush();
-        } catch (IOException e) {
-            logger.log(Messages.Builder_Error_Processing(artifact.getRemote(), e.getLocalizedMessage()));
-            return new UploadResult(false);
+        final byte[] payloadStart = "{\"bom\":\"".getBytes(StandardCharsets.UTF_8);
+        final byte[] payloadEnd = ("\"," + StringUtils.removeStart(jsonObject.toString(), "{")).getBytes(StandardCharsets.UTF_8);
+        final HttpURLConnection conn;
+        try (InputStream in = bom) {
+            // Creates the request and connects
+            conn = createConnection(BOM_URL);
+            conn.setDoOutput(true);
+            conn.setRequestMethod("PUT");
+            conn.setRequestProperty(HEADER_CONTENT_TYPE, MEDIATYPE_JSON);
+            final long payloadLength = payloadStart.length + base64Length(artifactLength) + payloadEnd.length;
+            prepareRequestBody(conn, payloadLength);
+            conn.connect();
+            // Sends the payload bytes
+            try {
+                sendRequestBody(conn, payloadLength, os -> {
+                    os.write(payloadStart);
+                    try (OutputStream encoder = Base64.getEncoder().wrap(new CloseShieldOutputStream(os))) {
+                        IOUtils.copy(in, encoder);
+                    }
+                    os.write(payloadEnd);
+                });
+            } catch (IOException e) {
+                recordFailure(e);
+                logger.log(Messages.Builder_Error_Processing(artifact.getRemote(), e.getLocalizedMessage()));
+                return new UploadResult(false, null, true);
+            }
         }
+        return readUploadResponse(conn);
+    }
+
+    @NonNull
+    private UploadResult readUploadResponse(final HttpURLConnection conn) throws IOException {
+        // the time an upload takes depends on the size of the BOM and tells nothing about the load of DT
+        recordResponse(conn, null, 0);
         // Checks the server response
         switch (conn.getResponseCode()) {
             case HTTP_OK:
-                try (InputStream in = new BufferedInputStream(conn.getInputStream())) {
+                try (InputStream in = getResponseStream(conn)) {
                     String responseBody = getResponseBody(in);
                     if (StringUtils.isNotBlank(responseBody)) {
                         final JSONObject json = JSONObject.fromObject(responseBody);
@@ -279,29 +584,58 @@ public class ApiClient {
                 logHttpError(conn);
                 break;
         }
-        return new UploadResult(false);
+        // DT rejects the same BOM again unless it was unavailable
+        final int responseCode = conn.getResponseCode();
+        return new UploadResult(false, null, responseCode == HTTP_TOO_MANY_REQUESTS || responseCode >= HTTP_INTERNAL_ERROR);
     }
 
+    /**
+     * @param conn a connection that was used for a multipart request
+     * @return {@code true} if the server does not accept multipart requests
+     * on that endpoint
+     */
+    private static boolean isMultipartRejected(final HttpURLConnection conn) {
+        try {
+            final int responseCode = conn.getResponseCode();
+            return responseCode == HTTP_BAD_METHOD || responseCode == HTTP_UNSUPPORTED_TYPE;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void appendFormField(final StringBuilder sb, final String boundary, final String name, final String value) {
+        sb.append("--").append(boundary).append(CRLF)
+                .append("Content-Disposition: form-data; name=\"").append(name).append('"').append(CRLF)
+                .append(HEADER_CONTENT_TYPE).append(": text/plain; charset=UTF-8").append(CRLF)
+                .append(CRLF)
+                .append(StringUtils.defaultString(value)).append(CRLF);
+    }
+
+    /**
+     * Checks once whether DT is still processing the BOM of the token. The
+     * request is not repeated if DT is unavailable, because the
+     * {@link TokenPoller} schedules the next check anyway and its threads must
+     * not sleep in between.
+     *
+     * @param token the token of the upload
+     * @return {@code true} if DT is still processing the BOM
+     * @throws ApiClientException if the check failed. See
+     * {@link ApiClientException#isRetryable()} whether a later check may
+     * succeed.
+     */
     @NonNull
     public boolean isTokenBeingProcessed(String token) throws ApiClientException {
         try {
-            final HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + BOM_TOKEN_URL + "/" + URLEncoder.encode(token, StandardCharsets.UTF_8.name()))
-                    .openConnection();
-            conn.setDoOutput(true);
-            conn.setRequestProperty(API_KEY_HEADER, apiKey);
-            conn.setRequestProperty(HEADER_ACCEPT, MEDIATYPE_JSON);
-            conn.setConnectTimeout(connectionTimeout * MS_TO_S_FACTOR);
-            conn.setReadTimeout(readTimeout * MS_TO_S_FACTOR);
-            conn.connect();
+            final HttpURLConnection conn = get(BOM_TOKEN_URL, BOM_TOKEN_URL + "/" + URLEncoder.encode(token, StandardCharsets.UTF_8.name()), 0);
             if (conn.getResponseCode() == HTTP_OK) {
-                try (InputStream in = new BufferedInputStream(conn.getInputStream())) {
+                try (InputStream in = getResponseStream(conn)) {
                     final JSONObject jsonObject = JSONObject.fromObject(getResponseBody(in));
                     return jsonObject.getBoolean("processing");
                 }
             } else {
                 logger.log(Messages.ApiClient_Error_TokenProcessing(conn.getResponseCode(), conn.getResponseMessage()));
                 logHttpError(conn);
-                throw new ApiClientException(Messages.ApiClient_Error_TokenProcessing(conn.getResponseCode(), conn.getResponseMessage()));
+                throw new ApiClientException(Messages.ApiClient_Error_TokenProcessing(conn.getResponseCode(), conn.getResponseMessage()), conn.getResponseCode());
             }
         } catch (ApiClientException e) {
             throw e;
@@ -310,13 +644,376 @@ public class ApiClient {
         }
     }
 
+    /**
+     * Sends a GET request and repeats it up to {@link #maxRetries} times, see
+     * {@link #get(String, String, int)}.
+     *
+     * @param endpoint the endpoint without parameters, under which the
+     * latency is recorded
+     * @param path the path (and query) relative to {@link #baseUrl}
+     * @return the connection with the response of the last attempt. It is up
+     * to the caller to handle any response code.
+     * @throws ApiClientException if the circuit breaker is open
+     * @throws IOException if the last attempt could not reach DT
+     */
+    private HttpURLConnection get(final String endpoint, final String path) throws IOException {
+        return get(endpoint, path, maxRetries);
+    }
+
+    /**
+     * Sends a GET request. If DT cannot be reached or answers with 429 or a
+     * server error, the request is repeated up to {@code retries} times.
+     * The delay between two attempts is doubled every time and varies
+     * randomly by up to 20%, unless DT asks for a longer delay with a
+     * {@code Retry-After} header.
+     * <p>
+     * Every attempt goes through the {@link CircuitBreaker} of {@link #baseUrl},
+     * so that no request is sent while DT is known to be down. The time until
+     * DT answers is reported to its {@link ConcurrencyLimiter}.
+     *
+     * @param endpoint the endpoint without parameters, under which the
+     * latency is recorded
+     * @param path the path (and query) relative to {@link #baseUrl}
+     * @param retries how often the request may be repeated
+     * @return the connection with the response of the last attempt. It is up
+     * to the caller to handle any response code.
+     * @throws ApiClientException if the circuit breaker is open
+     * @throws IOException if the last attempt could not reach DT
+     */
+    private HttpURLConnection get(final String endpoint, final String path, final int retries) throws IOException {
+        final CircuitBreaker breaker = CircuitBreaker.forUrl(baseUrl);
+        for (int attempt = 0;; attempt++) {
+            if (!breaker.tryAcquire()) {
+                throw ApiClientException.circuitOpen(Messages.ApiClient_Error_CircuitOpen(baseUrl, PollingSchedule.formatSeconds(breaker.getRemainingOpenTime())));
+            }
+            final long delay;
+            try {
+                final long start = System.nanoTime();
+                final HttpURLConnection conn = createConnection(path);
+                conn.connect();
+                final int responseCode = conn.getResponseCode();
+                recordResponse(conn, endpoint, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                if (responseCode != HTTP_TOO_MANY_REQUESTS && responseCode < HTTP_INTERNAL_ERROR) {
+                    return conn;
+                }
+                delay = Math.max(retryDelay(attempt), parseRetryAfter(conn.getHeaderField(HEADER_RETRY_AFTER), System.currentTimeMillis()));
+                if (attempt >= retries || delay > MAX_RETRY_DELAY) {
+                    return conn;
+                }
+                consumeQuietly(conn);
+                logger.log(Messages.ApiClient_Retry(responseCode + " " + conn.getResponseMessage(), PollingSchedule.formatSeconds(delay), attempt + 1, retries));
+            } catch (ApiClientException e) {
+                throw e;
+            } catch (IOException e) {
+                recordFailure(e);
+                if (attempt >= retries) {
+                    throw e;
+                }
+                delay = retryDelay(attempt);
+                logger.log(Messages.ApiClient_Retry(e.getLocalizedMessage(), PollingSchedule.formatSeconds(delay), attempt + 1, retries));
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    /**
+     * Asks the {@link CircuitBreaker} of DT whether a request that is never
+     * retried may be sent.
+     *
+     * @param baseUrl the base url of DT
+     * @param logger where to log to if the circuit is open
+     * @return {@code false} if DT is considered to be down
+     */
+    static boolean tryAcquire(@NonNull final String baseUrl, @NonNull final ConsoleLogger logger) {
+        final CircuitBreaker breaker = CircuitBreaker.forUrl(baseUrl);
+        if (breaker.tryAcquire()) {
+            return true;
+        }
+        logger.log(Messages.ApiClient_Error_CircuitOpen(baseUrl, PollingSchedule.formatSeconds(breaker.getRemainingOpenTime())));
+        return false;
+    }
+
+    /**
+     * tells the {@link CircuitBreaker} and the {@link ConcurrencyLimiter} of
+     * {@link #baseUrl} how DT answered
+     *
+     * @param conn the connection with a response
+     * @param endpoint the endpoint without parameters or {@code null} if the
+     * latency does not tell anything about the load of DT
+     * @param latency the time in milliseconds until DT answered
+     * @throws IOException never, the response is already there
+     */
+    private void recordResponse(final HttpURLConnection conn, @CheckForNull final String endpoint, final long latency) throws IOException {
+        record(new Outcome(conn.getResponseCode(), conn.getResponseCode() + " " + conn.getResponseMessage(), endpoint, latency));
+    }
+
+    /**
+     * tells the {@link CircuitBreaker} and the {@link ConcurrencyLimiter} of
+     * {@link #baseUrl} that DT could not be reached
+     */
+    private void recordFailure(final IOException e) {
+        record(new Outcome(Outcome.UNREACHABLE, e.toString(), null, 0));
+    }
+
+    private void record(final Outcome outcome) {
+        lastOutcome = outcome;
+        if (!onAgent) {
+            outcome.record(baseUrl);
+        }
+    }
+
+    /**
+     * @param attempt the number of the failed attempt, starting at 0
+     * @return the delay in milliseconds before the next attempt
+     */
+    private long retryDelay(final int attempt) {
+        final double jitter = 1 + RETRY_JITTER * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Math.min((long) (firstRetryDelay * Math.pow(2, attempt) * jitter), MAX_RETRY_DELAY);
+    }
+
+    /**
+     * @param retryAfter the value of the {@code Retry-After} header, either
+     * the number of seconds or an HTTP date
+     * @param now the current time in milliseconds since the epoch
+     * @return the requested delay in milliseconds or {@code 0} if there is none
+     */
+    static long parseRetryAfter(final String retryAfter, final long now) {
+        final String value = StringUtils.trimToEmpty(retryAfter);
+        if (value.isEmpty()) {
+            return 0;
+        }
+        if (NumberUtils.isDigits(value)) {
+            return TimeUnit.SECONDS.toMillis(NumberUtils.toLong(value));
+        }
+        try {
+            return Math.max(ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() - now, 0);
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Creates a new connection to DT with the headers and timeouts shared by
+     * every call.
+     * <p>
+     * {@link HttpURLConnection} keeps idle connections in a JVM-wide
+     * keep-alive cache per host and port, including the TLS session, and hands
+     * them out again to subsequent requests. A connection only returns to that
+     * cache if its response body has been read completely and closed, so every
+     * caller has to make sure that either the input or the error stream is
+     * consumed.
+     *
+     * @param path the path (and query) relative to {@link #baseUrl}
+     * @return an unconnected connection
+     * @throws IOException if the connection could not be opened
+     */
+    private HttpURLConnection createConnection(final String path) throws IOException {
+        final HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        conn.setRequestProperty(HEADER_ACCEPT, MEDIATYPE_JSON);
+        conn.setRequestProperty(API_KEY_HEADER, apiKey);
+        conn.setRequestProperty(HEADER_ACCEPT_ENCODING, ENCODING_GZIP);
+        conn.setConnectTimeout(connectionTimeout * MS_TO_S_FACTOR);
+        conn.setReadTimeout(readTimeout * MS_TO_S_FACTOR);
+        return conn;
+    }
+
+    /**
+     * Sets the length of the request body. If uploads are compressed, the
+     * length on the wire is not known in advance and chunked transfer encoding
+     * is used instead.
+     *
+     * @param conn the unconnected connection
+     * @param length the length of the uncompressed request body
+     */
+    private void prepareRequestBody(final HttpURLConnection conn, final long length) {
+        if (compressUploads) {
+            conn.setRequestProperty(HEADER_CONTENT_ENCODING, ENCODING_GZIP);
+            conn.setChunkedStreamingMode(0);
+        } else {
+            // the exact length is known in advance, so the body can be streamed without being buffered by HttpURLConnection
+            conn.setFixedLengthStreamingMode(length);
+        }
+    }
+
+    /**
+     * Writes the request body, compressed if enabled, and logs the savings of
+     * the compression.
+     *
+     * @param conn the connected connection
+     * @param length the length of the uncompressed request body
+     * @param writer writes the uncompressed request body
+     * @throws IOException if writing fails
+     */
+    private void sendRequestBody(final HttpURLConnection conn, final long length, final RequestBodyWriter writer) throws IOException {
+        final CountingOutputStream wire = new CountingOutputStream(conn.getOutputStream());
+        try (OutputStream os = new BufferedOutputStream(compressUploads ? new GZIPOutputStream(wire, BUFFER_SIZE) : wire, BUFFER_SIZE)) {
+            writer.writeTo(os);
+        }
+        if (compressUploads) {
+            logger.log(Messages.ApiClient_Upload_Compressed(wire.getByteCount(), length, percentSaved(length, wire.getByteCount())));
+        }
+    }
+
+    private InputStream getResponseStream(final HttpURLConnection conn) throws IOException {
+        return decode(conn, conn.getInputStream());
+    }
+
+    /**
+     * @param conn the connection
+     * @param in the input or error stream of {@code conn}
+     * @return {@code in} buffered and decompressed if the server compressed
+     * the response
+     * @throws IOException if the gzip header cannot be read
+     */
+    private static InputStream decode(final HttpURLConnection conn, final InputStream in) throws IOException {
+        final InputStream buffered = new BufferedInputStream(in);
+        return isCompressed(conn) ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+    }
+
+    private static boolean isCompressed(final HttpURLConnection conn) {
+        return ENCODING_GZIP.equalsIgnoreCase(conn.getContentEncoding());
+    }
+
+    private static long percentSaved(final long original, final long actual) {
+        return original > 0 ? 100 - (actual * 100 / original) : 0;
+    }
+
+    /**
+     * reads and discards the remaining response body so that the underlying
+     * connection can be reused
+     *
+     * @param conn the connection
+     */
+    private void consumeQuietly(final HttpURLConnection conn) {
+        try {
+            final InputStream in = conn.getResponseCode() < HTTP_BAD_REQUEST ? conn.getInputStream() : conn.getErrorStream();
+            if (in != null) {
+                try (InputStream body = in) {
+                    IOUtils.copy(body, NullOutputStream.NULL_OUTPUT_STREAM);
+                }
+            }
+        } catch (IOException ignore) {
+            // ignored ... the connection will simply not be reused
+        }
+    }
+
+    /**
+     * opens the artifact for reading and makes sure that it is actually
+     * readable before anything is sent to DT
+     *
+     * @param artifact the artifact
+     * @return buffered stream of the artifact's content
+     * @throws IOException if the artifact cannot be read
+     * @throws InterruptedException if interrupted
+     */
+    private static InputStream openArtifact(final FilePath artifact) throws IOException, InterruptedException {
+        final InputStream in = new BufferedInputStream(artifact.read());
+        try {
+            in.mark(1);
+            in.read();
+            in.reset();
+            return in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param length number of bytes to encode
+     * @return the number of characters needed to encode {@code length} bytes
+     * in Base64 (with padding)
+     */
+    static long base64Length(final long length) {
+        return 4 * ((length + 2) / 3);
+    }
+
+    private List<Project> readProjects(final HttpURLConnection conn) throws IOException {
+        try (InputStream in = getResponseStream(conn)) {
+            JSONArray array = JSONArray.fromObject(getResponseBody(in));
+            return array.stream()
+                    .map(o -> ProjectParser.parse((JSONObject) o))
+                    .collect(Collectors.toList());
+        }
+    }
+
     private String getResponseBody(InputStream in) {
         BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
         return reader.lines().collect(Collectors.joining());
     }
 
+    /**
+     * how DT answered a request or why it could not be reached. It is sent
+     * from an agent to the controller, so that failures of requests sent by
+     * agents reach the {@link CircuitBreaker} and the
+     * {@link ConcurrencyLimiter} of the controller as well.
+     */
+    @Value
+    static class Outcome implements Serializable {
+
+        private static final long serialVersionUID = 4619083522706301844L;
+
+        /**
+         * the response code if DT could not be reached at all
+         */
+        static final int UNREACHABLE = -1;
+
+        /**
+         * the response code or {@link #UNREACHABLE}
+         */
+        int responseCode;
+
+        /**
+         * the status line or the reason why DT could not be reached
+         */
+        String reason;
+
+        /**
+         * the endpoint without parameters or {@code null} if the latency does
+         * not tell anything about the load of DT
+         */
+        @CheckForNull
+        String endpoint;
+
+        /**
+         * the time in milliseconds until DT answered
+         */
+        long latency;
+
+        /**
+         * tells the {@link CircuitBreaker} and the {@link ConcurrencyLimiter}
+         * of DT about the outcome
+         *
+         * @param baseUrl the base url of DT
+         */
+        void record(@NonNull final String baseUrl) {
+            if (responseCode == UNREACHABLE || responseCode >= HTTP_INTERNAL_ERROR) {
+                CircuitBreaker.forUrl(baseUrl).onFailure(reason);
+            } else {
+                // DT answered, even if it asks to slow down
+                CircuitBreaker.forUrl(baseUrl).onSuccess();
+            }
+            if (responseCode == UNREACHABLE || responseCode >= HTTP_INTERNAL_ERROR || responseCode == HTTP_TOO_MANY_REQUESTS) {
+                ConcurrencyLimiter.forUrl(baseUrl).onFailure(reason);
+            } else {
+                ConcurrencyLimiter.forUrl(baseUrl).onSuccess(endpoint, latency);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RequestBodyWriter {
+
+        void writeTo(OutputStream os) throws IOException;
+    }
+
     private void logHttpError(final HttpURLConnection conn) {
-        try (InputStream in = new BufferedInputStream(conn.getErrorStream())) {
+        try (InputStream in = decode(conn, conn.getErrorStream())) {
             logger.log(getResponseBody(in));
         } catch (UncheckedIOException | IOException ignore) {
             // ignored ... the error stream might have been closed already or whatever
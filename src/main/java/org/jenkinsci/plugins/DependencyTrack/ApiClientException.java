@@ -16,15 +16,65 @@
 package org.jenkinsci.plugins.DependencyTrack;
 
 import java.io.IOException;
+import lombok.Getter;
+
+import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
 
 public class ApiClientException extends IOException {
 
+    /**
+     * the HTTP response code of DT that caused this exception or {@code 0} if
+     * it was not caused by a response
+     */
+    @Getter
+    private final int responseCode;
+
+    /**
+     * whether the request was not sent because the {@link CircuitBreaker} of
+     * DT was open
+     */
+    @Getter
+    private final boolean circuitOpen;
+
     public ApiClientException(String message) {
+        this(message, 0);
+    }
+
+    public ApiClientException(String message, int responseCode) {
         super(message);
+        this.responseCode = responseCode;
+        this.circuitOpen = false;
     }
 
     public ApiClientException(String message, Throwable cause) {
         super(message, cause);
+        this.responseCode = 0;
+        this.circuitOpen = false;
+    }
+
+    private ApiClientException(String message, boolean circuitOpen) {
+        super(message);
+        this.responseCode = 0;
+        this.circuitOpen = circuitOpen;
+    }
+
+    /**
+     * @param message the message
+     * @return an exception for a request that was not sent because the
+     * {@link CircuitBreaker} of DT was open
+     */
+    static ApiClientException circuitOpen(String message) {
+        return new ApiClientException(message, true);
+    }
+
+    /**
+     * @return {@code true} if the same request may succeed later, because DT
+     * could not be reached, asked to slow down, failed with a server error or
+     * was known to be down
+     */
+    public boolean isRetryable() {
+        return circuitOpen || responseCode == ApiClient.HTTP_TOO_MANY_REQUESTS || responseCode >= HTTP_INTERNAL_ERROR
+                || (getCause() instanceof IOException && !(getCause() instanceof ApiClientException));
     }
 
 }
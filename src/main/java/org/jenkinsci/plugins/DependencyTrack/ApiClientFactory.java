@@ -15,12 +15,16 @@
  */
 package org.jenkinsci.plugins.DependencyTrack;
 
+import java.io.Serializable;
+
 /**
+ * Serializable so that the factory can be sent along with callables that are
+ * executed on an agent.
  *
  * @author Ronny "Sephiroth" Perinke <sephiroth@sephiroth-j.de>
  */
 @FunctionalInterface
-interface ApiClientFactory {
+interface ApiClientFactory extends Serializable {
 
     ApiClient create(final String baseUrl, final String apiKey, final ConsoleLogger logger, int connectionTimeout, int readTimeout);
 }
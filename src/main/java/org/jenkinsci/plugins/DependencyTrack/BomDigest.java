@@ -0,0 +1,77 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import hudson.remoting.VirtualChannel;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import jenkins.MasterToSlaveFileCallable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Computes the SHA-256 of an artifact on the machine the artifact is located
+ * on. The artifact is streamed, so that memory usage does not grow with its
+ * size.
+ * <p>
+ * If elements are removed from the BOM before it is uploaded, their paths are
+ * part of the digest as well, as the same artifact results in a different
+ * upload then.
+ */
+final class BomDigest extends MasterToSlaveFileCallable<String> {
+
+    private static final long serialVersionUID = -3418265707150254237L;
+
+    /**
+     * the paths of the elements removed from the BOM, sorted and without
+     * duplicates
+     */
+    private final List<String> removedElements;
+
+    /**
+     * @param removedElements the paths of the elements removed from the BOM as
+     * returned by {@link BomSlimmer#parsePaths(String)}
+     */
+    BomDigest(final List<String> removedElements) {
+        this.removedElements = new ArrayList<>(new TreeSet<>(removedElements));
+    }
+
+    /**
+     * @return the SHA-256 of the artifact and the removed elements as hex
+     * string. Without removed elements, it is the SHA-256 of the artifact
+     * alone.
+     */
+    @Override
+    public String invoke(final File artifact, final VirtualChannel channel) throws IOException {
+        final MessageDigest digest = DigestUtils.getSha256Digest();
+        try (InputStream in = Files.newInputStream(artifact.toPath())) {
+            DigestUtils.updateDigest(digest, in);
+        }
+        for (String path : removedElements) {
+            // NUL separates the paths from the artifact and from each other
+            digest.update((byte) 0);
+            digest.update(path.getBytes(StandardCharsets.UTF_8));
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+}
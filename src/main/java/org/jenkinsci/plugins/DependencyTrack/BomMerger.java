@@ -0,0 +1,627 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import hudson.remoting.VirtualChannel;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import jenkins.MasterToSlaveFileCallable;
+import lombok.Value;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Merges several CycloneDX BOMs in XML format into one on the machine the
+ * BOMs are located on. Components with the same purl are only kept once and
+ * references to the removed duplicates are replaced. A bom-ref that a previous
+ * BOM already used for something else is prefixed with the number of the BOM,
+ * e.g. {@code 2-a}, together with the references to it from the same BOM.
+ * <p>
+ * Every BOM is read once with the cursor API of StAX. Components are written
+ * to the result right away. Services, external references and dependencies
+ * follow all components in the result, so they are spooled to temporary files
+ * until all BOMs were read. Only a single top-level component is held in
+ * memory at any time, plus the purls and bom-refs of the components written so
+ * far. The result uses the schema version and the metadata of the first BOM.
+ * Other sections are dropped.
+ */
+final class BomMerger extends MasterToSlaveFileCallable<BomMerger.Result> {
+
+    private static final long serialVersionUID = 3570268921349084720L;
+
+    /**
+     * the common prefix of the namespaces of all versions of the CycloneDX
+     * schema
+     */
+    static final String NAMESPACE_PREFIX = "http://cyclonedx.org/schema/bom/";
+
+    private static final String BOM = "bom";
+    private static final String METADATA = "metadata";
+    private static final String COMPONENTS = "components";
+    private static final String DEPENDENCIES = "dependencies";
+    private static final String PURL = "purl";
+    private static final String BOM_REF = "bom-ref";
+    private static final String REF = "ref";
+
+    /**
+     * the sections that follow the components, in the order of the schema
+     */
+    private static final List<String> SPOOLED_SECTIONS = Arrays.asList("services", "externalReferences", DEPENDENCIES);
+
+    /**
+     * the absolute paths of the BOMs to merge
+     */
+    private final List<String> boms;
+
+    /**
+     * @param boms the absolute paths of the BOMs to merge. They must be on the
+     * same machine as the result.
+     */
+    BomMerger(final List<String> boms) {
+        this.boms = new ArrayList<>(boms);
+    }
+
+    /**
+     * @param output the file to write the merged BOM to
+     * @return what was merged
+     */
+    @Override
+    public Result invoke(final File output, final VirtualChannel channel) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output.toPath()))) {
+            return merge(boms.stream().map(File::new).collect(Collectors.toList()), out);
+        }
+    }
+
+    /**
+     * merges the BOMs
+     *
+     * @param inputs the BOMs to merge. The first one determines the schema
+     * version and the metadata.
+     * @param out where to write the merged BOM to
+     * @return what was merged
+     * @throws IOException if a BOM can not be read or is not a CycloneDX BOM in
+     * XML format
+     */
+    static Result merge(final List<File> inputs, final OutputStream out) throws IOException {
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to merge");
+        }
+        final Merge merge = new Merge(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        try {
+            return merge.run(inputs);
+        } catch (XMLStreamException e) {
+            throw new IOException(String.format("Failed to merge %s: %s", merge.current, e.getMessage()), e);
+        } finally {
+            merge.deleteSpools();
+        }
+    }
+
+    /**
+     * @return a factory for readers that neither process DTDs nor resolve
+     * external entities
+     */
+    static XMLInputFactory createInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * the state of one merge
+     */
+    private static final class Merge {
+
+        private final XMLInputFactory inputFactory = createInputFactory();
+
+        /**
+         * the merged BOM
+         */
+        private final Writer out;
+
+        /**
+         * where the elements are written to: the merged BOM, the buffer of a
+         * component or a spool
+         */
+        private final Target target = new Target();
+
+        /**
+         * writes the copied elements. The namespaces are declared by hand, so
+         * that the elements of the schema use the default namespace of the
+         * root.
+         */
+        private final XMLStreamWriter writer;
+
+        private final StringWriter component = new StringWriter(4096);
+
+        /**
+         * the sections that follow the components by name, in the order of the
+         * schema
+         */
+        private final Map<String, Spool> spools = new LinkedHashMap<>();
+
+        /**
+         * the bom-ref of the component that was kept by purl. The value is
+         * {@code null} if the kept component has no bom-ref.
+         */
+        private final Map<String, String> purls = new HashMap<>();
+
+        /**
+         * the bom-refs of the current BOM that are written differently: those
+         * of removed duplicates are mapped to the bom-refs of the components
+         * that were kept instead, those that a previous BOM already used are
+         * mapped to their new name
+         */
+        private final Map<String, String> replacedRefs = new HashMap<>();
+
+        /**
+         * the bom-refs in the merged BOM
+         */
+        private final Set<String> writtenRefs = new HashSet<>();
+
+        /**
+         * the bom-refs copied since they were last added to
+         * {@link #writtenRefs}, so that those of a removed duplicate are not
+         * added
+         */
+        private final List<String> copiedRefs = new ArrayList<>();
+
+        private final Set<String> dependencies = new HashSet<>();
+
+        /**
+         * the default namespace of each open element that is copied
+         */
+        private final Deque<String> defaultNamespaces = new ArrayDeque<>();
+
+        /**
+         * the BOM that is being read, for error messages
+         */
+        private File current;
+
+        /**
+         * the number of the BOM that is being read, starting at 1
+         */
+        private int index;
+
+        private String namespace;
+
+        private boolean componentsStarted;
+
+        private int components;
+
+        private int duplicates;
+
+        private Merge(final Writer out) throws IOException {
+            this.out = out;
+            try {
+                writer = XMLOutputFactory.newInstance().createXMLStreamWriter(target);
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+            for (String section : SPOOLED_SECTIONS) {
+                spools.put(section, new Spool());
+            }
+        }
+
+        private Result run(final List<File> inputs) throws IOException, XMLStreamException {
+            for (File input : inputs) {
+                current = input;
+                index++;
+                // the bom-refs of a BOM only refer to its own elements
+                replacedRefs.clear();
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(input.toPath()))) {
+                    final XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+                    try {
+                        read(reader);
+                    } finally {
+                        reader.close();
+                    }
+                }
+            }
+            if (componentsStarted) {
+                out.write("</" + COMPONENTS + ">");
+            }
+            for (Map.Entry<String, Spool> spool : spools.entrySet()) {
+                spool.getValue().appendTo(out, spool.getKey());
+            }
+            out.write("</" + BOM + ">");
+            out.flush();
+            return new Result(inputs.size(), components, duplicates);
+        }
+
+        private void read(final XMLStreamReader reader) throws IOException, XMLStreamException {
+            reader.nextTag();
+            if (!BOM.equals(reader.getLocalName()) || !isCycloneDx(reader.getNamespaceURI())) {
+                throw new XMLStreamException("Not a CycloneDX BOM in XML format", reader.getLocation());
+            }
+            final boolean first = namespace == null;
+            if (first) {
+                namespace = reader.getNamespaceURI();
+                // no serialNumber, so that the same BOMs always give the same result
+                out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><" + BOM + " xmlns=\"" + StringEscapeUtils.escapeXml(namespace) + "\" version=\"1\">");
+            }
+            while (nextChild(reader)) {
+                final String section = reader.getLocalName();
+                if (first && METADATA.equals(section) && !componentsStarted) {
+                    target.to(out);
+                    copy(reader, null);
+                    keepCopiedRefs();
+                } else if (COMPONENTS.equals(section)) {
+                    while (nextChild(reader)) {
+                        copyComponent(reader);
+                    }
+                } else if (spools.containsKey(section)) {
+                    final Spool spool = spools.get(section);
+                    while (nextChild(reader)) {
+                        if (DEPENDENCIES.equals(section) && !isNewDependency(reader)) {
+                            skip(reader);
+                            continue;
+                        }
+                        target.to(spool.open());
+                        copy(reader, null);
+                        keepCopiedRefs();
+                    }
+                } else {
+                    skip(reader);
+                }
+            }
+        }
+
+        /**
+         * copies the component unless a component with the same purl was
+         * already written
+         */
+        private void copyComponent(final XMLStreamReader reader) throws IOException, XMLStreamException {
+            final String bomRef = StringUtils.trimToNull(reader.getAttributeValue(null, BOM_REF));
+            component.getBuffer().setLength(0);
+            target.to(component);
+            // the purl is one of the last children. it is only known once the component was read.
+            final String purl = copy(reader, PURL);
+            if (purl != null) {
+                if (purls.containsKey(purl)) {
+                    duplicates++;
+                    final String keptRef = purls.get(purl);
+                    if (bomRef != null && keptRef != null) {
+                        replacedRefs.put(bomRef, keptRef);
+                    }
+                    copiedRefs.clear();
+                    return;
+                }
+                purls.put(purl, bomRef != null ? replacedRefs.getOrDefault(bomRef, bomRef) : null);
+            }
+            keepCopiedRefs();
+            if (!componentsStarted) {
+                out.write("<" + COMPONENTS + ">");
+                componentsStarted = true;
+            }
+            out.append(component.getBuffer());
+            components++;
+        }
+
+        private void keepCopiedRefs() {
+            writtenRefs.addAll(copiedRefs);
+            copiedRefs.clear();
+        }
+
+        /**
+         * @param bomRef a bom-ref of the current BOM that is copied
+         * @return the bom-ref to write instead. It is renamed if a previous BOM
+         * already used it.
+         */
+        private String copyBomRef(final String bomRef) {
+            String written = replacedRefs.get(bomRef);
+            if (written == null) {
+                written = bomRef;
+                while (writtenRefs.contains(written)) {
+                    written = index + "-" + written;
+                }
+                if (!written.equals(bomRef)) {
+                    replacedRefs.put(bomRef, written);
+                }
+            }
+            copiedRefs.add(written);
+            return written;
+        }
+
+        /**
+         * @return whether no dependencies of the component the current
+         * dependency refers to were written so far. The first BOM that
+         * declares them wins.
+         */
+        private boolean isNewDependency(final XMLStreamReader reader) {
+            final String ref = StringUtils.trimToNull(reader.getAttributeValue(null, REF));
+            return ref == null || dependencies.add(replacedRefs.getOrDefault(ref, ref));
+        }
+
+        /**
+         * copies the element the reader is at to the current target
+         *
+         * @param child the name of a direct child whose text shall be returned
+         * or {@code null}
+         * @return the trimmed text of the child or {@code null} if there is
+         * none
+         */
+        private String copy(final XMLStreamReader reader, final String child) throws XMLStreamException {
+            defaultNamespaces.clear();
+            defaultNamespaces.push(namespace);
+            StringBuilder childText = null;
+            String result = null;
+            int depth = 0;
+            do {
+                switch (reader.getEventType()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        depth++;
+                        writeStartElement(reader);
+                        if (depth == 2 && child != null && result == null && child.equals(reader.getLocalName())) {
+                            childText = new StringBuilder();
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        depth--;
+                        writer.writeEndElement();
+                        defaultNamespaces.pop();
+                        if (childText != null && depth == 1) {
+                            result = StringUtils.trimToNull(childText.toString());
+                            childText = null;
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.SPACE:
+                    case XMLStreamConstants.CDATA:
+                        writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        if (childText != null) {
+                            childText.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        break;
+                    case XMLStreamConstants.COMMENT:
+                        writer.writeComment(reader.getText());
+                        break;
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+                        break;
+                    default:
+                        break;
+                }
+                if (depth > 0) {
+                    reader.next();
+                }
+            } while (depth > 0);
+            writer.flush();
+            return result;
+        }
+
+        /**
+         * Writes the start of the element in the namespace of the result if it
+         * is part of the schema. Extensions keep their namespace. The
+         * namespace declarations of the BOMs are not copied, so extensions and
+         * namespaced attributes declare their namespace on every element.
+         * References to removed duplicates and renamed bom-refs are replaced.
+         */
+        private void writeStartElement(final XMLStreamReader reader) throws XMLStreamException {
+            final String elementNamespace = StringUtils.defaultString(reader.getNamespaceURI());
+            final String prefix = StringUtils.defaultString(reader.getPrefix());
+            if (isCycloneDx(elementNamespace)) {
+                writer.writeStartElement("", reader.getLocalName(), namespace);
+                declareDefaultNamespace(namespace);
+            } else if (prefix.isEmpty()) {
+                writer.writeStartElement("", reader.getLocalName(), elementNamespace);
+                declareDefaultNamespace(elementNamespace);
+            } else {
+                writer.writeStartElement(prefix, reader.getLocalName(), elementNamespace);
+                writer.writeNamespace(prefix, elementNamespace);
+                defaultNamespaces.push(defaultNamespaces.peek());
+            }
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                final String attributeNamespace = StringUtils.defaultString(reader.getAttributeNamespace(i));
+                final String value = reader.getAttributeValue(i);
+                if (attributeNamespace.isEmpty()) {
+                    final String name = reader.getAttributeLocalName(i);
+                    if (BOM_REF.equals(name)) {
+                        writer.writeAttribute(name, copyBomRef(value));
+                    } else {
+                        writer.writeAttribute(name, REF.equals(name) ? replacedRefs.getOrDefault(value, value) : value);
+                    }
+                } else {
+                    final String attributePrefix = reader.getAttributePrefix(i);
+                    if (!XMLConstants.XML_NS_URI.equals(attributeNamespace) && (!attributePrefix.equals(prefix) || !attributeNamespace.equals(elementNamespace))) {
+                        writer.writeNamespace(attributePrefix, attributeNamespace);
+                    }
+                    writer.writeAttribute(attributePrefix, attributeNamespace, reader.getAttributeLocalName(i), value);
+                }
+            }
+        }
+
+        private void declareDefaultNamespace(final String defaultNamespace) throws XMLStreamException {
+            if (!defaultNamespace.equals(defaultNamespaces.peek())) {
+                writer.writeDefaultNamespace(defaultNamespace);
+            }
+            defaultNamespaces.push(defaultNamespace);
+        }
+
+        /**
+         * moves to the next child element of the current element
+         *
+         * @return {@code false} if the current element ends instead
+         */
+        private boolean nextChild(final XMLStreamReader reader) throws XMLStreamException {
+            while (reader.hasNext()) {
+                final int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    return true;
+                }
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * skips the element the reader is at
+         */
+        private void skip(final XMLStreamReader reader) throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0) {
+                final int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+
+        private static boolean isCycloneDx(final String namespace) {
+            return namespace != null && namespace.startsWith(NAMESPACE_PREFIX);
+        }
+
+        private void deleteSpools() {
+            spools.values().forEach(Spool::delete);
+        }
+    }
+
+    /**
+     * a section that is kept in a temporary file until all components are
+     * written
+     */
+    private static final class Spool {
+
+        private Path file;
+
+        private Writer writer;
+
+        private Writer open() throws IOException {
+            if (writer == null) {
+                file = Files.createTempFile("bom-merge", ".xml");
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            }
+            return writer;
+        }
+
+        private void appendTo(final Writer out, final String section) throws IOException {
+            if (writer == null) {
+                return;
+            }
+            writer.close();
+            out.write("<" + section + ">");
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                IOUtils.copy(reader, out);
+            }
+            out.write("</" + section + ">");
+        }
+
+        private void delete() {
+            if (file == null) {
+                return;
+            }
+            try {
+                writer.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // only a temporary file
+            }
+        }
+    }
+
+    /**
+     * a writer that forwards to the one that is currently in use
+     */
+    private static final class Target extends Writer {
+
+        private Writer delegate;
+
+        private void to(final Writer delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) throws IOException {
+            delegate.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(final String str, final int off, final int len) throws IOException {
+            delegate.write(str, off, len);
+        }
+
+        @Override
+        public void flush() {
+            // the delegates are flushed by their owners
+        }
+
+        @Override
+        public void close() {
+            // the delegates are closed by their owners
+        }
+    }
+
+    /**
+     * what was merged
+     */
+    @Value
+    static class Result implements Serializable {
+
+        private static final long serialVersionUID = -1867296438027590431L;
+
+        /**
+         * the number of merged BOMs
+         */
+        private final int boms;
+
+        /**
+         * the number of top-level components in the merged BOM
+         */
+        private final int components;
+
+        /**
+         * the number of top-level components that were removed because a
+         * component with the same purl was already written
+         */
+        private final int duplicates;
+    }
+}
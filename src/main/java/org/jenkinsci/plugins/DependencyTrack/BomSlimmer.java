@@ -0,0 +1,393 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import hudson.remoting.VirtualChannel;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import jenkins.MasterToSlaveFileCallable;
+import lombok.Value;
+import org.apache.commons.io.output.NullWriter;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Removes elements that Dependency-Track does not need for its analysis, such
+ * as license texts or hashes, from a CycloneDX BOM on the machine the BOM is
+ * located on. BOMs in XML and JSON format are streamed, so that memory usage
+ * does not grow with the size of the BOM.
+ * <p>
+ * Elements are given by their path, e.g. {@code licenses/license/text}, and
+ * are removed wherever the path to them ends with it. Arrays are not part of
+ * the path in JSON, so the same path works for both formats. The JSON result
+ * does not contain any insignificant whitespace.
+ */
+final class BomSlimmer extends MasterToSlaveFileCallable<BomSlimmer.Result> {
+
+    private static final long serialVersionUID = -5240561954107364231L;
+
+    /**
+     * the absolute path of the BOM to slim
+     */
+    private final String bom;
+
+    /**
+     * the paths of the elements to remove
+     */
+    private final List<String> paths;
+
+    /**
+     * @param bom the absolute path of the BOM to slim. It must be on the same
+     * machine as the result.
+     * @param paths the paths of the elements to remove
+     */
+    BomSlimmer(final String bom, final List<String> paths) {
+        this.bom = bom;
+        this.paths = new ArrayList<>(paths);
+    }
+
+    /**
+     * @param output the file to write the slimmed BOM to
+     * @return the sizes before and after slimming
+     */
+    @Override
+    public Result invoke(final File output, final VirtualChannel channel) throws IOException {
+        final File input = new File(bom);
+        final int removed;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(input.toPath()));
+                OutputStream out = new BufferedOutputStream(Files.newOutputStream(output.toPath()))) {
+            removed = slim(in, out, paths);
+        }
+        return new Result(removed, input.length(), output.length());
+    }
+
+    /**
+     * @param value paths separated by commas or whitespace. Leading and
+     * trailing slashes are ignored.
+     * @return the paths, empty if {@code value} is blank
+     */
+    static List<String> parsePaths(final String value) {
+        return Arrays.stream(StringUtils.split(StringUtils.defaultString(value), ", \t\r\n"))
+                .map(path -> StringUtils.strip(path, "/"))
+                .filter(StringUtils::isNotEmpty)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * copies the BOM without the elements at the given paths
+     *
+     * @param in the BOM in XML or JSON format
+     * @param out where to write the slimmed BOM to, in the same format and
+     * encoded in UTF-8
+     * @param paths the paths of the elements to remove
+     * @return the number of removed elements
+     * @throws IOException if the BOM can not be read or is neither XML nor
+     * JSON
+     */
+    static int slim(final InputStream in, final OutputStream out, final List<String> paths) throws IOException {
+        final InputStream input = in.markSupported() ? in : new BufferedInputStream(in);
+        final Exclusions exclusions = new Exclusions(paths);
+        final int first = peek(input);
+        if (first == '<') {
+            return slimXml(input, out, exclusions);
+        }
+        if (first == '{') {
+            final Reader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            final int removed = new JsonSlimmer(reader, writer, exclusions).run();
+            writer.flush();
+            return removed;
+        }
+        throw new IOException(Messages.BomValidator_Error_UnknownFormat());
+    }
+
+    /**
+     * @return the first character of the stream that is neither whitespace
+     * nor a byte order mark, without consuming it. {@code -1} if there is none
+     * within the first kilobyte.
+     */
+    static int peek(final InputStream in) throws IOException {
+        in.mark(1024);
+        try {
+            for (int i = 0; i < 1024; i++) {
+                final int b = in.read();
+                // 0xEF 0xBB 0xBF is the UTF-8 encoded byte order mark
+                if (b != 0xEF && b != 0xBB && b != 0xBF && !Character.isWhitespace(b)) {
+                    return b;
+                }
+            }
+            return -1;
+        } finally {
+            in.reset();
+        }
+    }
+
+    private static int slimXml(final InputStream in, final OutputStream out, final Exclusions exclusions) throws IOException {
+        try {
+            final XMLStreamReader reader = BomMerger.createInputFactory().createXMLStreamReader(in);
+            final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+            int removed = 0;
+            writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (exclusions.enter(reader.getLocalName())) {
+                            skip(reader);
+                            exclusions.leave();
+                            removed++;
+                        } else {
+                            writeStartElement(reader, writer);
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        writer.writeEndElement();
+                        exclusions.leave();
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.SPACE:
+                    case XMLStreamConstants.CDATA:
+                        writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        break;
+                    case XMLStreamConstants.COMMENT:
+                        writer.writeComment(reader.getText());
+                        break;
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+                        break;
+                    default:
+                        // the DTD is neither processed nor copied
+                        break;
+                }
+            }
+            writer.writeEndDocument();
+            writer.flush();
+            reader.close();
+            return removed;
+        } catch (XMLStreamException e) {
+            throw new IOException(Messages.BomSlimmer_Error_Xml(e.getMessage()), e);
+        }
+    }
+
+    /**
+     * writes the start of the element with the namespace declarations and
+     * attributes it has in the BOM
+     */
+    private static void writeStartElement(final XMLStreamReader reader, final XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartElement(StringUtils.defaultString(reader.getPrefix()), reader.getLocalName(), StringUtils.defaultString(reader.getNamespaceURI()));
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            final String prefix = reader.getNamespacePrefix(i);
+            if (StringUtils.isEmpty(prefix)) {
+                writer.writeDefaultNamespace(StringUtils.defaultString(reader.getNamespaceURI(i)));
+            } else {
+                writer.writeNamespace(prefix, reader.getNamespaceURI(i));
+            }
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            final String namespace = reader.getAttributeNamespace(i);
+            if (StringUtils.isEmpty(namespace)) {
+                writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            } else {
+                writer.writeAttribute(reader.getAttributePrefix(i), namespace, reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
+        }
+    }
+
+    /**
+     * skips the element the reader is at
+     */
+    private static void skip(final XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * the paths of the elements to remove and the path of the current element
+     */
+    private static final class Exclusions {
+
+        private final List<String[]> paths;
+
+        private final List<String> current = new ArrayList<>();
+
+        private Exclusions(final List<String> paths) {
+            this.paths = paths.stream().map(path -> StringUtils.split(path, '/')).collect(Collectors.toList());
+        }
+
+        /**
+         * @param name the name of the element that starts
+         * @return whether the element shall be removed
+         */
+        private boolean enter(final String name) {
+            current.add(name);
+            return paths.stream().anyMatch(this::matches);
+        }
+
+        private void leave() {
+            current.remove(current.size() - 1);
+        }
+
+        private boolean matches(final String[] path) {
+            final int offset = current.size() - path.length;
+            if (offset < 0) {
+                return false;
+            }
+            for (int i = path.length - 1; i >= 0; i--) {
+                if (!path[i].equals(current.get(offset + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * copies a JSON document without the excluded members
+     */
+    private static final class JsonSlimmer {
+
+        private final JsonTokenizer json;
+
+        private final Writer out;
+
+        private final Exclusions exclusions;
+
+        private int removed;
+
+        private JsonSlimmer(final Reader in, final Writer out, final Exclusions exclusions) throws IOException {
+            this.json = new JsonTokenizer(in);
+            this.out = out;
+            this.exclusions = exclusions;
+        }
+
+        private int run() throws IOException {
+            try {
+                value();
+                json.skipWhitespace();
+                if (json.current() != -1) {
+                    throw json.unexpected();
+                }
+                return removed;
+            } catch (JsonTokenizer.SyntaxException e) {
+                throw new IOException(Messages.BomSlimmer_Error_Json(e.getMessage(), String.valueOf(e.getLine()), String.valueOf(e.getColumn())), e);
+            }
+        }
+
+        private void value() throws IOException {
+            json.skipWhitespace();
+            switch (json.current()) {
+                case '{':
+                    object();
+                    break;
+                case '[':
+                    array();
+                    break;
+                default:
+                    json.value(out);
+                    break;
+            }
+        }
+
+        private void object() throws IOException {
+            out.write('{');
+            json.begin();
+            boolean empty = true;
+            while (json.current() != '}') {
+                final String name = json.name();
+                if (exclusions.enter(name)) {
+                    json.value(NullWriter.NULL_WRITER);
+                    removed++;
+                } else {
+                    if (!empty) {
+                        out.write(',');
+                    }
+                    out.append('"').append(name).append("\":");
+                    value();
+                    empty = false;
+                }
+                exclusions.leave();
+                json.separator('}');
+            }
+            json.end();
+            out.write('}');
+        }
+
+        private void array() throws IOException {
+            out.write('[');
+            json.begin();
+            while (json.current() != ']') {
+                value();
+                json.separator(']');
+                if (json.current() != ']') {
+                    out.write(',');
+                }
+            }
+            json.end();
+            out.write(']');
+        }
+    }
+
+    /**
+     * what was removed
+     */
+    @Value
+    static class Result implements Serializable {
+
+        private static final long serialVersionUID = 6316049839146052517L;
+
+        /**
+         * the number of removed elements
+         */
+        private final int removed;
+
+        /**
+         * the size of the BOM in bytes before slimming
+         */
+        private final long originalSize;
+
+        /**
+         * the size of the BOM in bytes after slimming
+         */
+        private final long size;
+    }
+}
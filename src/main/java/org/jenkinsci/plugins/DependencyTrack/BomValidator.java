@@ -0,0 +1,444 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import hudson.remoting.VirtualChannel;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import jenkins.MasterToSlaveFileCallable;
+import lombok.Value;
+import org.apache.commons.io.output.NullWriter;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Validates a CycloneDX BOM on the machine the BOM is located on, so that a
+ * malformed BOM is noticed before it is uploaded instead of being rejected by
+ * Dependency-Track afterwards. BOMs in XML and JSON format are streamed, so
+ * that memory usage does not grow with the size of the BOM.
+ * <p>
+ * Besides being well-formed, the BOM must follow the parts of the CycloneDX
+ * schema that Dependency-Track relies on: the document is a CycloneDX BOM,
+ * every component has a type and a name and every dependency has a ref. The
+ * validation stops at the first error and reports its position.
+ */
+final class BomValidator extends MasterToSlaveFileCallable<BomValidator.Result> {
+
+    private static final long serialVersionUID = 6010738471929416553L;
+
+    static final String XML = "XML";
+
+    static final String JSON = "JSON";
+
+    private static final String COMPONENT = "component";
+    private static final String COMPONENTS = "components";
+    private static final String DEPENDENCY = "dependency";
+    private static final String DEPENDENCIES = "dependencies";
+    private static final String TYPE = "type";
+    private static final String NAME = "name";
+    private static final String REF = "ref";
+
+    @Override
+    public Result invoke(final File bom, final VirtualChannel channel) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(bom.toPath()))) {
+            return validate(in);
+        }
+    }
+
+    /**
+     * @param in the BOM in XML or JSON format
+     * @return the result of the validation
+     * @throws IOException if the BOM can not be read
+     */
+    static Result validate(final InputStream in) throws IOException {
+        final InputStream input = in.markSupported() ? in : new BufferedInputStream(in);
+        try {
+            if (BomSlimmer.peek(input) == '<') {
+                return new XmlValidator(input).run();
+            }
+            return new JsonValidator(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))).run();
+        } catch (Invalid e) {
+            return new Result(e.format, null, 0, e.getMessage(), e.line, e.column);
+        }
+    }
+
+    /**
+     * validates a BOM in XML format with the StAX cursor API
+     */
+    private static final class XmlValidator {
+
+        private final InputStream in;
+
+        /**
+         * for every open component, its position and whether it has a name
+         */
+        private final Deque<int[]> components = new ArrayDeque<>();
+
+        private XMLStreamReader reader;
+
+        private String namespace;
+
+        private int componentCount;
+
+        private XmlValidator(final InputStream in) {
+            this.in = in;
+        }
+
+        private Result run() throws Invalid {
+            try {
+                reader = BomMerger.createInputFactory().createXMLStreamReader(in);
+                reader.nextTag();
+                namespace = reader.getNamespaceURI();
+                if (!"bom".equals(reader.getLocalName()) || namespace == null || !namespace.startsWith(BomMerger.NAMESPACE_PREFIX)) {
+                    throw invalid(Messages.BomValidator_Error_XmlRoot(BomMerger.NAMESPACE_PREFIX));
+                }
+                int depth = 1;
+                final Deque<String> path = new ArrayDeque<>();
+                while (depth > 0) {
+                    final int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        startElement(path.peek());
+                        path.push(isCycloneDx() ? reader.getLocalName() : StringUtils.EMPTY);
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
+                        endElement(path.isEmpty() ? null : path.pop());
+                    }
+                }
+                while (reader.hasNext()) {
+                    reader.next();
+                }
+                reader.close();
+            } catch (XMLStreamException e) {
+                final Location location = e.getLocation();
+                // the message of the JDK contains the position as well
+                final String message = StringUtils.defaultIfEmpty(StringUtils.substringAfter(e.getMessage(), "Message: "), e.getMessage());
+                throw new Invalid(XML, message, location != null ? location.getLineNumber() : -1, location != null ? location.getColumnNumber() : -1);
+            }
+            return new Result(XML, StringUtils.substringAfter(namespace, BomMerger.NAMESPACE_PREFIX), componentCount, null, 0, 0);
+        }
+
+        /**
+         * @param parent the name of the parent element if it is part of the
+         * schema, otherwise an empty string
+         */
+        private void startElement(final String parent) throws Invalid {
+            if (!isCycloneDx()) {
+                return;
+            }
+            final String name = reader.getLocalName();
+            if (COMPONENTS.equals(parent) && !COMPONENT.equals(name)) {
+                throw invalid(Messages.BomValidator_Error_UnexpectedElement(COMPONENTS, COMPONENT, name));
+            }
+            if (DEPENDENCIES.equals(parent) && !DEPENDENCY.equals(name)) {
+                throw invalid(Messages.BomValidator_Error_UnexpectedElement(DEPENDENCIES, DEPENDENCY, name));
+            }
+            if (COMPONENT.equals(name)) {
+                if (StringUtils.isBlank(reader.getAttributeValue(null, TYPE))) {
+                    throw invalid(Messages.BomValidator_Error_NoAttribute(COMPONENT, TYPE));
+                }
+                final Location location = reader.getLocation();
+                components.push(new int[]{location.getLineNumber(), location.getColumnNumber(), 0});
+                componentCount++;
+            } else if (NAME.equals(name) && COMPONENT.equals(parent)) {
+                components.peek()[2] = 1;
+            } else if (DEPENDENCY.equals(name) && StringUtils.isBlank(reader.getAttributeValue(null, REF))) {
+                throw invalid(Messages.BomValidator_Error_NoAttribute(DEPENDENCY, REF));
+            }
+        }
+
+        private void endElement(final String name) throws Invalid {
+            if (COMPONENT.equals(name)) {
+                final int[] component = components.pop();
+                if (component[2] == 0) {
+                    throw new Invalid(XML, Messages.BomValidator_Error_NoElement(COMPONENT, NAME), component[0], component[1]);
+                }
+            }
+        }
+
+        private boolean isCycloneDx() {
+            return namespace.equals(reader.getNamespaceURI());
+        }
+
+        /**
+         * @return an error at the current position
+         */
+        private Invalid invalid(final String message) {
+            final Location location = reader.getLocation();
+            return new Invalid(XML, message, location.getLineNumber(), location.getColumnNumber());
+        }
+    }
+
+    /**
+     * validates a BOM in JSON format, holding only the values the validation
+     * needs in memory
+     */
+    private static final class JsonValidator {
+
+        private final JsonTokenizer json;
+
+        private int componentCount;
+
+        private JsonValidator(final Reader in) throws IOException {
+            this.json = new JsonTokenizer(in);
+        }
+
+        private Result run() throws Invalid {
+            try {
+                json.skipWhitespace();
+                if (json.current() != '{') {
+                    throw invalid(Messages.BomValidator_Error_UnknownFormat());
+                }
+                final Map<String, String> root = object(Kind.ROOT);
+                json.skipWhitespace();
+                if (json.current() != -1) {
+                    throw json.unexpected();
+                }
+                if (!"CycloneDX".equals(root.get("bomFormat"))) {
+                    throw new Invalid(JSON, Messages.BomValidator_Error_JsonFormat(), 1, 1);
+                }
+                if (StringUtils.isBlank(root.get("specVersion"))) {
+                    throw new Invalid(JSON, Messages.BomValidator_Error_SpecVersion(), 1, 1);
+                }
+                return new Result(JSON, root.get("specVersion"), componentCount, null, 0, 0);
+            } catch (JsonTokenizer.SyntaxException e) {
+                throw new Invalid(JSON, e.getMessage(), e.getLine(), e.getColumn());
+            } catch (IOException e) {
+                throw invalid(e.getMessage());
+            }
+        }
+
+        /**
+         * @return the string value of the member or {@code null} if it is no
+         * string
+         */
+        private String value(final Kind kind) throws IOException, Invalid {
+            json.skipWhitespace();
+            final int c = json.current();
+            if (c == -1) {
+                throw json.unexpected();
+            }
+            if (kind.isObject() && c != '{') {
+                throw invalid(Messages.BomValidator_Error_ExpectedObject());
+            }
+            if (kind.isArray() && c != '[') {
+                throw invalid(Messages.BomValidator_Error_ExpectedArray());
+            }
+            switch (c) {
+                case '{':
+                    object(kind);
+                    return null;
+                case '[':
+                    array(kind);
+                    return null;
+                case '"':
+                    // only short values are needed
+                    return json.string(1024);
+                default:
+                    json.value(NullWriter.NULL_WRITER);
+                    return null;
+            }
+        }
+
+        /**
+         * @return the string members that the validation needs
+         */
+        private Map<String, String> object(final Kind kind) throws IOException, Invalid {
+            final int startLine = json.getLine();
+            final int startColumn = json.getColumn();
+            final Map<String, String> members = new HashMap<>();
+            json.begin();
+            while (json.current() != '}') {
+                final String name = json.name();
+                final String value = value(kind.child(name));
+                if (kind.isRequired(name) || kind == Kind.ROOT) {
+                    members.put(name, value);
+                }
+                json.separator('}');
+            }
+            json.end();
+            if (kind == Kind.COMPONENT_OBJECT) {
+                componentCount++;
+            }
+            for (String required : kind.required) {
+                if (StringUtils.isBlank(members.get(required))) {
+                    throw new Invalid(JSON, kind.missing(required), startLine, startColumn);
+                }
+            }
+            return members;
+        }
+
+        private void array(final Kind kind) throws IOException, Invalid {
+            json.begin();
+            while (json.current() != ']') {
+                value(kind.element());
+                json.separator(']');
+            }
+            json.end();
+        }
+
+        private Invalid invalid(final String message) {
+            return new Invalid(JSON, message, json.getLine(), json.getColumn());
+        }
+    }
+
+
+    /**
+     * what a JSON value is expected to be, depending on where it is
+     */
+    private enum Kind {
+        ROOT,
+        METADATA,
+        COMPONENT_ARRAY,
+        COMPONENT_OBJECT(TYPE, NAME),
+        DEPENDENCY_ARRAY,
+        DEPENDENCY_OBJECT(REF),
+        OTHER;
+
+        private final String[] required;
+
+        Kind(final String... required) {
+            this.required = required;
+        }
+
+        private Kind child(final String name) {
+            if (this == ROOT && "metadata".equals(name)) {
+                return METADATA;
+            }
+            if (this == METADATA && COMPONENT.equals(name)) {
+                return COMPONENT_OBJECT;
+            }
+            if ((this == ROOT || this == COMPONENT_OBJECT) && COMPONENTS.equals(name)) {
+                return COMPONENT_ARRAY;
+            }
+            if (this == ROOT && DEPENDENCIES.equals(name)) {
+                return DEPENDENCY_ARRAY;
+            }
+            return OTHER;
+        }
+
+        private Kind element() {
+            if (this == COMPONENT_ARRAY) {
+                return COMPONENT_OBJECT;
+            }
+            return this == DEPENDENCY_ARRAY ? DEPENDENCY_OBJECT : OTHER;
+        }
+
+        private boolean isObject() {
+            return this == METADATA || this == COMPONENT_OBJECT || this == DEPENDENCY_OBJECT;
+        }
+
+        private boolean isArray() {
+            return this == COMPONENT_ARRAY || this == DEPENDENCY_ARRAY;
+        }
+
+        /**
+         * @return the error if the required member is missing
+         */
+        private String missing(final String member) {
+            return this == COMPONENT_OBJECT ? Messages.BomValidator_Error_ComponentNoMember(member) : Messages.BomValidator_Error_DependencyNoMember(member);
+        }
+
+        private boolean isRequired(final String name) {
+            for (String member : required) {
+                if (member.equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * the first error found
+     */
+    private static final class Invalid extends Exception {
+
+        private static final long serialVersionUID = -2797446364312087047L;
+
+        private final String format;
+
+        private final int line;
+
+        private final int column;
+
+        private Invalid(final String format, final String message, final int line, final int column) {
+            super(message, null, false, false);
+            this.format = format;
+            this.line = line;
+            this.column = column;
+        }
+    }
+
+    /**
+     * the result of the validation
+     */
+    @Value
+    static class Result implements Serializable {
+
+        private static final long serialVersionUID = -4436021983372524592L;
+
+        /**
+         * {@link #XML} or {@link #JSON}
+         */
+        private final String format;
+
+        /**
+         * the version of the CycloneDX specification or {@code null} if the
+         * BOM is invalid
+         */
+        private final String specVersion;
+
+        /**
+         * the number of components including nested ones
+         */
+        private final int components;
+
+        /**
+         * the first error or {@code null} if the BOM is valid
+         */
+        private final String error;
+
+        /**
+         * the line of the first error, starting at 1
+         */
+        private final int line;
+
+        /**
+         * the column of the first error, starting at 1
+         */
+        private final int column;
+
+        boolean isValid() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Keeps track of whether a DT instance is available, so that requests fail
+ * fast while it is down instead of every build waiting for its own timeouts
+ * and retries.
+ * <p>
+ * After a number of consecutive failures the breaker opens and requests are
+ * rejected without being sent. Once the open duration has elapsed, a single
+ * request is let through as a probe. If it succeeds the breaker closes, if it
+ * fails the breaker opens again. There is one breaker per base url, shared by
+ * all clients.
+ */
+final class CircuitBreaker {
+
+    /**
+     * the number of consecutive failures that open the breaker
+     */
+    static final int FAILURE_THRESHOLD = 5;
+
+    /**
+     * the time in milliseconds the breaker stays open before a probe is let
+     * through
+     */
+    static final long OPEN_DURATION = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * the number of transitions that are remembered per breaker
+     */
+    private static final int MAX_TRANSITIONS = 20;
+
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+    private static final ConcurrentMap<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    enum State {
+        /**
+         * requests are sent
+         */
+        CLOSED,
+        /**
+         * requests are rejected
+         */
+        OPEN,
+        /**
+         * a probe is under way, other requests are rejected
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * the base url of the DT instance
+     */
+    @Getter
+    private final String url;
+
+    /**
+     * the current time in milliseconds
+     */
+    private final LongSupplier clock;
+
+    private final int failureThreshold;
+
+    private final long openDuration;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private long probeStartedAt;
+    private final Deque<Transition> transitions = new ArrayDeque<>();
+
+    CircuitBreaker(@NonNull final String url, @NonNull final LongSupplier clock, final int failureThreshold, final long openDuration) {
+        this.url = url;
+        this.clock = clock;
+        this.failureThreshold = Math.max(failureThreshold, 1);
+        this.openDuration = Math.max(openDuration, 0);
+    }
+
+    /**
+     * @param url the base url of the DT instance
+     * @return the breaker shared by all clients of that instance
+     */
+    static CircuitBreaker forUrl(@NonNull final String url) {
+        return BREAKERS.computeIfAbsent(url, u -> new CircuitBreaker(u, System::currentTimeMillis, FAILURE_THRESHOLD, OPEN_DURATION));
+    }
+
+    /**
+     * @return the breakers of all instances that were contacted since the
+     * start of Jenkins, ordered by url
+     */
+    static List<CircuitBreaker> getAll() {
+        return BREAKERS.values().stream()
+                .sorted(Comparator.comparing(CircuitBreaker::getUrl))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Must be called before a request is sent. If it returns {@code true},
+     * the outcome of the request must be reported with {@link #onSuccess()}
+     * or {@link #onFailure(String)}.
+     *
+     * @return {@code true} if the request may be sent, {@code false} if it
+     * shall fail right away
+     */
+    synchronized boolean tryAcquire() {
+        final long now = clock.getAsLong();
+        switch (state) {
+            case OPEN:
+                if (now - openedAt < openDuration) {
+                    return false;
+                }
+                transition(State.HALF_OPEN, Messages.CircuitBreaker_Probe());
+                probeStartedAt = now;
+                return true;
+            case HALF_OPEN:
+                // a probe whose outcome was never reported must not keep the breaker half open forever
+                if (now - probeStartedAt < openDuration) {
+                    return false;
+                }
+                probeStartedAt = now;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Gives back what {@link #tryAcquire()} granted if no request was sent
+     * after all, e.g. because the artifact to upload could not be read. A
+     * probe is let through right away again then instead of after its
+     * timeout.
+     */
+    synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            probeStartedAt = clock.getAsLong() - openDuration;
+        }
+    }
+
+    /**
+     * reports that DT answered
+     */
+    synchronized void onSuccess() {
+        failures = 0;
+        if (state != State.CLOSED) {
+            transition(State.CLOSED, Messages.CircuitBreaker_Recovered());
+        }
+    }
+
+    /**
+     * reports that DT could not be reached or answered with a server error
+     *
+     * @param reason what went wrong
+     */
+    synchronized void onFailure(final String reason) {
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            openedAt = clock.getAsLong();
+            transition(State.OPEN, Messages.CircuitBreaker_Failures(failures, reason));
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return the number of consecutive failures
+     */
+    synchronized int getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the time in milliseconds until the next probe is let through or
+     * {@code 0} if the breaker is closed
+     */
+    synchronized long getRemainingOpenTime() {
+        return state == State.CLOSED ? 0 : Math.max(openDuration - (clock.getAsLong() - (state == State.OPEN ? openedAt : probeStartedAt)), 0);
+    }
+
+    /**
+     * @return the most recent transitions, latest first
+     */
+    synchronized List<Transition> getTransitions() {
+        return new ArrayList<>(transitions);
+    }
+
+    private void transition(final State to, final String reason) {
+        LOGGER.log(to == State.OPEN ? Level.WARNING : Level.INFO, "Dependency-Track at {0}: {1} -> {2} ({3})", new Object[]{url, state, to, reason});
+        transitions.addFirst(new Transition(clock.getAsLong(), state, to, reason));
+        while (transitions.size() > MAX_TRANSITIONS) {
+            transitions.removeLast();
+        }
+        state = to;
+    }
+
+    @Value
+    static class Transition {
+
+        /**
+         * the time in milliseconds since the epoch
+         */
+        private final long time;
+        private final State from;
+        private final State to;
+        private final String reason;
+    }
+}
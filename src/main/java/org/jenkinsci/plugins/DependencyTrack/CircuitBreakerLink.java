@@ -0,0 +1,212 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Api;
+import hudson.model.ManagementLink;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import jenkins.model.Jenkins;
+import lombok.Getter;
+import lombok.Value;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Shows the state of the {@link CircuitBreaker} of every Dependency-Track
+ * server and its recent transitions under "Manage Jenkins", along with the
+ * current limit of its {@link ConcurrencyLimiter} and the measured latencies.
+ * The same data is available as JSON or XML through the remote API.
+ */
+@Extension
+@ExportedBean
+public final class CircuitBreakerLink extends ManagementLink {
+
+    static final String URL_NAME = "dependency-track-servers";
+
+    @Override
+    public String getIconFileName() {
+        return "/plugin/dependency-track/icons/dt-logo-symbol.svg";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.CircuitBreakerLink_DisplayName();
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.CircuitBreakerLink_Description();
+    }
+
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    @NonNull
+    @Override
+    public Category getCategory() {
+        return Category.STATUS;
+    }
+
+    /**
+     * the page itself is restricted to administrators, so is its remote API
+     */
+    public Api getApi() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        return new Api(this);
+    }
+
+    /**
+     * @return the servers contacted since the start of Jenkins
+     */
+    @Exported
+    public List<Server> getServers() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        final UploadScheduler scheduler = UploadScheduler.get();
+        final UploadOutbox outbox = UploadOutbox.get();
+        return CircuitBreaker.getAll().stream()
+                .map(breaker -> {
+                    final String url = breaker.getUrl();
+                    final ConcurrencyLimiter limiter = ConcurrencyLimiter.find(url);
+                    return new Server(url, breaker.getState().name(), breaker.getFailures(),
+                            PollingSchedule.formatSeconds(breaker.getRemainingOpenTime()),
+                            breaker.getTransitions().stream()
+                                    .map(t -> new Transition(t.getTime(), t.getFrom().name(), t.getTo().name(), t.getReason()))
+                                    .collect(Collectors.toList()),
+                            limiter != null ? limiter.getLimit() : ConcurrencyLimiter.INITIAL_LIMIT,
+                            scheduler.getRunningCount(url), scheduler.getWaitingCount(url), outbox.getQueuedCount(url),
+                            limiter != null ? limiter.getLastDecreaseReason() : null,
+                            limiter != null
+                                    ? limiter.getLatencies().entrySet().stream()
+                                            .map(e -> new Latency(e.getKey(), e.getValue().getBaseline(), e.getValue().getAverage(), e.getValue().getLast(), e.getValue().getSamples()))
+                                            .collect(Collectors.toList())
+                                    : Collections.emptyList());
+                })
+                .collect(Collectors.toList());
+    }
+
+    @Value
+    @ExportedBean(defaultVisibility = 2)
+    public static class Server {
+
+        @Getter(onMethod_ = {@Exported})
+        private final String url;
+
+        @Getter(onMethod_ = {@Exported})
+        private final String state;
+
+        /**
+         * the number of consecutive failures
+         */
+        @Getter(onMethod_ = {@Exported})
+        private final int failures;
+
+        /**
+         * the seconds until the next request is let through, if not closed
+         */
+        @Getter(onMethod_ = {@Exported})
+        private final String remainingOpenTime;
+
+        /**
+         * latest first
+         */
+        @Getter(onMethod_ = {@Exported})
+        private final List<Transition> transitions;
+
+        /**
+         * the number of concurrent uploads currently allowed
+         */
+        @Getter(onMethod_ = {@Exported})
+        private final int limit;
+
+        @Getter(onMethod_ = {@Exported})
+        private final int runningUploads;
+
+        @Getter(onMethod_ = {@Exported})
+        private final int waitingUploads;
+
+        /**
+         * the number of uploads in the {@link UploadOutbox}
+         */
+        @Getter(onMethod_ = {@Exported})
+        private final int queuedUploads;
+
+        /**
+         * why the limit was decreased the last time, if ever
+         */
+        @Getter(onMethod_ = {@Exported})
+        private final String lastDecreaseReason;
+
+        /**
+         * by endpoint
+         */
+        @Getter(onMethod_ = {@Exported})
+        private final List<Latency> latencies;
+    }
+
+    @Value
+    @ExportedBean(defaultVisibility = 3)
+    public static class Transition {
+
+        /**
+         * the time in milliseconds since the epoch
+         */
+        @Getter(onMethod_ = {@Exported})
+        private final long time;
+
+        @Getter(onMethod_ = {@Exported})
+        private final String from;
+
+        @Getter(onMethod_ = {@Exported})
+        private final String to;
+
+        @Getter(onMethod_ = {@Exported})
+        private final String reason;
+
+        public Date getDate() {
+            return new Date(time);
+        }
+    }
+
+    /**
+     * the latencies of an endpoint in milliseconds
+     */
+    @Value
+    @ExportedBean(defaultVisibility = 3)
+    public static class Latency {
+
+        @Getter(onMethod_ = {@Exported})
+        private final String endpoint;
+
+        @Getter(onMethod_ = {@Exported})
+        private final long baseline;
+
+        @Getter(onMethod_ = {@Exported})
+        private final long average;
+
+        @Getter(onMethod_ = {@Exported})
+        private final long last;
+
+        @Getter(onMethod_ = {@Exported})
+        private final long samples;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Adapts the number of concurrent uploads to a DT instance to how well it
+ * copes with the current load (additive increase, multiplicative decrease).
+ * <p>
+ * Every answer of DT raises the limit a little, so that it grows by about one
+ * for every {@code limit} answers. The limit is cut by a quarter if DT fails,
+ * answers with 429 or a server error, or if it answers notably slower than
+ * usual. Both the latest latency and its moving average are compared per
+ * endpoint against the fastest answers seen recently. The latency is measured
+ * up to the response headers, so that the size of the response does not
+ * matter. Uploads are not measured at all, as their latency depends on the
+ * size of the BOM.
+ * <p>
+ * The limit stays between 1 and the configured maximum. There is one limiter
+ * per base url, shared by all clients.
+ */
+final class ConcurrencyLimiter {
+
+    /**
+     * the limit before anything was observed
+     */
+    static final int INITIAL_LIMIT = 2;
+
+    /**
+     * the factor the limit is multiplied with if DT is overloaded
+     */
+    static final double BACKOFF_RATIO = 0.75;
+
+    /**
+     * how many times slower than the baseline DT may answer before it is
+     * considered to be overloaded
+     */
+    static final double LATENCY_TOLERANCE = 2;
+
+    /**
+     * the minimum increase of the latency in milliseconds before DT is
+     * considered to be overloaded, so that small absolute variations of
+     * quick answers do not count
+     */
+    static final long MIN_LATENCY_INCREASE = 50;
+
+    /**
+     * the minimum time in milliseconds between two decreases, so that a burst
+     * of slow answers or failures caused by the same overload only counts once
+     */
+    static final long DECREASE_INTERVAL = 1000;
+
+    /**
+     * weight of a new sample in the moving average of the latency
+     */
+    private static final double SMOOTHING = 0.3;
+
+    /**
+     * how fast the baseline follows latencies that are above it. It follows
+     * lower latencies right away.
+     */
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private static final Logger LOGGER = Logger.getLogger(ConcurrencyLimiter.class.getName());
+
+    private static final ConcurrentMap<String, ConcurrencyLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    /**
+     * the base url of the DT instance
+     */
+    @Getter
+    private final String url;
+
+    /**
+     * the current time in milliseconds
+     */
+    private final LongSupplier clock;
+
+    // guarded by this
+    private double limit = INITIAL_LIMIT;
+    private int maxLimit = Integer.MAX_VALUE;
+    private long lastDecrease = -DECREASE_INTERVAL;
+    private String lastDecreaseReason;
+    private final Map<String, Latency> latencies = new TreeMap<>();
+
+    ConcurrencyLimiter(@NonNull final String url, @NonNull final LongSupplier clock) {
+        this.url = url;
+        this.clock = clock;
+    }
+
+    /**
+     * @param url the base url of the DT instance
+     * @return the limiter shared by all clients of that instance
+     */
+    static ConcurrencyLimiter forUrl(@NonNull final String url) {
+        return LIMITERS.computeIfAbsent(url, u -> new ConcurrencyLimiter(u, System::currentTimeMillis));
+    }
+
+    /**
+     * @param url the base url of the DT instance
+     * @return the limiter of that instance or {@code null} if it was not
+     * contacted since the start of Jenkins
+     */
+    @CheckForNull
+    static ConcurrencyLimiter find(@NonNull final String url) {
+        return LIMITERS.get(url);
+    }
+
+    /**
+     * @return the number of concurrent uploads currently allowed
+     */
+    synchronized int getLimit() {
+        return Math.min((int) limit, maxLimit);
+    }
+
+    /**
+     * @param maxLimit the upper bound of the limit as configured
+     */
+    synchronized void setMaxLimit(final int maxLimit) {
+        this.maxLimit = Math.max(maxLimit, 1);
+        limit = Math.min(limit, this.maxLimit);
+    }
+
+    /**
+     * reports that DT answered
+     *
+     * @param endpoint the endpoint that answered or {@code null} if its
+     * latency does not tell anything about the load of DT
+     * @param latency the time in milliseconds until DT answered
+     */
+    synchronized void onSuccess(@CheckForNull final String endpoint, final long latency) {
+        if (endpoint != null) {
+            final Latency current = latencies.computeIfAbsent(endpoint, e -> new Latency(latency));
+            current.add(latency);
+            // the latest answer must be slow, too. otherwise a slow first connection would count as overload until the average caught up.
+            if (current.isSlow(latency) && current.isSlow(current.average)) {
+                decrease(Messages.ConcurrencyLimiter_Slow(endpoint, Math.round(current.average), Math.round(current.baseline)));
+                return;
+            }
+        }
+        // about one more for every full round of requests
+        limit = Math.min(limit + 1 / limit, maxLimit);
+    }
+
+    /**
+     * reports that DT could not be reached or answered with 429 or a server
+     * error
+     *
+     * @param reason what went wrong
+     */
+    synchronized void onFailure(final String reason) {
+        decrease(reason);
+    }
+
+    /**
+     * @return why the limit was decreased the last time or {@code null} if it
+     * never was
+     */
+    @CheckForNull
+    synchronized String getLastDecreaseReason() {
+        return lastDecreaseReason;
+    }
+
+    /**
+     * @return the measured latencies by endpoint
+     */
+    synchronized Map<String, LatencySnapshot> getLatencies() {
+        final Map<String, LatencySnapshot> snapshot = new TreeMap<>();
+        latencies.forEach((endpoint, latency) -> snapshot.put(endpoint,
+                new LatencySnapshot(Math.round(latency.baseline), Math.round(latency.average), latency.last, latency.samples)));
+        return snapshot;
+    }
+
+    private void decrease(final String reason) {
+        final long now = clock.getAsLong();
+        if (now - lastDecrease < DECREASE_INTERVAL) {
+            return;
+        }
+        lastDecrease = now;
+        lastDecreaseReason = reason;
+        final int previous = getLimit();
+        limit = Math.max(Math.min(limit, maxLimit) * BACKOFF_RATIO, 1);
+        LOGGER.log(Level.FINE, "Dependency-Track at {0}: concurrent uploads limited from {1} to {2} ({3})", new Object[]{url, previous, getLimit(), reason});
+    }
+
+    private static final class Latency {
+
+        private double baseline;
+        private double average;
+        private long last;
+        private long samples;
+
+        private Latency(final long first) {
+            baseline = first;
+            average = first;
+        }
+
+        private void add(final long latency) {
+            last = latency;
+            samples++;
+            average += SMOOTHING * (latency - average);
+            baseline = latency < baseline ? latency : baseline + BASELINE_DRIFT * (latency - baseline);
+        }
+
+        private boolean isSlow(final double latency) {
+            return latency > baseline * LATENCY_TOLERANCE && latency - baseline > MIN_LATENCY_INCREASE;
+        }
+    }
+
+    @Value
+    static class LatencySnapshot {
+
+        /**
+         * the typical latency in milliseconds of an unloaded DT
+         */
+        private final long baseline;
+
+        /**
+         * the moving average of the latency in milliseconds
+         */
+        private final long average;
+
+        /**
+         * the latest latency in milliseconds
+         */
+        private final long last;
+
+        /**
+         * the number of measured requests
+         */
+        private final long samples;
+    }
+}
@@ -16,28 +16,50 @@
 package org.jenkinsci.plugins.DependencyTrack;
 
 import com.cloudbees.plugins.credentials.CredentialsProvider;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import hudson.AbortException;
 import hudson.FilePath;
+import hudson.Functions;
 import hudson.Launcher;
+import hudson.model.Computer;
 import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.tasks.BuildStepMonitor;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.EnvVars;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamedThreadFactory;
 import hudson.util.Secret;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import jenkins.slaves.WorkspaceList;
 import jenkins.tasks.SimpleBuildStep;
 import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.Value;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.DependencyTrack.model.Finding;
+import org.jenkinsci.plugins.DependencyTrack.model.ProjectMetrics;
 import org.jenkinsci.plugins.DependencyTrack.model.RiskGate;
+import org.jenkinsci.plugins.DependencyTrack.model.Severity;
 import org.jenkinsci.plugins.DependencyTrack.model.SeverityDistribution;
 import org.jenkinsci.plugins.DependencyTrack.model.UploadResult;
 import org.jenkinsci.plugins.DependencyTrack.model.Vulnerability;
@@ -45,13 +67,48 @@ import org.jenkinsci.plugins.plaincredentials.StringCredentials;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 
+import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+
 @Getter
 @Setter(onMethod_ = {@DataBoundSetter})
 @EqualsAndHashCode(callSuper = true)
-public final class DependencyTrackPublisher extends ThresholdCapablePublisher implements SimpleBuildStep, Serializable {
+public final class DependencyTrackPublisher extends ThresholdCapablePublisher implements SimpleBuildStep, Serializable, Cloneable {
 
     private static final long serialVersionUID = 480115440498217963L;
 
+    /**
+     * the number of previous builds to look at for estimating the processing
+     * time of the BOM
+     */
+    private static final int MAX_BUILDS_FOR_ESTIMATE = 10;
+
+    /**
+     * the number of known processing times the estimate is based on
+     */
+    private static final int MAX_SAMPLES_FOR_ESTIMATE = 5;
+
+    /**
+     * the time in milliseconds to wait for a BOM_PROCESSED notification before
+     * falling back to polling
+     */
+    private static final long WEBHOOK_FALLBACK_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * the path of the artifact relative to the workspace, available to the
+     * project name and version if the artifact is a glob pattern
+     */
+    static final String ENV_ARTIFACT = "DT_ARTIFACT";
+
+    /**
+     * the name of the artifact without extension
+     */
+    static final String ENV_ARTIFACT_NAME = "DT_ARTIFACT_NAME";
+
+    /**
+     * the name of the directory the artifact is in
+     */
+    static final String ENV_ARTIFACT_DIR = "DT_ARTIFACT_DIR";
+
     /**
      * the project ID to upload to. This is a per-build config item.
      */
@@ -95,6 +152,73 @@ public final class DependencyTrackPublisher extends ThresholdCapablePublisher im
      */
     private Boolean autoCreateProjects;
 
+    /**
+     * Specifies whether the artifact shall be uploaded directly from the agent
+     * that holds the workspace instead of from the controller. This is a
+     * per-build config item.
+     */
+    private boolean uploadFromAgent;
+
+    /**
+     * the priority of the upload if uploads to Dependency-Track have to wait.
+     * {@code null} means {@link UploadPriority#NORMAL}. This is a per-build
+     * config item.
+     */
+    private UploadPriority uploadPriority;
+
+    /**
+     * Specifies whether the upload shall be skipped if the artifact is the
+     * same as the one published by the previous build. This is a per-build
+     * config item.
+     */
+    private boolean skipUnchangedBom;
+
+    /**
+     * Specifies whether the findings shall be fetched from Dependency-Track
+     * again if the upload was skipped, instead of taking those of the previous
+     * build. This is a per-build config item.
+     */
+    private boolean refreshFindings;
+
+    /**
+     * Specifies whether an upload that failed in asynchronous mode shall be
+     * stored in the {@link UploadOutbox} and attempted again later instead of
+     * failing the build. This is a per-build config item.
+     */
+    private boolean queueFailedUploads;
+
+    /**
+     * Specifies whether all artifacts matching the artifact pattern shall be
+     * merged into one BOM and uploaded to the configured project, instead of
+     * uploading each of them to its own project. This is a per-build config
+     * item.
+     */
+    private boolean mergeArtifacts;
+
+    /**
+     * Specifies whether the BOM shall be validated on the agent before it is
+     * uploaded, so that a malformed BOM fails the build without being
+     * transferred. This is a per-build config item.
+     *
+     * @see BomValidator
+     */
+    private boolean validateBom;
+
+    /**
+     * the paths of the elements to remove from the BOM before it is uploaded,
+     * separated by commas or whitespace. This is a per-build config item.
+     *
+     * @see BomSlimmer
+     */
+    private String removeFromBom;
+
+    /**
+     * Specifies whether only the current metrics of the project shall be
+     * fetched to evaluate the thresholds, instead of all of its findings. This
+     * is a per-build config item.
+     */
+    private boolean metricsOnly;
+
     @Getter(AccessLevel.NONE)
     @Setter(AccessLevel.NONE)
     private transient ApiClientFactory clientFactory;
@@ -131,90 +255,825 @@ public final class DependencyTrackPublisher extends ThresholdCapablePublisher im
      */
     @Override
     public void perform(@NonNull Run<?, ?> run, @NonNull FilePath workspace, @NonNull EnvVars env, @NonNull Launcher launcher, @NonNull TaskListener listener) throws InterruptedException, IOException {
+        final ConsoleLogger logger = new ConsoleLogger(listener.getLogger());
+        final StageTimings timings = new StageTimings();
+        try {
+            perform(run, workspace, env, listener, logger, timings);
+        } finally {
+            timings.log(logger);
+        }
+    }
+
+    /**
+     * Runs the stages of the step. Stages that do not depend on each other
+     * run concurrently: the connection to Dependency-Track is set up and the
+     * previous builds are loaded while the artifacts are read and uploaded,
+     * and the ids of the projects are looked up while Dependency-Track
+     * processes the BOMs.
+     */
+    private void perform(final Run<?, ?> run, final FilePath workspace, final EnvVars env, final TaskListener listener, final ConsoleLogger logger, final StageTimings timings) throws InterruptedException, IOException {
+        // the credentials are resolved and tracked on the build thread
+        final ApiClient apiClient = createApiClient(run, logger);
+        final CompletableFuture<Void> connect = uploadFromAgent
+                ? CompletableFuture.completedFuture(null)
+                : timings.runAsync(Messages.Builder_Stage_Connect(), apiClient::warmUp, Computer.threadPoolForRemoting);
+        try {
+            perform(run, workspace, env, listener, logger, timings, apiClient);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            // nothing follows that could use the connection
+            connect.cancel(true);
+            throw e;
+        }
+        // the step must not leave anything running behind
+        timings.await(Messages.Builder_Stage_Connect(), connect);
+    }
+
+    private void perform(final Run<?, ?> run, final FilePath workspace, final EnvVars env, final TaskListener listener, final ConsoleLogger logger, final StageTimings timings, final ApiClient apiClient) throws InterruptedException, IOException {
+        final CompletableFuture<Void> previousBuilds = synchronous
+                ? timings.runAsync(Messages.Builder_Stage_PreviousBuilds(), () -> loadPreviousBuilds(run), Computer.threadPoolForRemoting)
+                : CompletableFuture.completedFuture(null);
+        final List<UploadedBom> boms;
+        try (StageTimings.Stage stage = timings.start(Messages.Builder_Stage_Upload())) {
+            boms = uploadBoms(run, workspace, env, listener);
+        }
+        if (synchronous && boms.size() == 1 && boms.get(0).isUnchanged()) {
+            timings.await(Messages.Builder_Stage_PreviousBuilds(), previousBuilds);
+            try (StageTimings.Stage stage = timings.start(Messages.Builder_Stage_Findings())) {
+                publishUnchangedResult(logger, run, boms.get(0));
+            }
+        } else if (synchronous && boms.stream().anyMatch(UploadedBom::hasToken)) {
+            final CompletableFuture<Void> projectIds = timings.runAsync(Messages.Builder_Stage_ProjectLookup(),
+                    () -> lookupProjectIds(logger, apiClient, boms, run), Computer.threadPoolForRemoting);
+            final long processingTime;
+            try (StageTimings.Stage stage = timings.start(Messages.Builder_Stage_Processing())) {
+                processingTime = waitForProcessing(logger, apiClient, boms, run);
+            }
+            timings.await(Messages.Builder_Stage_PreviousBuilds(), previousBuilds);
+            timings.await(Messages.Builder_Stage_ProjectLookup(), projectIds);
+            try (StageTimings.Stage stage = timings.start(Messages.Builder_Stage_Findings())) {
+                publishAnalysisResults(logger, apiClient, run, boms, processingTime);
+            }
+        }
+    }
+
+    /**
+     * Uploads the artifacts to Dependency-Track. If the artifact is a glob
+     * pattern, all matching files are uploaded in parallel, each to the
+     * project that the name and version resolve to for that file, or merged
+     * into one BOM if enabled. Otherwise see
+     * {@link #uploadBom(Run, FilePath, EnvVars, TaskListener)}.
+     *
+     * @param run a build this is running as a part of
+     * @param workspace a workspace to use for any file operations
+     * @param env environment variables applicable to this step
+     * @param listener a place to send output
+     * @return the effective project names and versions and the tokens of the
+     * uploads
+     * @throws InterruptedException if the step is interrupted
+     * @throws IOException if something goes wrong
+     */
+    @NonNull
+    List<UploadedBom> uploadBoms(@NonNull Run<?, ?> run, @NonNull FilePath workspace, @NonNull EnvVars env, @NonNull TaskListener listener) throws InterruptedException, IOException {
+        final String effectiveArtifact = env.expand(artifact);
+        if (!isPattern(effectiveArtifact)) {
+            return Collections.singletonList(uploadBom(run, workspace, env, listener));
+        }
+        if (mergeArtifacts) {
+            return Collections.singletonList(uploadMergedBom(run, workspace, env, listener, effectiveArtifact));
+        }
+        final ConsoleLogger logger = new ConsoleLogger(listener.getLogger());
+        if (StringUtils.isNotBlank(projectId)) {
+            logger.log(Messages.Builder_Artifacts_ProjectId());
+            throw new AbortException(Messages.Builder_Artifacts_ProjectId());
+        }
+        final FilePath[] files = workspace.list(effectiveArtifact);
+        if (files.length == 0) {
+            logger.log(Messages.Builder_Artifact_NonExist(effectiveArtifact));
+            throw new AbortException(Messages.Builder_Artifact_NonExist(effectiveArtifact));
+        }
+        logger.log(Messages.Builder_Artifacts_Found(files.length, effectiveArtifact));
+
+        final Map<List<String>, String> projects = new HashMap<>();
+        final List<Callable<UploadedBom>> uploads = new ArrayList<>();
+        for (FilePath file : files) {
+            final String relativePath = file.getRemote().substring(workspace.getRemote().length() + 1);
+            final EnvVars artifactEnv = new EnvVars(env);
+            artifactEnv.put(ENV_ARTIFACT, relativePath);
+            artifactEnv.put(ENV_ARTIFACT_NAME, file.getBaseName());
+            artifactEnv.put(ENV_ARTIFACT_DIR, Optional.ofNullable(file.getParent()).map(FilePath::getName).orElse(StringUtils.EMPTY));
+            final String effectiveProjectName = artifactEnv.expand(projectName);
+            final String effectiveProjectVersion = artifactEnv.expand(projectVersion);
+            if (StringUtils.isBlank(effectiveProjectName) || StringUtils.isBlank(effectiveProjectVersion)) {
+                logger.log(Messages.Builder_Result_InvalidArguments());
+                throw new AbortException(Messages.Builder_Result_InvalidArguments());
+            }
+            // DT would process them one after the other and only keep the last one
+            final String other = projects.putIfAbsent(Arrays.asList(effectiveProjectName, effectiveProjectVersion), relativePath);
+            if (other != null) {
+                logger.log(Messages.Builder_Artifacts_SameProject(other, relativePath, effectiveProjectName, effectiveProjectVersion));
+                throw new AbortException(Messages.Builder_Artifacts_SameProject(other, relativePath, effectiveProjectName, effectiveProjectVersion));
+            }
+            uploads.add(() -> {
+                logger.log(Messages.Builder_Artifacts_Publishing(relativePath, effectiveProjectName, effectiveProjectVersion));
+                return uploadArtifact(run, workspace, listener, logger, file, effectiveProjectName, effectiveProjectVersion, false);
+            });
+        }
+
+        // the upload scheduler limits the concurrent uploads to DT anyway. this only limits the threads.
+        final ExecutorService uploader = Executors.newFixedThreadPool(Math.min(files.length, descriptor.getDependencyTrackMaxConcurrentUploads()),
+                new NamedThreadFactory(new DaemonThreadFactory(), "Dependency-Track uploads of " + run.getExternalizableId()));
+        try {
+            final List<UploadedBom> boms = new ArrayList<>();
+            for (Future<UploadedBom> upload : uploader.invokeAll(uploads)) {
+                try {
+                    boms.add(upload.get());
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IOException(cause);
+                }
+            }
+            return boms;
+        } finally {
+            uploader.shutdownNow();
+        }
+    }
+
+    /**
+     * Merges the artifacts matching the pattern into one BOM on the agent and
+     * uploads it like a single artifact.
+     *
+     * @see BomMerger
+     */
+    private UploadedBom uploadMergedBom(final Run<?, ?> run, final FilePath workspace, final EnvVars env, final TaskListener listener, final String effectiveArtifact) throws InterruptedException, IOException {
         final ConsoleLogger logger = new ConsoleLogger(listener.getLogger());
         final String effectiveProjectName = env.expand(projectName);
         final String effectiveProjectVersion = env.expand(projectVersion);
-        final String effectiveArtifact = env.expand(artifact);
+        checkProject(logger, effectiveProjectName, effectiveProjectVersion);
+        final FilePath[] files = workspace.list(effectiveArtifact);
+        if (files.length == 0) {
+            logger.log(Messages.Builder_Artifact_NonExist(effectiveArtifact));
+            throw new AbortException(Messages.Builder_Artifact_NonExist(effectiveArtifact));
+        }
+        logger.log(Messages.Builder_Artifacts_Found(files.length, effectiveArtifact));
+        // sorted, so that the merged BOM stays the same as long as the artifacts do
+        final List<String> paths = Arrays.stream(files).map(FilePath::getRemote).sorted().collect(Collectors.toList());
 
-        if (StringUtils.isBlank(effectiveArtifact)) {
-            logger.log(Messages.Builder_Artifact_Unspecified());
-            throw new AbortException(Messages.Builder_Artifact_Unspecified());
+        final FilePath tempDir = WorkspaceList.tempDir(workspace);
+        tempDir.mkdirs();
+        final FilePath mergedBom = tempDir.createTempFile("bom", ".xml");
+        try {
+            final BomMerger.Result result = mergedBom.act(new BomMerger(paths));
+            logger.log(Messages.Builder_Artifacts_Merged(result.getBoms(), result.getComponents(), result.getDuplicates()));
+            return uploadArtifact(run, workspace, listener, logger, mergedBom, effectiveProjectName, effectiveProjectVersion, true);
+        } finally {
+            mergedBom.delete();
         }
+    }
+
+    /**
+     * @return whether the artifact is a glob pattern or a list of artifacts
+     */
+    private static boolean isPattern(final String artifact) {
+        return StringUtils.containsAny(artifact, "*?,");
+    }
+
+    /**
+     * aborts if neither a project id nor a project name and version are given
+     */
+    private void checkProject(final ConsoleLogger logger, final String effectiveProjectName, final String effectiveProjectVersion) throws AbortException {
         if (StringUtils.isBlank(projectId) && (StringUtils.isBlank(effectiveProjectName) || StringUtils.isBlank(effectiveProjectVersion))) {
             logger.log(Messages.Builder_Result_InvalidArguments());
             throw new AbortException(Messages.Builder_Result_InvalidArguments());
         }
+    }
+
+    /**
+     * Uploads the artifact to Dependency-Track and adds a
+     * {@link ResultLinkAction} to the run. The upload is skipped if enabled and
+     * the artifact is the same as the one of the previous build.
+     *
+     * @param run a build this is running as a part of
+     * @param workspace a workspace to use for any file operations
+     * @param env environment variables applicable to this step
+     * @param listener a place to send output
+     * @return the effective project name and version and the token of the
+     * upload
+     * @throws InterruptedException if the step is interrupted
+     * @throws IOException if something goes wrong
+     */
+    @NonNull
+    UploadedBom uploadBom(@NonNull Run<?, ?> run, @NonNull FilePath workspace, @NonNull EnvVars env, @NonNull TaskListener listener) throws InterruptedException, IOException {
+        final ConsoleLogger logger = new ConsoleLogger(listener.getLogger());
+        final String effectiveProjectName = env.expand(projectName);
+        final String effectiveProjectVersion = env.expand(projectVersion);
+        final String effectiveArtifact = env.expand(artifact);
+
+        if (StringUtils.isBlank(effectiveArtifact)) {
+            logger.log(Messages.Builder_Artifact_Unspecified());
+            throw new AbortException(Messages.Builder_Artifact_Unspecified());
+        }
+        checkProject(logger, effectiveProjectName, effectiveProjectVersion);
 
         final FilePath artifactFilePath = new FilePath(workspace, effectiveArtifact);
         if (!artifactFilePath.exists()) {
             logger.log(Messages.Builder_Artifact_NonExist(effectiveArtifact));
             throw new AbortException(Messages.Builder_Artifact_NonExist(effectiveArtifact));
         }
+        return uploadArtifact(run, workspace, listener, logger, artifactFilePath, effectiveProjectName, effectiveProjectVersion, true);
+    }
 
+    /**
+     * uploads one artifact
+     *
+     * @param single whether the artifact is the only one of the build. Only
+     * then the upload of an unchanged artifact is skipped and a
+     * {@link ResultLinkAction} is added, as there is only one per run.
+     */
+    private UploadedBom uploadArtifact(final Run<?, ?> run, final FilePath workspace, final TaskListener listener, final ConsoleLogger logger, final FilePath artifactFilePath,
+            final String effectiveProjectName, final String effectiveProjectVersion, final boolean single) throws IOException, InterruptedException {
         final String effectiveUrl = getEffectiveUrl();
+        final List<String> removedElements = BomSlimmer.parsePaths(removeFromBom);
+        // hashed where the artifact is, so that the content does not pass the remoting channel
+        final String bomHash = skipUnchangedBom && single ? artifactFilePath.act(new BomDigest(removedElements)) : null;
+        if (bomHash != null) {
+            final Run<?, ?> unchangedBuild = findBuildWithSameBom(run, effectiveUrl, effectiveProjectName, effectiveProjectVersion, bomHash);
+            if (unchangedBuild != null) {
+                logger.log(Messages.Builder_Bom_Unchanged(unchangedBuild.getNumber(), bomHash));
+                final ResultLinkAction previousLink = unchangedBuild.getAction(ResultLinkAction.class);
+                addLinkAction(run, effectiveUrl, previousLink.getProjectId(), effectiveProjectName, effectiveProjectVersion, bomHash);
+                return new UploadedBom(effectiveProjectName, effectiveProjectVersion, null, true);
+            }
+        }
+
+        if (validateBom) {
+            validateBom(logger, artifactFilePath);
+        }
+        if (removedElements.isEmpty()) {
+            return publishArtifact(run, listener, logger, artifactFilePath, effectiveUrl, effectiveProjectName, effectiveProjectVersion, bomHash, single);
+        }
+        final FilePath slimmedBom = slimBom(workspace, logger, artifactFilePath, removedElements);
+        try {
+            return publishArtifact(run, listener, logger, slimmedBom, effectiveUrl, effectiveProjectName, effectiveProjectVersion, bomHash, single);
+        } finally {
+            slimmedBom.delete();
+        }
+    }
+
+    /**
+     * validates the artifact on the machine it is located on
+     *
+     * @throws AbortException if the artifact is not a valid BOM
+     */
+    private static void validateBom(final ConsoleLogger logger, final FilePath artifactFilePath) throws IOException, InterruptedException {
+        final BomValidator.Result result = artifactFilePath.act(new BomValidator());
+        if (!result.isValid()) {
+            // the positions are not formatted as numbers, line 1,234 would be confusing
+            final String message = Messages.Builder_Bom_Invalid(artifactFilePath.getName(), String.valueOf(result.getLine()), String.valueOf(result.getColumn()), result.getError());
+            logger.log(message);
+            throw new AbortException(message);
+        }
+        logger.log(Messages.Builder_Bom_Valid(result.getSpecVersion(), result.getFormat(), result.getComponents()));
+    }
+
+    /**
+     * removes the configured elements from the artifact on the machine it is
+     * located on
+     *
+     * @return a temporary file with the slimmed artifact
+     */
+    private FilePath slimBom(final FilePath workspace, final ConsoleLogger logger, final FilePath artifactFilePath, final List<String> removedElements) throws IOException, InterruptedException {
+        final FilePath tempDir = WorkspaceList.tempDir(workspace);
+        tempDir.mkdirs();
+        // keeps the name of the artifact, as it is part of the upload
+        final FilePath slimmedBom = tempDir.createTempFile("bom", "-" + artifactFilePath.getName());
+        try {
+            final BomSlimmer.Result result = slimmedBom.act(new BomSlimmer(artifactFilePath.getRemote(), removedElements));
+            final long saved = result.getOriginalSize() > 0 ? 100 * (result.getOriginalSize() - result.getSize()) / result.getOriginalSize() : 0;
+            logger.log(Messages.Builder_Bom_Slimmed(result.getRemoved(), Functions.humanReadableByteSize(result.getOriginalSize()),
+                    Functions.humanReadableByteSize(result.getSize()), saved));
+            return slimmedBom;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            slimmedBom.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * uploads the artifact and records the result
+     */
+    private UploadedBom publishArtifact(final Run<?, ?> run, final TaskListener listener, final ConsoleLogger logger, final FilePath artifactFilePath,
+            final String effectiveUrl, final String effectiveProjectName, final String effectiveProjectVersion, final String bomHash, final boolean single) throws IOException, InterruptedException {
         final String effectiveApiKey = getEffectiveApiKey(run);
         logger.log(Messages.Builder_Publishing(effectiveUrl));
-        final ApiClient apiClient = clientFactory.create(effectiveUrl, effectiveApiKey, logger, descriptor.getDependencyTrackConnectionTimeout(), descriptor.getDependencyTrackReadTimeout());
-        final UploadResult uploadResult = apiClient.upload(projectId, effectiveProjectName, effectiveProjectVersion,
-                artifactFilePath, isEffectiveAutoCreateProjects());
+        // nothing in this build depends on the upload
+        final boolean queueable = !synchronous && queueFailedUploads;
+        UploadResult uploadResult;
+        try (UploadScheduler.Permit permit = UploadScheduler.get().acquire(effectiveUrl, descriptor.getDependencyTrackMaxConcurrentUploads(),
+                getEffectiveUploadPriority(), run.getParent().getParent().getFullName(), logger)) {
+            uploadResult = upload(run, listener, logger, artifactFilePath, effectiveUrl, effectiveApiKey, effectiveProjectName, effectiveProjectVersion);
+        } catch (AbortException e) {
+            throw e;
+        } catch (IOException e) {
+            if (!queueable) {
+                throw e;
+            }
+            // Dependency-Track could not be reached
+            logger.log(Messages.Builder_Error_Processing(artifactFilePath.getRemote(), e.getLocalizedMessage()));
+            uploadResult = new UploadResult(false, null, true);
+        }
 
         if (!uploadResult.isSuccess()) {
+            // a BOM that Dependency-Track rejected would be rejected again
+            if (queueable && uploadResult.isRetryable()) {
+                final String id = queueUpload(run, artifactFilePath, effectiveUrl, effectiveApiKey, effectiveProjectName, effectiveProjectVersion);
+                logger.log(Messages.Builder_Upload_Queued_Outbox(id));
+                if (single) {
+                    addLinkAction(run, effectiveUrl, projectId, effectiveProjectName, effectiveProjectVersion, null);
+                }
+                return new UploadedBom(effectiveProjectName, effectiveProjectVersion, null, false);
+            }
             throw new AbortException(Messages.Builder_Upload_Failed());
         }
 
-        // add ResultLinkAction even if it may not contain a projectId. but we want to store name version for the future.
-        final ResultLinkAction linkAction = new ResultLinkAction(effectiveUrl, projectId);
-        linkAction.setProjectName(effectiveProjectName);
-        linkAction.setProjectVersion(effectiveProjectVersion);
-        run.addOrReplaceAction(linkAction);
+        if (single) {
+            // add ResultLinkAction even if it may not contain a projectId. but we want to store name version for the future.
+            addLinkAction(run, effectiveUrl, projectId, effectiveProjectName, effectiveProjectVersion, bomHash);
+        }
 
         logger.log(Messages.Builder_Success(String.format("%s/projects/%s", effectiveUrl, projectId != null ? projectId : StringUtils.EMPTY)));
+        return new UploadedBom(effectiveProjectName, effectiveProjectVersion, StringUtils.trimToNull(uploadResult.getToken()), false);
+    }
+
+    private String queueUpload(final Run<?, ?> run, final FilePath artifactFilePath, final String effectiveUrl, final String effectiveApiKey,
+            final String effectiveProjectName, final String effectiveProjectVersion) throws IOException, InterruptedException {
+        return UploadOutbox.get().enqueue(artifactFilePath, UploadOutbox.Entry.builder()
+                .url(effectiveUrl)
+                .apiKey(Secret.fromString(effectiveApiKey))
+                .projectId(projectId)
+                .projectName(effectiveProjectName)
+                .projectVersion(effectiveProjectVersion)
+                .autoCreateProject(isEffectiveAutoCreateProjects())
+                .folder(run.getParent().getParent().getFullName())
+                .run(run.getExternalizableId())
+                .build());
+    }
+
+    /**
+     * @return the previous build if it published the same BOM to the same
+     * project, otherwise {@code null}
+     */
+    @CheckForNull
+    private Run<?, ?> findBuildWithSameBom(final Run<?, ?> run, final String effectiveUrl, final String effectiveProjectName, final String effectiveProjectVersion, final String bomHash) {
+        final Run<?, ?> previousBuild = run.getPreviousBuild();
+        final ResultLinkAction previousLink = previousBuild != null ? previousBuild.getAction(ResultLinkAction.class) : null;
+        if (previousLink == null || !bomHash.equals(previousLink.getBomHash()) || !effectiveUrl.equals(previousLink.getDependencyTrackUrl())) {
+            return null;
+        }
+        final boolean sameProject = StringUtils.isNotBlank(projectId)
+                ? projectId.equals(previousLink.getProjectId())
+                : StringUtils.equals(effectiveProjectName, previousLink.getProjectName()) && StringUtils.equals(effectiveProjectVersion, previousLink.getProjectVersion());
+        return sameProject ? previousBuild : null;
+    }
+
+    private static void addLinkAction(final Run<?, ?> run, final String url, final String projectId, final String projectName, final String projectVersion, final String bomHash) {
+        final ResultLinkAction linkAction = new ResultLinkAction(url, projectId);
+        linkAction.setProjectName(projectName);
+        linkAction.setProjectVersion(projectVersion);
+        linkAction.setBomHash(bomHash);
+        run.addOrReplaceAction(linkAction);
+    }
+
+    /**
+     * uploads the artifact from the agent or from the controller
+     */
+    private UploadResult upload(final Run<?, ?> run, final TaskListener listener, final ConsoleLogger logger, final FilePath artifactFilePath,
+            final String effectiveUrl, final String effectiveApiKey, final String effectiveProjectName, final String effectiveProjectVersion) throws IOException, InterruptedException {
+        if (uploadFromAgent) {
+            return RemoteUploader.builder()
+                    .clientFactory(clientFactory)
+                    .listener(listener)
+                    .baseUrl(effectiveUrl)
+                    .apiKey(Secret.fromString(effectiveApiKey))
+                    .connectionTimeout(descriptor.getDependencyTrackConnectionTimeout())
+                    .readTimeout(descriptor.getDependencyTrackReadTimeout())
+                    .compressUploads(descriptor.isDependencyTrackCompressUploads())
+                    .projectId(projectId)
+                    .projectName(effectiveProjectName)
+                    .projectVersion(effectiveProjectVersion)
+                    .autoCreateProject(isEffectiveAutoCreateProjects())
+                    .build()
+                    .upload(artifactFilePath, logger);
+        }
+        return createApiClient(run, logger).upload(projectId, effectiveProjectName, effectiveProjectVersion,
+                artifactFilePath, isEffectiveAutoCreateProjects());
+    }
+
+    /**
+     * @param run needed for credential retrieval
+     * @param logger where the client logs to
+     * @return a client for the effective Dependency-Track server
+     */
+    @NonNull
+    ApiClient createApiClient(@NonNull final Run<?, ?> run, @NonNull final ConsoleLogger logger) {
+        final ApiClient apiClient = clientFactory.create(getEffectiveUrl(), getEffectiveApiKey(run), logger, descriptor.getDependencyTrackConnectionTimeout(), descriptor.getDependencyTrackReadTimeout());
+        apiClient.setCompressUploads(descriptor.isDependencyTrackCompressUploads());
+        apiClient.setMaxRetries(descriptor.getDependencyTrackMaxRetries());
+        return apiClient;
+    }
+
+    /**
+     * blocks until Dependency-Track has processed the BOMs
+     *
+     * @return the time in milliseconds Dependency-Track needed to process the
+     * BOMs
+     */
+    private long waitForProcessing(final ConsoleLogger logger, final ApiClient apiClient, final List<UploadedBom> boms, final Run<?, ?> build) throws InterruptedException, ApiClientException, AbortException {
+        final long start = System.currentTimeMillis();
+        final CompletableFuture<Void> processed = watchAll(logger, apiClient, boms, build, start);
+        try {
+            processed.get();
+        } catch (InterruptedException e) {
+            processed.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof AbortException) {
+                throw (AbortException) cause;
+            }
+            if (cause instanceof ApiClientException) {
+                throw (ApiClientException) cause;
+            }
+            throw new ApiClientException(cause.getLocalizedMessage(), cause);
+        }
+        return System.currentTimeMillis() - start;
+    }
 
-        if (synchronous && StringUtils.isNotBlank(uploadResult.getToken())) {
-            publishAnalysisResult(logger, apiClient, uploadResult.getToken(), run, effectiveProjectName, effectiveProjectVersion);
+    /**
+     * lets {@link TokenPoller} check the tokens of all BOMs that have one
+     *
+     * @param start the time in milliseconds since the epoch when waiting
+     * started
+     * @return a future that is completed when Dependency-Track has processed
+     * all BOMs, or exceptionally as soon as one check fails. Cancelling it
+     * stops all checks.
+     */
+    @NonNull
+    CompletableFuture<Void> watchAll(final ConsoleLogger logger, final ApiClient apiClient, final List<UploadedBom> boms, final Run<?, ?> build, final long start) {
+        final CompletableFuture<Void> all = new CompletableFuture<>();
+        final List<CompletableFuture<Void>> checks = new ArrayList<>();
+        final List<CompletableFuture<Void>> processed = new ArrayList<>();
+        for (UploadedBom bom : boms) {
+            if (!bom.hasToken()) {
+                continue;
+            }
+            final TokenPoller.Watch watch = createWatch(logger, apiClient, bom, build, start);
+            final CompletableFuture<Void> check = TokenPoller.get().watch(watch);
+            checks.add(check);
+            processed.add(check.whenComplete((result, failure) -> {
+                if (failure != null) {
+                    all.completeExceptionally(failure);
+                    return;
+                }
+                final String processingTime = PollingSchedule.formatSeconds(System.currentTimeMillis() - start);
+                logger.log(boms.size() > 1
+                        ? Messages.Builder_Polling_Done_Project(bom.getProjectName(), bom.getProjectVersion(), processingTime, watch.getSchedule().getChecks(), watch.getSchedule())
+                        : Messages.Builder_Polling_Done(processingTime, watch.getSchedule().getChecks(), watch.getSchedule()));
+            }));
         }
+        CompletableFuture.allOf(processed.toArray(new CompletableFuture<?>[0])).thenRun(() -> all.complete(null));
+        all.whenComplete((result, failure) -> {
+            if (failure != null) {
+                checks.forEach(check -> check.cancel(false));
+            }
+        });
+        return all;
     }
 
-    private void publishAnalysisResult(ConsoleLogger logger, final ApiClient apiClient, final String token, final Run<?, ?> build, final String effectiveProjectName, final String effectiveProjectVersion) throws InterruptedException, ApiClientException, AbortException {
-        final long timeout = System.currentTimeMillis() + (60000L * descriptor.getDependencyTrackPollingTimeout());
-        final long interval = 1000L * descriptor.getDependencyTrackPollingInterval();
+    /**
+     * logs how the waiting will be done and describes it for
+     * {@link TokenPoller}
+     *
+     * @param start the time in milliseconds since the epoch when waiting
+     * started
+     * @return what {@link TokenPoller} shall check
+     */
+    @NonNull
+    TokenPoller.Watch createWatch(final ConsoleLogger logger, final ApiClient apiClient, final UploadedBom bom, final Run<?, ?> build, final long start) {
+        final long estimate = estimateProcessingTime(build);
+        final boolean webhookEnabled = descriptor.isDependencyTrackWebhookEnabled();
+        final PollingSchedule schedule = new PollingSchedule(getMaxPollingDelay(), getFirstCheckEstimate(estimate));
         logger.log(Messages.Builder_Polling());
-        Thread.sleep(interval);
-        while (apiClient.isTokenBeingProcessed(token)) {
-            Thread.sleep(interval);
-            if (timeout < System.currentTimeMillis()) {
-                logger.log(Messages.Builder_Polling_Timeout_Exceeded());
-                // XXX this seems like a fatal error
-                throw new AbortException(Messages.Builder_Polling_Timeout_Exceeded());
+        final long firstDelay = schedule.nextDelay();
+        if (webhookEnabled) {
+            logger.log(Messages.Builder_Polling_Webhook(PollingSchedule.formatSeconds(firstDelay)));
+        } else if (estimate > 0) {
+            logger.log(Messages.Builder_Polling_Estimate(PollingSchedule.formatSeconds(estimate), PollingSchedule.formatSeconds(firstDelay)));
+        }
+        return TokenPoller.Watch.builder()
+                .url(getEffectiveUrl())
+                .token(bom.getToken())
+                .projectId(projectId)
+                .projectName(bom.getProjectName())
+                .projectVersion(bom.getProjectVersion())
+                .client(apiClient)
+                .logger(logger)
+                .schedule(schedule)
+                .firstDelay(firstDelay)
+                .deadline(start + getPollingTimeout())
+                .webhookEnabled(webhookEnabled)
+                .build();
+    }
+
+    /**
+     * @param estimate the estimated processing time in milliseconds
+     * @return the time in milliseconds to wait before the first check. With
+     * the webhook enabled, the first check is only a fallback in case the
+     * notification does not arrive.
+     */
+    long getFirstCheckEstimate(final long estimate) {
+        return descriptor.isDependencyTrackWebhookEnabled() ? Math.max(estimate, WEBHOOK_FALLBACK_DELAY) : estimate;
+    }
+
+    /**
+     * @return the maximum time in milliseconds to wait for Dependency-Track to
+     * process the BOM
+     */
+    long getPollingTimeout() {
+        return 60000L * descriptor.getDependencyTrackPollingTimeout();
+    }
+
+    /**
+     * @return the maximum delay in milliseconds between two checks whether
+     * Dependency-Track has processed the BOM
+     */
+    long getMaxPollingDelay() {
+        return 1000L * descriptor.getDependencyTrackPollingInterval();
+    }
+
+    /**
+     * Fetches the findings of the projects, adds them as {@link ResultAction}
+     * to the run and evaluates the thresholds. The findings of several
+     * projects are combined into one {@link ResultAction}.
+     *
+     * @param processingTime the time in milliseconds Dependency-Track needed
+     * to process the BOMs
+     * @throws AbortException if a threshold for failing the build was exceeded
+     */
+    void publishAnalysisResults(final ConsoleLogger logger, final ApiClient apiClient, final Run<?, ?> build, final List<UploadedBom> boms, final long processingTime) throws ApiClientException, AbortException {
+        // metrics calculated before processing started do not include the uploaded BOMs
+        final long processingStart = System.currentTimeMillis() - processingTime;
+        if (boms.size() == 1) {
+            final ProjectFindings projectFindings = fetchFindings(logger, apiClient, build, boms.get(0).getProjectName(), boms.get(0).getProjectVersion(), processingStart);
+            addAnalysisResult(logger, build, getEffectiveUrl(), boms.get(0).getProjectName(), boms.get(0).getProjectVersion(), projectFindings, processingTime);
+            return;
+        }
+        final List<ProjectFindings> projectFindings = new ArrayList<>();
+        for (UploadedBom bom : boms) {
+            projectFindings.add(fetchFindings(logger, apiClient, build, bom.getProjectName(), bom.getProjectVersion(), processingStart));
+        }
+        // there is only one ResultAction per run. it does not belong to a single project then.
+        final SeverityDistribution severityDistribution = addResultAction(build, getEffectiveUrl(), null, projectFindings, processingTime);
+        evaluateRiskGates(build, logger, severityDistribution, getPreviousSeverityDistribution(build));
+    }
+
+    /**
+     * fetches the findings of the project. resolves the id of the project
+     * first if it is not configured.
+     *
+     * @param notBefore the time in milliseconds since the epoch after which
+     * the metrics of the project must have been calculated to be used instead
+     * of the findings
+     */
+    private ProjectFindings fetchFindings(final ConsoleLogger logger, final ApiClient apiClient, final Run<?, ?> build, final String effectiveProjectName, final String effectiveProjectVersion, final long notBefore) throws ApiClientException {
+        final String effectiveUrl = getEffectiveUrl();
+        final ProjectIdCache projectIdCache = descriptor.getProjectIdCache();
+        String effectiveProjectId = projectId;
+        boolean isCachedProjectId = false;
+        if (StringUtils.isBlank(effectiveProjectId)) {
+            // project may have been auto-created. use the uuid known from previous builds or look it up, so that we can get the results
+            effectiveProjectId = projectIdCache.get(effectiveUrl, effectiveProjectName, effectiveProjectVersion, build.getPreviousBuild());
+            isCachedProjectId = effectiveProjectId != null;
+            if (isCachedProjectId) {
+                logger.log(Messages.Builder_Project_Cached(effectiveProjectName, effectiveProjectVersion, effectiveProjectId));
+            } else {
+                effectiveProjectId = lookupProjectId(logger, apiClient, projectIdCache, effectiveUrl, effectiveProjectName, effectiveProjectVersion);
+            }
+        }
+        try {
+            return fetchFindings(logger, apiClient, build, effectiveProjectId, notBefore);
+        } catch (ApiClientException e) {
+            if (!isCachedProjectId || e.getResponseCode() != HTTP_NOT_FOUND) {
+                throw e;
             }
+            // the project was deleted in the meantime and may have been auto-created again with a new uuid
+            logger.log(Messages.Builder_Project_Cached_Invalid(effectiveProjectId));
+            projectIdCache.invalidate(effectiveUrl, effectiveProjectName, effectiveProjectVersion);
+            effectiveProjectId = lookupProjectId(logger, apiClient, projectIdCache, effectiveUrl, effectiveProjectName, effectiveProjectVersion);
+            return fetchFindings(logger, apiClient, build, effectiveProjectId, notBefore);
         }
-        if (StringUtils.isBlank(projectId)) {
-            // project was auto-created. Fetch it's new uuid so that we can look up the results
-            logger.log(Messages.Builder_Project_Lookup(effectiveProjectName, effectiveProjectVersion));
-            projectId = apiClient.lookupProject(effectiveProjectName, effectiveProjectVersion).getUuid();
+    }
+
+    /**
+     * Fetches the findings of the project. If only the metrics shall be
+     * fetched, the severities are counted from the current metrics of the
+     * project instead, unless they were calculated before {@code notBefore}
+     * or not at all. {@code notBefore} is translated to the clock of
+     * Dependency-Track for that comparison.
+     */
+    private ProjectFindings fetchFindings(final ConsoleLogger logger, final ApiClient apiClient, final Run<?, ?> build, final String effectiveProjectId, final long notBefore) throws ApiClientException {
+        if (metricsOnly) {
+            final long requestedAt = System.currentTimeMillis();
+            final ProjectMetrics metrics = apiClient.getCurrentMetrics(effectiveProjectId);
+            if (metrics != null && metrics.getLastOccurrence() >= notBefore + clockOffset(metrics, requestedAt)) {
+                logger.log(Messages.Builder_Metrics_Processing());
+                final SeverityDistribution severityDistribution = new SeverityDistribution(build.getNumber());
+                severityDistribution.add(Severity.CRITICAL, metrics.getCritical());
+                severityDistribution.add(Severity.HIGH, metrics.getHigh());
+                severityDistribution.add(Severity.MEDIUM, metrics.getMedium());
+                severityDistribution.add(Severity.LOW, metrics.getLow());
+                severityDistribution.add(Severity.UNASSIGNED, metrics.getUnassigned());
+                return new ProjectFindings(effectiveProjectId, Collections.emptyList(), severityDistribution, true);
+            }
+            logger.log(Messages.Builder_Metrics_Outdated());
         }
         logger.log(Messages.Builder_Findings_Processing());
-        final List<Finding> findings = apiClient.getFindings(projectId);
+        final List<Finding> findings = apiClient.getFindings(effectiveProjectId);
+        return new ProjectFindings(effectiveProjectId, findings, countSeverities(build, findings), false);
+    }
+
+    /**
+     * The metrics are timestamped by the clock of Dependency-Track, which may
+     * be ahead of or behind the clock of Jenkins. The offset is estimated from
+     * the time Dependency-Track answered with, which has a resolution of a
+     * second only.
+     *
+     * @param metrics the metrics Dependency-Track answered with
+     * @param requestedAt the time in milliseconds since the epoch according
+     * to the clock of Jenkins when the metrics were requested
+     * @return how far the clock of Dependency-Track is ahead of the clock of
+     * Jenkins in milliseconds, {@code 0} if unknown
+     */
+    private static long clockOffset(final ProjectMetrics metrics, final long requestedAt) {
+        return metrics.getServerTime() > 0 ? metrics.getServerTime() - requestedAt : 0;
+    }
+
+    private static SeverityDistribution countSeverities(final Run<?, ?> build, final List<Finding> findings) {
         final SeverityDistribution severityDistribution = new SeverityDistribution(build.getNumber());
         findings.stream().map(Finding::getVulnerability).map(Vulnerability::getSeverity).forEach(severityDistribution::add);
+        return severityDistribution;
+    }
+
+    /**
+     * Publishes the result of a build whose upload was skipped because the BOM
+     * did not change. Takes the findings of the previous build unless
+     * refreshing them is enabled or the previous build has none.
+     *
+     * @throws AbortException if a threshold for failing the build was exceeded
+     */
+    void publishUnchangedResult(final ConsoleLogger logger, final Run<?, ?> build, final UploadedBom bom) throws ApiClientException, AbortException {
+        final Run<?, ?> previousBuild = build.getPreviousBuild();
+        final ResultAction previousResult = previousBuild != null ? previousBuild.getAction(ResultAction.class) : null;
+        if (refreshFindings || previousResult == null) {
+            // Dependency-Track may know of new vulnerabilities of the same components by now. any metrics include the unchanged BOM.
+            final ProjectFindings projectFindings = fetchFindings(logger, createApiClient(build, logger), build, bom.getProjectName(), bom.getProjectVersion(), 0);
+            addAnalysisResult(logger, build, getEffectiveUrl(), bom.getProjectName(), bom.getProjectVersion(), projectFindings, 0);
+            return;
+        }
+        logger.log(Messages.Builder_Findings_Reused(previousBuild.getNumber()));
+        // without the findings, only the counts of the previous build are left
+        final ProjectFindings projectFindings = new ProjectFindings(previousResult.getProjectId(), previousResult.getFindings(),
+                previousResult.isFindingsOmitted() ? previousResult.getSeverityDistribution() : countSeverities(build, previousResult.getFindings()),
+                previousResult.isFindingsOmitted());
+        addAnalysisResult(logger, build, getEffectiveUrl(), bom.getProjectName(), bom.getProjectVersion(), projectFindings, 0);
+    }
+
+    /**
+     * adds the findings as {@link ResultAction} to the run and evaluates the
+     * thresholds
+     */
+    private void addAnalysisResult(final ConsoleLogger logger, final Run<?, ?> build, final String effectiveUrl, final String effectiveProjectName, final String effectiveProjectVersion, final ProjectFindings projectFindings, final long processingTime) throws AbortException {
+        final String effectiveProjectId = projectFindings.getProjectId();
+        final SeverityDistribution severityDistribution = addResultAction(build, effectiveUrl, effectiveProjectId, Collections.singletonList(projectFindings), processingTime);
+
+        // update ResultLinkAction with one that surely contains a projectId. the hash of the BOM must be kept for the next build.
+        final String bomHash = Optional.ofNullable(build.getAction(ResultLinkAction.class)).map(ResultLinkAction::getBomHash).orElse(null);
+        addLinkAction(build, effectiveUrl, effectiveProjectId, effectiveProjectName, effectiveProjectVersion, bomHash);
+
+        evaluateRiskGates(build, logger, severityDistribution, getPreviousSeverityDistribution(build));
+    }
+
+    /**
+     * adds the findings of the projects as {@link ResultAction} to the run
+     *
+     * @param effectiveProjectId the project the findings belong to or
+     * {@code null} if they belong to several projects
+     * @return the distribution of the severities of the findings
+     */
+    private static SeverityDistribution addResultAction(final Run<?, ?> build, final String effectiveUrl, final String effectiveProjectId, final List<ProjectFindings> projectFindings, final long processingTime) {
+        final SeverityDistribution severityDistribution = new SeverityDistribution(build.getNumber());
+        final List<Finding> findings = new ArrayList<>();
+        for (ProjectFindings result : projectFindings) {
+            severityDistribution.add(result.getSeverityDistribution());
+            findings.addAll(result.getFindings());
+        }
         final ResultAction projectAction = new ResultAction(findings, severityDistribution);
-        projectAction.setDependencyTrackUrl(getEffectiveUrl());
-        projectAction.setProjectId(projectId);
+        projectAction.setFindingsOmitted(projectFindings.stream().anyMatch(ProjectFindings::isFindingsOmitted));
+        projectAction.setDependencyTrackUrl(effectiveUrl);
+        projectAction.setProjectId(effectiveProjectId);
+        projectAction.setBomProcessingTime(processingTime);
         build.addOrReplaceAction(projectAction);
+        return severityDistribution;
+    }
 
-        // update ResultLinkAction with one that surely contains a projectId
-        final ResultLinkAction linkAction = new ResultLinkAction(getEffectiveUrl(), projectId);
-        linkAction.setProjectName(effectiveProjectName);
-        linkAction.setProjectVersion(effectiveProjectVersion);
-        build.addOrReplaceAction(linkAction);
-
-        // Get previous results and evaluate to thresholds
-        final SeverityDistribution previousSeverityDistribution = Optional.ofNullable(build.getPreviousBuild())
+    /**
+     * @return the distribution of the severities of the previous build or an
+     * empty one if there is none
+     */
+    private static SeverityDistribution getPreviousSeverityDistribution(final Run<?, ?> build) {
+        return Optional.ofNullable(build.getPreviousBuild())
                 .map(previousBuild -> previousBuild.getAction(ResultAction.class))
                 .map(ResultAction::getSeverityDistribution)
                 .orElse(new SeverityDistribution(0));
+    }
 
-        evaluateRiskGates(build, logger, severityDistribution, previousSeverityDistribution);
+    /**
+     * estimates how long DT will need to process the BOM from the processing
+     * times of the previous builds
+     *
+     * @return the median of the last known processing times in milliseconds
+     * or {@code 0} if there are none
+     */
+    static long estimateProcessingTime(final Run<?, ?> build) {
+        final List<Long> processingTimes = new ArrayList<>();
+        Run<?, ?> previousBuild = build.getPreviousBuild();
+        for (int i = 0; i < MAX_BUILDS_FOR_ESTIMATE && previousBuild != null && processingTimes.size() < MAX_SAMPLES_FOR_ESTIMATE; i++) {
+            Optional.ofNullable(previousBuild.getAction(ResultAction.class))
+                    .map(ResultAction::getBomProcessingTime)
+                    .filter(time -> time > 0)
+                    .ifPresent(processingTimes::add);
+            previousBuild = previousBuild.getPreviousBuild();
+        }
+        if (processingTimes.isEmpty()) {
+            return 0;
+        }
+        Collections.sort(processingTimes);
+        return processingTimes.get(processingTimes.size() / 2);
+    }
+
+    /**
+     * Looks up the ids of the projects that are neither configured nor cached
+     * yet, so that they are cached when the findings are fetched. A project
+     * that is auto-created exists as soon as the upload is accepted. Failures
+     * are ignored, the lookup is repeated and reported when the findings are
+     * fetched.
+     */
+    private void lookupProjectIds(final ConsoleLogger logger, final ApiClient apiClient, final List<UploadedBom> boms, final Run<?, ?> build) {
+        if (StringUtils.isNotBlank(projectId)) {
+            return;
+        }
+        final String effectiveUrl = getEffectiveUrl();
+        final ProjectIdCache projectIdCache = descriptor.getProjectIdCache();
+        for (UploadedBom bom : boms) {
+            if (projectIdCache.get(effectiveUrl, bom.getProjectName(), bom.getProjectVersion(), build.getPreviousBuild()) != null) {
+                continue;
+            }
+            try {
+                lookupProjectId(logger, apiClient, projectIdCache, effectiveUrl, bom.getProjectName(), bom.getProjectVersion());
+            } catch (ApiClientException ignore) {
+                // see above
+            }
+        }
+    }
+
+    /**
+     * loads the previous builds that are read to estimate the processing time
+     * and to evaluate the thresholds. Jenkins loads builds lazily from disk
+     * and keeps them in memory for a while afterwards.
+     */
+    private static void loadPreviousBuilds(final Run<?, ?> build) {
+        estimateProcessingTime(build);
+        getPreviousSeverityDistribution(build);
+    }
+
+    @NonNull
+    private String lookupProjectId(final ConsoleLogger logger, final ApiClient apiClient, final ProjectIdCache projectIdCache, final String url, final String name, final String version) throws ApiClientException {
+        logger.log(Messages.Builder_Project_Lookup(name, version));
+        try {
+            final String uuid = apiClient.lookupProject(name, version).getUuid();
+            projectIdCache.put(url, name, version, uuid);
+            return uuid;
+        } catch (ApiClientException e) {
+            if (e.getResponseCode() == HTTP_NOT_FOUND) {
+                projectIdCache.putMissing(url, name, version);
+            }
+            throw e;
+        }
     }
 
     private void evaluateRiskGates(final Run<?, ?> build, final ConsoleLogger logger, final SeverityDistribution currentDistribution, final SeverityDistribution previousDistribution) throws AbortException {
@@ -264,22 +1123,29 @@ public final class DependencyTrackPublisher extends ThresholdCapablePublisher im
 
     /**
      * deletes values of optional fields if they are not needed/active before
-     * serialization
+     * serialization. They are deleted from a copy, because this publisher may
+     * be in use while it is serialized, e.g. by {@link DependencyTrackStep}.
      *
-     * @return this
+     * @return a copy without the inactive values
      * @throws java.io.ObjectStreamException never
      */
     private Object writeReplace() throws java.io.ObjectStreamException {
+        final DependencyTrackPublisher copy;
+        try {
+            copy = (DependencyTrackPublisher) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
         if (!overrideGlobals) {
-            dependencyTrackUrl = null;
-            dependencyTrackApiKey = null;
-            autoCreateProjects = null;
+            copy.dependencyTrackUrl = null;
+            copy.dependencyTrackApiKey = null;
+            copy.autoCreateProjects = null;
         }
-        if (!isEffectiveAutoCreateProjects()) {
-            projectName = null;
-            projectVersion = null;
+        if (!copy.isEffectiveAutoCreateProjects()) {
+            copy.projectName = null;
+            copy.projectVersion = null;
         }
-        return this;
+        return copy;
     }
 
     /**
@@ -315,4 +1181,77 @@ public final class DependencyTrackPublisher extends ThresholdCapablePublisher im
     public boolean isEffectiveAutoCreateProjects() {
         return Optional.ofNullable(autoCreateProjects).orElse(descriptor.isDependencyTrackAutoCreateProjects());
     }
+
+    /**
+     * @return effective uploadPriority
+     */
+    @NonNull
+    public UploadPriority getEffectiveUploadPriority() {
+        return Optional.ofNullable(uploadPriority).orElse(UploadPriority.NORMAL);
+    }
+
+    /**
+     * the outcome of a successful upload
+     */
+    @Value
+    static class UploadedBom implements Serializable {
+
+        private static final long serialVersionUID = 5040128496730215683L;
+
+        /**
+         * the effective name of the project or {@code null} if the project id
+         * was used
+         */
+        private final String projectName;
+
+        /**
+         * the effective version of the project or {@code null} if the project
+         * id was used
+         */
+        private final String projectVersion;
+
+        /**
+         * the token to check whether Dependency-Track has processed the BOM.
+         * {@code null} if Dependency-Track did not return one.
+         */
+        private final String token;
+
+        /**
+         * whether the upload was skipped because the BOM is the same as the
+         * one of the previous build
+         */
+        private final boolean unchanged;
+
+        /**
+         * @return whether there is a token to wait for
+         */
+        boolean hasToken() {
+            return StringUtils.isNotBlank(token);
+        }
+    }
+
+    /**
+     * the findings of a project
+     */
+    @Value
+    private static class ProjectFindings {
+
+        /**
+         * the uuid of the project
+         */
+        private final String projectId;
+
+        /**
+         * the findings or an empty list if they were omitted
+         */
+        private final List<Finding> findings;
+
+        private final SeverityDistribution severityDistribution;
+
+        /**
+         * whether only the metrics of the project were fetched instead of its
+         * findings
+         */
+        private final boolean findingsOmitted;
+    }
 }
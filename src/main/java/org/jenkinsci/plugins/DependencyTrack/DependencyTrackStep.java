@@ -0,0 +1,449 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import com.google.common.collect.ImmutableSet;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import java.io.Serializable;
+import java.util.Set;
+import jenkins.model.Jenkins;
+import lombok.EqualsAndHashCode;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Pipeline step that publishes a BOM to Dependency-Track like
+ * {@link DependencyTrackPublisher} does. It needs a workspace and thus holds
+ * the executor of the enclosing {@code node}, also while waiting for
+ * Dependency-Track to process the BOM in synchronous mode. In asynchronous
+ * mode, it returns the {@link DependencyTrackUploads}, so that
+ * {@link DependencyTrackWaitStep} can wait for them outside of {@code node}.
+ * <p>
+ * The configuration is the same as of {@link DependencyTrackPublisher}. It is
+ * kept in a publisher that does the actual work, the properties of the step
+ * only delegate to it.
+ */
+@EqualsAndHashCode(callSuper = false)
+public final class DependencyTrackStep extends Step implements Serializable {
+
+    private static final long serialVersionUID = -6478925384518723604L;
+
+    private final DependencyTrackPublisher publisher;
+
+    // Fields in config.jelly must match the parameter names
+    @DataBoundConstructor
+    public DependencyTrackStep(final String artifact, final boolean synchronous) {
+        this(artifact, synchronous, ApiClient::new);
+    }
+
+    DependencyTrackStep(String artifact, boolean synchronous, @lombok.NonNull ApiClientFactory clientFactory) {
+        publisher = new DependencyTrackPublisher(artifact, synchronous, clientFactory);
+    }
+
+    @Override
+    public StepExecution start(final StepContext context) throws Exception {
+        return new DependencyTrackStepExecution(this, context);
+    }
+
+    /**
+     * the publisher that does the work of this step. It is not persisted on
+     * its own, only as part of this step.
+     *
+     * @return the publisher with the configuration of this step
+     */
+    @NonNull
+    DependencyTrackPublisher getPublisher() {
+        return publisher;
+    }
+
+    public String getArtifact() {
+        return publisher.getArtifact();
+    }
+
+    public boolean isSynchronous() {
+        return publisher.isSynchronous();
+    }
+
+    public String getProjectId() {
+        return publisher.getProjectId();
+    }
+
+    @DataBoundSetter
+    public void setProjectId(final String projectId) {
+        publisher.setProjectId(projectId);
+    }
+
+    public String getProjectName() {
+        return publisher.getProjectName();
+    }
+
+    @DataBoundSetter
+    public void setProjectName(final String projectName) {
+        publisher.setProjectName(projectName);
+    }
+
+    public String getProjectVersion() {
+        return publisher.getProjectVersion();
+    }
+
+    @DataBoundSetter
+    public void setProjectVersion(final String projectVersion) {
+        publisher.setProjectVersion(projectVersion);
+    }
+
+    public String getDependencyTrackUrl() {
+        return publisher.getDependencyTrackUrl();
+    }
+
+    @DataBoundSetter
+    public void setDependencyTrackUrl(final String dependencyTrackUrl) {
+        publisher.setDependencyTrackUrl(dependencyTrackUrl);
+        updateOverrideGlobals();
+    }
+
+    public String getDependencyTrackApiKey() {
+        return publisher.getDependencyTrackApiKey();
+    }
+
+    @DataBoundSetter
+    public void setDependencyTrackApiKey(final String dependencyTrackApiKey) {
+        publisher.setDependencyTrackApiKey(dependencyTrackApiKey);
+        updateOverrideGlobals();
+    }
+
+    public Boolean getAutoCreateProjects() {
+        return publisher.getAutoCreateProjects();
+    }
+
+    @DataBoundSetter
+    public void setAutoCreateProjects(final Boolean autoCreateProjects) {
+        publisher.setAutoCreateProjects(autoCreateProjects);
+        updateOverrideGlobals();
+    }
+
+    public boolean isUploadFromAgent() {
+        return publisher.isUploadFromAgent();
+    }
+
+    @DataBoundSetter
+    public void setUploadFromAgent(final boolean uploadFromAgent) {
+        publisher.setUploadFromAgent(uploadFromAgent);
+    }
+
+    public UploadPriority getUploadPriority() {
+        return publisher.getUploadPriority();
+    }
+
+    @DataBoundSetter
+    public void setUploadPriority(final UploadPriority uploadPriority) {
+        publisher.setUploadPriority(uploadPriority);
+    }
+
+    public boolean isSkipUnchangedBom() {
+        return publisher.isSkipUnchangedBom();
+    }
+
+    @DataBoundSetter
+    public void setSkipUnchangedBom(final boolean skipUnchangedBom) {
+        publisher.setSkipUnchangedBom(skipUnchangedBom);
+    }
+
+    public boolean isRefreshFindings() {
+        return publisher.isRefreshFindings();
+    }
+
+    @DataBoundSetter
+    public void setRefreshFindings(final boolean refreshFindings) {
+        publisher.setRefreshFindings(refreshFindings);
+    }
+
+    public boolean isQueueFailedUploads() {
+        return publisher.isQueueFailedUploads();
+    }
+
+    @DataBoundSetter
+    public void setQueueFailedUploads(final boolean queueFailedUploads) {
+        publisher.setQueueFailedUploads(queueFailedUploads);
+    }
+
+    public boolean isMergeArtifacts() {
+        return publisher.isMergeArtifacts();
+    }
+
+    @DataBoundSetter
+    public void setMergeArtifacts(final boolean mergeArtifacts) {
+        publisher.setMergeArtifacts(mergeArtifacts);
+    }
+
+    public String getRemoveFromBom() {
+        return publisher.getRemoveFromBom();
+    }
+
+    @DataBoundSetter
+    public void setRemoveFromBom(final String removeFromBom) {
+        publisher.setRemoveFromBom(removeFromBom);
+    }
+
+    public boolean isValidateBom() {
+        return publisher.isValidateBom();
+    }
+
+    @DataBoundSetter
+    public void setValidateBom(final boolean validateBom) {
+        publisher.setValidateBom(validateBom);
+    }
+
+    public boolean isMetricsOnly() {
+        return publisher.isMetricsOnly();
+    }
+
+    @DataBoundSetter
+    public void setMetricsOnly(final boolean metricsOnly) {
+        publisher.setMetricsOnly(metricsOnly);
+    }
+
+    public boolean isOverrideGlobals() {
+        return publisher.isOverrideGlobals();
+    }
+
+    @DataBoundSetter
+    public void setOverrideGlobals(final boolean overrideGlobals) {
+        publisher.setOverrideGlobals(overrideGlobals);
+        updateOverrideGlobals();
+    }
+
+    public Integer getUnstableTotalCritical() {
+        return publisher.getUnstableTotalCritical();
+    }
+
+    @DataBoundSetter
+    public void setUnstableTotalCritical(final Integer unstableTotalCritical) {
+        publisher.setUnstableTotalCritical(unstableTotalCritical);
+    }
+
+    public Integer getUnstableTotalHigh() {
+        return publisher.getUnstableTotalHigh();
+    }
+
+    @DataBoundSetter
+    public void setUnstableTotalHigh(final Integer unstableTotalHigh) {
+        publisher.setUnstableTotalHigh(unstableTotalHigh);
+    }
+
+    public Integer getUnstableTotalMedium() {
+        return publisher.getUnstableTotalMedium();
+    }
+
+    @DataBoundSetter
+    public void setUnstableTotalMedium(final Integer unstableTotalMedium) {
+        publisher.setUnstableTotalMedium(unstableTotalMedium);
+    }
+
+    public Integer getUnstableTotalLow() {
+        return publisher.getUnstableTotalLow();
+    }
+
+    @DataBoundSetter
+    public void setUnstableTotalLow(final Integer unstableTotalLow) {
+        publisher.setUnstableTotalLow(unstableTotalLow);
+    }
+
+    public Integer getFailedTotalCritical() {
+        return publisher.getFailedTotalCritical();
+    }
+
+    @DataBoundSetter
+    public void setFailedTotalCritical(final Integer failedTotalCritical) {
+        publisher.setFailedTotalCritical(failedTotalCritical);
+    }
+
+    public Integer getFailedTotalHigh() {
+        return publisher.getFailedTotalHigh();
+    }
+
+    @DataBoundSetter
+    public void setFailedTotalHigh(final Integer failedTotalHigh) {
+        publisher.setFailedTotalHigh(failedTotalHigh);
+    }
+
+    public Integer getFailedTotalMedium() {
+        return publisher.getFailedTotalMedium();
+    }
+
+    @DataBoundSetter
+    public void setFailedTotalMedium(final Integer failedTotalMedium) {
+        publisher.setFailedTotalMedium(failedTotalMedium);
+    }
+
+    public Integer getFailedTotalLow() {
+        return publisher.getFailedTotalLow();
+    }
+
+    @DataBoundSetter
+    public void setFailedTotalLow(final Integer failedTotalLow) {
+        publisher.setFailedTotalLow(failedTotalLow);
+    }
+
+    public boolean isTotalThresholdAnalysisExploitable() {
+        return publisher.isTotalThresholdAnalysisExploitable();
+    }
+
+    @DataBoundSetter
+    public void setTotalThresholdAnalysisExploitable(final boolean totalThresholdAnalysisExploitable) {
+        publisher.setTotalThresholdAnalysisExploitable(totalThresholdAnalysisExploitable);
+    }
+
+    public Integer getUnstableNewCritical() {
+        return publisher.getUnstableNewCritical();
+    }
+
+    @DataBoundSetter
+    public void setUnstableNewCritical(final Integer unstableNewCritical) {
+        publisher.setUnstableNewCritical(unstableNewCritical);
+    }
+
+    public Integer getUnstableNewHigh() {
+        return publisher.getUnstableNewHigh();
+    }
+
+    @DataBoundSetter
+    public void setUnstableNewHigh(final Integer unstableNewHigh) {
+        publisher.setUnstableNewHigh(unstableNewHigh);
+    }
+
+    public Integer getUnstableNewMedium() {
+        return publisher.getUnstableNewMedium();
+    }
+
+    @DataBoundSetter
+    public void setUnstableNewMedium(final Integer unstableNewMedium) {
+        publisher.setUnstableNewMedium(unstableNewMedium);
+    }
+
+    public Integer getUnstableNewLow() {
+        return publisher.getUnstableNewLow();
+    }
+
+    @DataBoundSetter
+    public void setUnstableNewLow(final Integer unstableNewLow) {
+        publisher.setUnstableNewLow(unstableNewLow);
+    }
+
+    public Integer getFailedNewCritical() {
+        return publisher.getFailedNewCritical();
+    }
+
+    @DataBoundSetter
+    public void setFailedNewCritical(final Integer failedNewCritical) {
+        publisher.setFailedNewCritical(failedNewCritical);
+    }
+
+    public Integer getFailedNewHigh() {
+        return publisher.getFailedNewHigh();
+    }
+
+    @DataBoundSetter
+    public void setFailedNewHigh(final Integer failedNewHigh) {
+        publisher.setFailedNewHigh(failedNewHigh);
+    }
+
+    public Integer getFailedNewMedium() {
+        return publisher.getFailedNewMedium();
+    }
+
+    @DataBoundSetter
+    public void setFailedNewMedium(final Integer failedNewMedium) {
+        publisher.setFailedNewMedium(failedNewMedium);
+    }
+
+    public Integer getFailedNewLow() {
+        return publisher.getFailedNewLow();
+    }
+
+    @DataBoundSetter
+    public void setFailedNewLow(final Integer failedNewLow) {
+        publisher.setFailedNewLow(failedNewLow);
+    }
+
+    public boolean isNewThresholdAnalysisExploitable() {
+        return publisher.isNewThresholdAnalysisExploitable();
+    }
+
+    @DataBoundSetter
+    public void setNewThresholdAnalysisExploitable(final boolean newThresholdAnalysisExploitable) {
+        publisher.setNewThresholdAnalysisExploitable(newThresholdAnalysisExploitable);
+    }
+
+    /**
+     * @return effective autoCreateProjects
+     */
+    public boolean isEffectiveAutoCreateProjects() {
+        return publisher.isEffectiveAutoCreateProjects();
+    }
+
+    /**
+     * A step has no form that hides the overrides of the global settings
+     * while they are disabled, so any value that is set is used.
+     */
+    private void updateOverrideGlobals() {
+        publisher.setOverrideGlobals(publisher.isOverrideGlobals() || StringUtils.isNotBlank(publisher.getDependencyTrackUrl())
+                || StringUtils.isNotBlank(publisher.getDependencyTrackApiKey()) || publisher.getAutoCreateProjects() != null);
+    }
+
+    private static DescriptorImpl getPublisherDescriptor() {
+        return Jenkins.get().getDescriptorByType(DescriptorImpl.class);
+    }
+
+    @Extension
+    public static final class StepDescriptorImpl extends StepDescriptor {
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(Run.class, FilePath.class, EnvVars.class, TaskListener.class);
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "dependencyTrackPublish";
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.Step_DisplayName();
+        }
+
+        /**
+         * the form of this step uses the validation and completion of
+         * {@link DependencyTrackPublisher}
+         *
+         * @return the descriptor of {@link DependencyTrackPublisher}
+         */
+        public DescriptorImpl getPublisherDescriptor() {
+            return DependencyTrackStep.getPublisherDescriptor();
+        }
+    }
+}
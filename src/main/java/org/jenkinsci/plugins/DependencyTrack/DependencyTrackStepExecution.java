@@ -0,0 +1,271 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.jenkinsci.plugins.DependencyTrack.DependencyTrackPublisher.UploadedBom;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+
+/**
+ * Uploads the BOMs on a background thread for {@link DependencyTrackStep} and,
+ * in synchronous mode, lets {@link TokenPoller} check whether Dependency-Track
+ * has processed them. No thread is held while Dependency-Track is working, but
+ * the executor of the enclosing {@code node} is, because
+ * {@link DependencyTrackStep} needs a workspace.
+ * <p>
+ * {@link DependencyTrackWaitStep} only waits for the uploads that
+ * {@link DependencyTrackStep} returned in asynchronous mode. It needs no
+ * workspace and releases the executor when it runs outside of {@code node}.
+ * <p>
+ * The tokens of the uploads are part of the persisted state of the pipeline,
+ * so that waiting continues after a restart of Jenkins without uploading the
+ * BOMs again.
+ */
+final class DependencyTrackStepExecution extends StepExecution {
+
+    private static final long serialVersionUID = 2349807460275918465L;
+
+    private final DependencyTrackPublisher publisher;
+
+    /**
+     * the uploads of {@link DependencyTrackStep} to wait for or {@code null}
+     * if the BOMs are uploaded by this execution
+     */
+    private final DependencyTrackUploads uploads;
+
+    /**
+     * the results of the uploads. {@code null} until the uploads are done.
+     */
+    private volatile List<UploadedBom> boms;
+
+    /**
+     * the time in milliseconds since the epoch when the BOM was uploaded
+     */
+    private volatile long start;
+
+    /**
+     * the running upload or the wait for Dependency-Track
+     */
+    private transient volatile Future<?> task;
+
+    /**
+     * whether the step was completed
+     */
+    private transient volatile boolean done;
+
+    DependencyTrackStepExecution(@NonNull final DependencyTrackStep step, @NonNull final StepContext context) {
+        super(context);
+        publisher = step.getPublisher();
+        uploads = null;
+    }
+
+    DependencyTrackStepExecution(@NonNull final DependencyTrackUploads uploads, @NonNull final StepContext context) {
+        super(context);
+        publisher = uploads.getPublisher();
+        this.uploads = uploads;
+        // the deadline is based on the time of the upload, not on when the pipeline started to wait
+        start = uploads.getStart();
+    }
+
+    @Override
+    public boolean start() throws Exception {
+        final Run<?, ?> run = getContext().get(Run.class);
+        final TaskListener listener = getContext().get(TaskListener.class);
+        if (uploads != null) {
+            // fetching the findings of an unchanged BOM may take a while and must not block the CPS VM thread
+            task = Computer.threadPoolForRemoting.submit(() -> {
+                try {
+                    process(run, listener, uploads.getBoms());
+                } catch (Exception | LinkageError e) {
+                    fail(e);
+                }
+            });
+            return false;
+        }
+        final FilePath workspace = getContext().get(FilePath.class);
+        final EnvVars env = getContext().get(EnvVars.class);
+        // uploading may take a while and must not block the CPS VM thread
+        task = Computer.threadPoolForRemoting.submit(() -> {
+            try {
+                upload(run, workspace, env, listener);
+            } catch (Exception | LinkageError e) {
+                fail(e);
+            }
+        });
+        return false;
+    }
+
+    private void upload(final Run<?, ?> run, final FilePath workspace, final EnvVars env, final TaskListener listener) throws Exception {
+        final List<UploadedBom> uploadedBoms = publisher.uploadBoms(run, workspace, env, listener);
+        if (!publisher.isSynchronous()) {
+            // the pipeline may wait for them with dependencyTrackWait, outside of node
+            succeed(new DependencyTrackUploads(publisher, uploadedBoms, System.currentTimeMillis()));
+            return;
+        }
+        start = System.currentTimeMillis();
+        process(run, listener, uploadedBoms);
+    }
+
+    private void process(final Run<?, ?> run, final TaskListener listener, final List<UploadedBom> uploadedBoms) throws Exception {
+        if (uploadedBoms.size() == 1 && uploadedBoms.get(0).isUnchanged()) {
+            // nothing to wait for
+            publisher.publishUnchangedResult(new ConsoleLogger(listener.getLogger()), run, uploadedBoms.get(0));
+            succeed(null);
+            return;
+        }
+        if (uploadedBoms.stream().noneMatch(UploadedBom::hasToken)) {
+            succeed(null);
+            return;
+        }
+        boms = uploadedBoms;
+        // the tokens must survive a restart, otherwise the BOMs would have to be uploaded again
+        getContext().saveState();
+        waitForProcessing(run, listener);
+    }
+
+    private void waitForProcessing(final Run<?, ?> run, final TaskListener listener) {
+        final ConsoleLogger logger = new ConsoleLogger(listener.getLogger());
+        final ApiClient apiClient = publisher.createApiClient(run, logger);
+        // the deadline is based on the time of the upload, also after a restart
+        final List<UploadedBom> uploadedBoms = getBoms();
+        final CompletableFuture<Void> processed = publisher.watchAll(logger, apiClient, uploadedBoms, run, start);
+        task = processed;
+        processed.whenComplete((result, failure) -> {
+            if (failure instanceof CancellationException) {
+                // stopped or superseded by a new wait after a restart
+                return;
+            }
+            if (failure != null) {
+                fail(failure);
+                return;
+            }
+            // fetching the findings may take a while and must not block the threads of the poller
+            Computer.threadPoolForRemoting.submit(() -> {
+                try {
+                    publisher.publishAnalysisResults(logger, apiClient, run, uploadedBoms, System.currentTimeMillis() - start);
+                    succeed(null);
+                } catch (Exception | LinkageError e) {
+                    fail(e);
+                }
+            });
+        });
+    }
+
+    @Override
+    public void stop(@NonNull final Throwable cause) throws Exception {
+        final Future<?> current = task;
+        if (current != null) {
+            // the upload may be waiting in the upload queue
+            current.cancel(true);
+        }
+        fail(cause);
+    }
+
+    @Override
+    public void onResume() {
+        final Future<?> current = task;
+        if (current != null) {
+            current.cancel(false);
+        }
+        if (boms == null && uploads == null) {
+            // the upload may or may not have reached Dependency-Track. it is up to the user to decide whether to run the build again.
+            fail(new AbortException(Messages.Step_Resume_UploadIncomplete()));
+            return;
+        }
+        try {
+            if (boms == null) {
+                // the uploads are known, only the wait for them did not begin yet
+                start();
+                return;
+            }
+            final TaskListener listener = getContext().get(TaskListener.class);
+            new ConsoleLogger(listener.getLogger()).log(Messages.Step_Resume_Polling(getTokens()));
+            waitForProcessing(getContext().get(Run.class), listener);
+        } catch (Exception | LinkageError e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public String getStatus() {
+        return !getBoms().isEmpty() ? Messages.Step_Status_Polling(getTokens()) : Messages.Step_Status_Uploading();
+    }
+
+    /**
+     * @return the results of the uploads or an empty list if the uploads are
+     * not done yet
+     */
+    private List<UploadedBom> getBoms() {
+        final List<UploadedBom> current = boms;
+        if (current != null) {
+            return current;
+        }
+        return uploads != null ? uploads.getBoms() : Collections.emptyList();
+    }
+
+    /**
+     * @return the tokens to wait for
+     */
+    private String getTokens() {
+        return getBoms().stream().filter(UploadedBom::hasToken).map(UploadedBom::getToken).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * @param result the return value of the step
+     */
+    private void succeed(final Object result) {
+        if (finish()) {
+            getContext().onSuccess(result);
+        }
+    }
+
+    private void fail(final Throwable cause) {
+        if (finish()) {
+            getContext().onFailure(cause);
+        }
+    }
+
+    /**
+     * makes sure that the step is completed only once
+     *
+     * @return {@code true} if the step was not completed yet
+     */
+    private synchronized boolean finish() {
+        if (done) {
+            return false;
+        }
+        done = true;
+        final Future<?> current = task;
+        if (current != null) {
+            // stops the checks of the token, if any
+            current.cancel(false);
+        }
+        return true;
+    }
+}
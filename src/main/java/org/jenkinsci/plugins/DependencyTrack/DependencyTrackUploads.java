@@ -0,0 +1,56 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jenkinsci.plugins.DependencyTrack.DependencyTrackPublisher.UploadedBom;
+
+/**
+ * The BOMs that {@link DependencyTrackStep} uploaded in asynchronous mode. The
+ * step returns them, so that the pipeline can pass them to
+ * {@link DependencyTrackWaitStep} outside of {@code node}.
+ * <p>
+ * The configuration of the step is kept along with the uploads, because it
+ * determines how the results are fetched and evaluated.
+ */
+@Getter(AccessLevel.PACKAGE)
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public final class DependencyTrackUploads implements Serializable {
+
+    private static final long serialVersionUID = 5403174939632128562L;
+
+    @NonNull
+    private final DependencyTrackPublisher publisher;
+
+    @NonNull
+    private final List<UploadedBom> boms;
+
+    /**
+     * the time in milliseconds since the epoch when the BOMs were uploaded
+     */
+    private final long start;
+
+    @Override
+    public String toString() {
+        return boms.stream().filter(UploadedBom::hasToken).map(UploadedBom::getToken).collect(Collectors.joining(", ", "Dependency-Track uploads [", "]"));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import com.google.common.collect.ImmutableSet;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import java.io.Serializable;
+import java.util.Set;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Pipeline step that waits for Dependency-Track to process the BOMs that
+ * {@link DependencyTrackStep} uploaded in asynchronous mode and then publishes
+ * the results like the synchronous mode does.
+ * <p>
+ * It needs neither a workspace nor an executor, so it can run outside of
+ * {@code node} while Dependency-Track is working.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = false)
+public final class DependencyTrackWaitStep extends Step implements Serializable {
+
+    private static final long serialVersionUID = 8730512246380671145L;
+
+    /**
+     * the value returned by {@link DependencyTrackStep}. It is not typed, so
+     * that a pipeline passing anything else gets a meaningful error.
+     */
+    private final Object uploads;
+
+    @DataBoundConstructor
+    public DependencyTrackWaitStep(final Object uploads) {
+        this.uploads = uploads;
+    }
+
+    @Override
+    public StepExecution start(final StepContext context) throws Exception {
+        if (!(uploads instanceof DependencyTrackUploads)) {
+            throw new AbortException(Messages.WaitStep_Error_NoUploads());
+        }
+        return new DependencyTrackStepExecution((DependencyTrackUploads) uploads, context);
+    }
+
+    @Extension
+    public static final class StepDescriptorImpl extends StepDescriptor {
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(Run.class, TaskListener.class);
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "dependencyTrackWait";
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.WaitStep_DisplayName();
+        }
+    }
+}
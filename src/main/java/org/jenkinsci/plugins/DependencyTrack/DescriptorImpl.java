@@ -23,29 +23,38 @@ import hudson.Extension;
 import hudson.model.AbstractProject;
 import hudson.model.Descriptor;
 import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Run;
 import hudson.security.ACL;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Publisher;
 import hudson.util.FormValidation;
+import hudson.util.HttpResponses;
 import hudson.util.ListBoxModel;
 import hudson.util.Secret;
 import java.io.Serializable;
+import java.net.HttpURLConnection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 import jenkins.model.Jenkins;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
+import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.Symbol;
+import org.jenkinsci.plugins.DependencyTrack.model.Project;
 import org.jenkinsci.plugins.plaincredentials.StringCredentials;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.HttpResponse;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.verb.POST;
 
 /**
  * <p>
@@ -62,8 +71,26 @@ public final class DescriptorImpl extends BuildStepDescriptor<Publisher> impleme
 
     private static final long serialVersionUID = -2018722914973282748L;
 
+    /**
+     * the maximum number of projects returned when searching for projects
+     */
+    private static final int MAX_PROJECT_SEARCH_RESULTS = 20;
+
+    /**
+     * the maximum number of project names and versions whose uuid is cached
+     */
+    private static final int MAX_CACHED_PROJECT_IDS = 10_000;
+
+    private static final Pattern PROJECT_UUID = Pattern.compile("^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$");
+
     private transient final ApiClientFactory clientFactory;
 
+    /**
+     * the uuids of projects resolved by name and version. shared by all jobs.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private transient final ProjectIdCache projectIdCache;
+
     /**
      * Specifies the base URL to Dependency-Track v3 or higher.
      */
@@ -94,7 +121,7 @@ public final class DescriptorImpl extends BuildStepDescriptor<Publisher> impleme
     private int dependencyTrackPollingTimeout;
 
     /**
-     * Defines the number of seconds to wait between two checks for
+     * Defines the maximum number of seconds to wait between two checks for
      * Dependency-Track to process a job (Synchronous Publishing Mode).
      */
     @Setter(onMethod_ = {@DataBoundSetter})
@@ -114,6 +141,37 @@ public final class DescriptorImpl extends BuildStepDescriptor<Publisher> impleme
     @Setter(onMethod_ = {@DataBoundSetter})
     private int dependencyTrackReadTimeout;
 
+    /**
+     * Specifies whether uploads to DT shall be compressed with gzip. Requires a
+     * reverse proxy in front of DT that is able to decompress requests.
+     */
+    @Getter
+    @Setter(onMethod_ = {@DataBoundSetter})
+    private boolean dependencyTrackCompressUploads;
+
+    /**
+     * the maximum number of concurrent uploads to one DT instance from this
+     * controller
+     */
+    @Setter(onMethod_ = {@DataBoundSetter})
+    private int dependencyTrackMaxConcurrentUploads;
+
+    /**
+     * the number of times a request that does not change anything in DT is
+     * repeated if DT is not available. {@code null} means the default.
+     */
+    @Setter(onMethod_ = {@DataBoundSetter})
+    private Integer dependencyTrackMaxRetries;
+
+    /**
+     * the secret Dependency-Track has to send along with BOM_PROCESSED
+     * notifications to {@link WebhookReceiver}. The webhook is disabled if
+     * empty.
+     */
+    @Getter
+    @Setter(onMethod_ = {@DataBoundSetter})
+    private Secret dependencyTrackWebhookSecret;
+
     /**
      * Default constructor. Obtains the Descriptor used in
      * DependencyCheckBuilder as this contains the global Dependency-Check
@@ -126,6 +184,7 @@ public final class DescriptorImpl extends BuildStepDescriptor<Publisher> impleme
     DescriptorImpl(@NonNull ApiClientFactory clientFactory) {
         super(DependencyTrackPublisher.class);
         this.clientFactory = clientFactory;
+        this.projectIdCache = new ProjectIdCache(System::currentTimeMillis, TimeUnit.MINUTES.toMillis(1), MAX_CACHED_PROJECT_IDS);
         load();
     }
 
@@ -136,31 +195,122 @@ public final class DescriptorImpl extends BuildStepDescriptor<Publisher> impleme
     }
 
     /**
-     * Retrieve the projects to populate the dropdown.
+     * Searches the projects by name for the type-ahead of the project field.
+     * Only the first matches are returned, so that the time to render the job
+     * configuration does not depend on the number of projects in
+     * Dependency-Track.
+     *
+     * @param q the text the names of the projects shall contain
+     * @param dependencyTrackUrl the base URL to Dependency-Track
+     * @param dependencyTrackApiKey the credential-id of the API key to use for authentication
+     * @param item used to lookup credentials in job config. ignored in global
+     * config
+     * @return the matching projects as JSON array of objects with a name and
+     * the uuid as value
+     */
+    @POST
+    public HttpResponse doSearchProjects(@QueryParameter final String q, @QueryParameter final String dependencyTrackUrl, @QueryParameter final String dependencyTrackApiKey, @AncestorInPath @Nullable Item item) {
+        if (item == null ? !Jenkins.get().hasPermission(Jenkins.ADMINISTER) : !item.hasPermission(Item.CONFIGURE)) {
+            return HttpResponses.okJSON(new JSONArray());
+        }
+        // url may come from instance-config. if empty, then take it from global config (this)
+        final String url = Optional.ofNullable(PluginUtil.parseBaseUrl(dependencyTrackUrl)).orElse(getDependencyTrackUrl());
+        // api-key may come from instance-config. if empty, then take it from global config (this)
+        final String apiKey = lookupApiKey(Optional.ofNullable(StringUtils.trimToNull(dependencyTrackApiKey)).orElse(getDependencyTrackApiKey()), item);
+        if (StringUtils.isBlank(q) || StringUtils.isBlank(url)) {
+            return HttpResponses.okJSON(new JSONArray());
+        }
+        try {
+            final JSONArray projects = new JSONArray();
+            getClient(url, apiKey).searchProjects(q.trim(), MAX_PROJECT_SEARCH_RESULTS).stream()
+                    .map(p -> new JSONObject().element("name", getProjectLabel(p)).element("value", p.getUuid()))
+                    .forEach(projects::add);
+            return HttpResponses.okJSON(projects);
+        } catch (ApiClientException e) {
+            return HttpResponses.errorJSON(Messages.Builder_Error_Projects(e.getLocalizedMessage()));
+        }
+    }
+
+    /**
+     * Shows the name and version of the selected project.
      *
+     * @param value the uuid of the project
      * @param dependencyTrackUrl the base URL to Dependency-Track
-     * @param dependencyTrackApiKey the API key to use for authentication
+     * @param dependencyTrackApiKey the credential-id of the API key to use for authentication
      * @param item used to lookup credentials in job config. ignored in global
-     * @return ListBoxModel
+     * config
+     * @return FormValidation
      */
-    public ListBoxModel doFillProjectIdItems(@QueryParameter final String dependencyTrackUrl, @QueryParameter final String dependencyTrackApiKey, @AncestorInPath @Nullable Item item) {
-        final ListBoxModel projects = new ListBoxModel();
+    @POST
+    public FormValidation doCheckProjectId(@QueryParameter final String value, @QueryParameter final String dependencyTrackUrl, @QueryParameter final String dependencyTrackApiKey, @AncestorInPath @Nullable Item item) {
+        if (StringUtils.isBlank(value) || (item == null ? !Jenkins.get().hasPermission(Jenkins.ADMINISTER) : !item.hasPermission(Item.CONFIGURE))) {
+            return FormValidation.ok();
+        }
+        if (!PROJECT_UUID.matcher(value.trim()).matches()) {
+            return FormValidation.warning(Messages.Builder_Project_NoUuid());
+        }
+        // url may come from instance-config. if empty, then take it from global config (this)
+        final String url = Optional.ofNullable(PluginUtil.parseBaseUrl(dependencyTrackUrl)).orElse(getDependencyTrackUrl());
+        // api-key may come from instance-config. if empty, then take it from global config (this)
+        final String apiKey = lookupApiKey(Optional.ofNullable(StringUtils.trimToNull(dependencyTrackApiKey)).orElse(getDependencyTrackApiKey()), item);
+        if (StringUtils.isBlank(url)) {
+            return FormValidation.ok();
+        }
+        try {
+            return Optional.ofNullable(getClient(url, apiKey).getProject(value.trim()))
+                    .map(p -> FormValidation.ok(getProjectLabel(p)))
+                    .orElseGet(() -> FormValidation.error(Messages.Builder_Project_NotFound()));
+        } catch (ApiClientException e) {
+            return FormValidation.warning(e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Shows the uuid of the project the name and version resolve to.
+     *
+     * @param value the name of the project
+     * @param projectVersion the version of the project
+     * @param dependencyTrackUrl the base URL to Dependency-Track
+     * @param dependencyTrackApiKey the credential-id of the API key to use for authentication
+     * @param item used to lookup credentials and the last build in job config.
+     * ignored in global config
+     * @return FormValidation
+     */
+    @POST
+    public FormValidation doCheckProjectName(@QueryParameter final String value, @QueryParameter final String projectVersion, @QueryParameter final String dependencyTrackUrl, @QueryParameter final String dependencyTrackApiKey, @AncestorInPath @Nullable Item item) {
+        // names containing variables are only known during the build
+        if (StringUtils.isBlank(value) || StringUtils.isBlank(projectVersion) || value.contains("$") || projectVersion.contains("$")
+                || (item == null ? !Jenkins.get().hasPermission(Jenkins.ADMINISTER) : !item.hasPermission(Item.CONFIGURE))) {
+            return FormValidation.ok();
+        }
+        // url may come from instance-config. if empty, then take it from global config (this)
+        final String url = Optional.ofNullable(PluginUtil.parseBaseUrl(dependencyTrackUrl)).orElse(getDependencyTrackUrl());
+        if (StringUtils.isBlank(url)) {
+            return FormValidation.ok();
+        }
+        final String name = value.trim();
+        final String version = projectVersion.trim();
+        final Run<?, ?> lastBuild = item instanceof Job ? ((Job<?, ?>) item).getLastBuild() : null;
+        final String uuid = projectIdCache.get(url, name, version, lastBuild);
+        if (uuid != null) {
+            return FormValidation.ok(Messages.Builder_Project_Resolved(uuid));
+        }
+        if (projectIdCache.isMissing(url, name, version)) {
+            return FormValidation.ok(Messages.Builder_Project_Missing());
+        }
+        // api-key may come from instance-config. if empty, then take it from global config (this)
+        final String apiKey = lookupApiKey(Optional.ofNullable(StringUtils.trimToNull(dependencyTrackApiKey)).orElse(getDependencyTrackApiKey()), item);
         try {
-            // url may come from instance-config. if empty, then take it from global config (this)
-            final String url = Optional.ofNullable(PluginUtil.parseBaseUrl(dependencyTrackUrl)).orElse(getDependencyTrackUrl());
-            // api-key may come from instance-config. if empty, then take it from global config (this)
-            final String apiKey = lookupApiKey(Optional.ofNullable(StringUtils.trimToNull(dependencyTrackApiKey)).orElse(getDependencyTrackApiKey()), item);
-            final ApiClient apiClient = getClient(url, apiKey);
-            projects.addAll(apiClient.getProjects().stream()
-                    .map(p -> new ListBoxModel.Option(p.getName().concat(" ").concat(Optional.ofNullable(p.getVersion()).orElse(StringUtils.EMPTY)).trim(), p.getUuid()))
-                    .sorted(Comparator.comparing(o -> o.name))
-                    .collect(Collectors.toList())
-            );
-            projects.add(0, new ListBoxModel.Option("-- Select Project --", null));
+            final String resolvedUuid = getClient(url, apiKey).lookupProject(name, version).getUuid();
+            projectIdCache.put(url, name, version, resolvedUuid);
+            return FormValidation.ok(Messages.Builder_Project_Resolved(resolvedUuid));
         } catch (ApiClientException e) {
-            projects.add(Messages.Builder_Error_Projects(e.getLocalizedMessage()), null);
+            if (e.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                projectIdCache.putMissing(url, name, version);
+                return FormValidation.ok(Messages.Builder_Project_Missing());
+            }
+            return FormValidation.warning(e.getLocalizedMessage());
         }
-        return projects;
     }
 
     public ListBoxModel doFillDependencyTrackApiKeyItems(@QueryParameter String credentialsId, @AncestorInPath Item item) {
@@ -271,6 +421,38 @@ public final class DescriptorImpl extends BuildStepDescriptor<Publisher> impleme
         return dependencyTrackPollingInterval;
     }
 
+    /**
+     * @return global configuration for dependencyTrackMaxConcurrentUploads.
+     */
+    public int getDependencyTrackMaxConcurrentUploads() {
+        if (dependencyTrackMaxConcurrentUploads <= 0) {
+            return 8;
+        }
+        return dependencyTrackMaxConcurrentUploads;
+    }
+
+    /**
+     * @return global configuration for dependencyTrackMaxRetries.
+     */
+    public int getDependencyTrackMaxRetries() {
+        if (dependencyTrackMaxRetries == null || dependencyTrackMaxRetries < 0) {
+            return 3;
+        }
+        return dependencyTrackMaxRetries;
+    }
+
+    /**
+     * @return {@code true} if builds shall wait for BOM_PROCESSED
+     * notifications from Dependency-Track before falling back to polling
+     */
+    public boolean isDependencyTrackWebhookEnabled() {
+        return dependencyTrackWebhookSecret != null && StringUtils.isNotEmpty(dependencyTrackWebhookSecret.getPlainText());
+    }
+
+    private static String getProjectLabel(final Project project) {
+        return project.getName().concat(" ").concat(Optional.ofNullable(project.getVersion()).orElse(StringUtils.EMPTY)).trim();
+    }
+
     private ApiClient getClient(final String baseUrl, final String apiKey) {
         return clientFactory.create(baseUrl, apiKey, new ConsoleLogger(), Math.max(dependencyTrackConnectionTimeout, 0), Math.max(dependencyTrackReadTimeout, 0));
     }
@@ -15,10 +15,12 @@
  */
 package org.jenkinsci.plugins.DependencyTrack;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 import lombok.experimental.UtilityClass;
-import net.sf.json.JSONArray;
 import net.sf.json.JSONNull;
 import net.sf.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
@@ -31,11 +33,62 @@ import org.jenkinsci.plugins.DependencyTrack.model.Vulnerability;
 @UtilityClass
 class FindingParser {
 
-    List<Finding> parse(String jsonResponse) {
-        final JSONArray jsonArray = JSONArray.fromObject(jsonResponse);
-		return jsonArray.stream()
-                .map(o -> parseFinding((JSONObject) o))
-                .collect(Collectors.toList());
+    /**
+     * Parses the findings from the response of {@code /api/v1/finding/project}
+     * without reading the whole response into memory.
+     *
+     * @param reader the response body
+     * @return the findings in the order of the response
+     * @throws IOException if the response can not be read or is not a JSON
+     * array of objects
+     * @see #parse(Reader, Consumer)
+     */
+    List<Finding> parse(Reader reader) throws IOException {
+        final List<Finding> findings = new ArrayList<>();
+        parse(reader, findings::add);
+        return findings;
+    }
+
+    /**
+     * Parses the findings from the response of {@code /api/v1/finding/project}
+     * one at a time. The top-level array is split into its elements while being
+     * read, so that only the JSON of a single finding is held in memory at any
+     * time instead of the whole response and its DOM.
+     *
+     * @param reader the response body
+     * @param consumer receives every finding as soon as it has been read
+     * @throws IOException if the response can not be read or is not a JSON
+     * array of objects
+     */
+    void parse(Reader reader, Consumer<Finding> consumer) throws IOException {
+        final JsonTokenizer json = new JsonTokenizer(reader);
+        final StringBuilder element = new StringBuilder(4096);
+        try {
+            json.skipWhitespace();
+            if (json.current() != '[') {
+                if (json.current() == -1) {
+                    throw json.unexpected();
+                }
+                throw new IOException(Messages.FindingParser_Error_NotAnArray((char) json.current()));
+            }
+            json.begin();
+            while (json.current() != ']') {
+                if (json.current() != '{') {
+                    throw json.unexpected();
+                }
+                element.setLength(0);
+                json.value(element);
+                consumer.accept(parseFinding(JSONObject.fromObject(element.toString())));
+                json.separator(']');
+            }
+            json.end();
+            json.skipWhitespace();
+            if (json.current() != -1) {
+                throw json.unexpected();
+            }
+        } catch (JsonTokenizer.SyntaxException e) {
+            throw new IOException(Messages.FindingParser_Error_Invalid(e.getMessage(), String.valueOf(e.getLine()), String.valueOf(e.getColumn())), e);
+        }
     }
 
     private Finding parseFinding(JSONObject json) {
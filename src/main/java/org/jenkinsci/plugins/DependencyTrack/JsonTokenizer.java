@@ -0,0 +1,355 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.io.IOException;
+import java.io.Reader;
+import lombok.Getter;
+import org.apache.commons.io.output.NullWriter;
+
+/**
+ * Reads a JSON document character by character, so that large documents such
+ * as BOMs or findings can be processed without holding them in memory. The
+ * caller walks the structure it expects with {@link #begin()},
+ * {@link #separator(char)} and {@link #end()} and either copies or skips the
+ * values in between, while the tokenizer checks the syntax and keeps track of
+ * the position for errors.
+ * <p>
+ * Strings are copied with their escape sequences as they are, so that the copy
+ * is valid JSON again. Objects and arrays must not be nested deeper than
+ * {@link #MAX_DEPTH} levels, so that callers may descend recursively.
+ */
+final class JsonTokenizer {
+
+    /**
+     * the deepest nesting of objects and arrays that is accepted
+     */
+    static final int MAX_DEPTH = 500;
+
+    private final Reader in;
+
+    /**
+     * the current character, -1 at the end of the document
+     */
+    private int c;
+
+    /**
+     * the line of the current character, starting at 1
+     */
+    @Getter
+    private int line = 1;
+
+    /**
+     * the column of the current character, starting at 1
+     */
+    @Getter
+    private int column;
+
+    private int depth;
+
+    /**
+     * @param in the document. A leading byte order mark is skipped.
+     * @throws IOException if the document can not be read
+     */
+    JsonTokenizer(final Reader in) throws IOException {
+        this.in = in;
+        read();
+        if (c == '\uFEFF') {
+            read();
+        }
+    }
+
+    /**
+     * @return the current character, -1 at the end of the document
+     */
+    int current() {
+        return c;
+    }
+
+    void skipWhitespace() throws IOException {
+        while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+            read();
+        }
+    }
+
+    /**
+     * moves past the start of the object or array at the current position and
+     * the whitespace after it
+     *
+     * @throws SyntaxException if it is nested too deeply
+     */
+    void begin() throws IOException {
+        if (++depth > MAX_DEPTH) {
+            throw error(Messages.JsonTokenizer_Error_TooDeep(MAX_DEPTH));
+        }
+        read();
+        skipWhitespace();
+    }
+
+    /**
+     * moves past the end of the object or array at the current position
+     */
+    void end() throws IOException {
+        read();
+        depth--;
+    }
+
+    /**
+     * moves past the comma after a member or element, so that the current
+     * character is the start of the next one or {@code end}
+     *
+     * @param end the end of the object or array
+     * @throws SyntaxException if neither a comma nor {@code end} follows or if
+     * {@code end} follows a comma
+     */
+    void separator(final char end) throws IOException {
+        skipWhitespace();
+        if (c == ',') {
+            read();
+            skipWhitespace();
+            if (c == end) {
+                throw unexpected();
+            }
+        } else if (c != end) {
+            throw unexpected();
+        }
+    }
+
+    /**
+     * reads the name of the member at the current position and moves past the
+     * colon after it
+     *
+     * @return the name with escape sequences as they are
+     */
+    String name() throws IOException {
+        if (c != '"') {
+            throw unexpected();
+        }
+        final StringBuilder name = new StringBuilder();
+        string(name, Integer.MAX_VALUE);
+        skipWhitespace();
+        if (c != ':') {
+            throw unexpected();
+        }
+        read();
+        return name.toString();
+    }
+
+    /**
+     * reads the string at the current position
+     *
+     * @param maxLength the length up to which the string is kept
+     * @return the content of the string with escape sequences as they are or
+     * {@code null} if it is longer than {@code maxLength}
+     */
+    String string(final int maxLength) throws IOException {
+        skipWhitespace();
+        if (c != '"') {
+            throw unexpected();
+        }
+        final StringBuilder string = new StringBuilder();
+        string(string, maxLength + 1);
+        return string.length() <= maxLength ? string.toString() : null;
+    }
+
+    /**
+     * copies the value at the current position without insignificant
+     * whitespace
+     *
+     * @param target where to copy the value to,
+     * {@link NullWriter#NULL_WRITER} to skip it
+     */
+    void value(final Appendable target) throws IOException {
+        skipWhitespace();
+        switch (c) {
+            case '{':
+                target.append('{');
+                begin();
+                while (c != '}') {
+                    target.append('"').append(name()).append("\":");
+                    value(target);
+                    separator('}');
+                    if (c != '}') {
+                        target.append(',');
+                    }
+                }
+                end();
+                target.append('}');
+                break;
+            case '[':
+                target.append('[');
+                begin();
+                while (c != ']') {
+                    value(target);
+                    separator(']');
+                    if (c != ']') {
+                        target.append(',');
+                    }
+                }
+                end();
+                target.append(']');
+                break;
+            case '"':
+                target.append('"');
+                string(target, Integer.MAX_VALUE);
+                target.append('"');
+                break;
+            case 't':
+                word("true", target);
+                break;
+            case 'f':
+                word("false", target);
+                break;
+            case 'n':
+                word("null", target);
+                break;
+            default:
+                number(target);
+                break;
+        }
+    }
+
+    /**
+     * @param maxLength the number of characters up to which the content is
+     * copied
+     */
+    private void string(final Appendable target, final int maxLength) throws IOException {
+        int length = 0;
+        read();
+        while (c != '"') {
+            if (c == -1 || c < 0x20) {
+                throw unexpected();
+            }
+            if (c == '\\') {
+                if (length++ < maxLength) {
+                    target.append('\\');
+                }
+                read();
+                if (c == 'u') {
+                    for (int i = 0; i < 4; i++) {
+                        if (length++ < maxLength) {
+                            target.append((char) c);
+                        }
+                        read();
+                        if (Character.digit(c, 16) < 0) {
+                            throw unexpected();
+                        }
+                    }
+                } else if ("\"\\/bfnrt".indexOf(c) < 0) {
+                    throw unexpected();
+                }
+            }
+            if (length++ < maxLength) {
+                target.append((char) c);
+            }
+            read();
+        }
+        read();
+    }
+
+    private void word(final String word, final Appendable target) throws IOException {
+        for (int i = 0; i < word.length(); i++) {
+            if (c != word.charAt(i)) {
+                throw unexpected();
+            }
+            copy(target);
+        }
+    }
+
+    private void number(final Appendable target) throws IOException {
+        if (c == '-') {
+            copy(target);
+        }
+        if (c == '0') {
+            copy(target);
+        } else {
+            digits(target);
+        }
+        if (c == '.') {
+            copy(target);
+            digits(target);
+        }
+        if (c == 'e' || c == 'E') {
+            copy(target);
+            if (c == '+' || c == '-') {
+                copy(target);
+            }
+            digits(target);
+        }
+    }
+
+    private void digits(final Appendable target) throws IOException {
+        if (c < '0' || c > '9') {
+            throw unexpected();
+        }
+        while (c >= '0' && c <= '9') {
+            copy(target);
+        }
+    }
+
+    private void copy(final Appendable target) throws IOException {
+        target.append((char) c);
+        read();
+    }
+
+    private void read() throws IOException {
+        if (c == '\n') {
+            line++;
+            column = 0;
+        }
+        c = in.read();
+        column++;
+    }
+
+    /**
+     * @return an error for the current character
+     */
+    SyntaxException unexpected() {
+        return error(c == -1 ? Messages.JsonTokenizer_Error_UnexpectedEnd() : Messages.JsonTokenizer_Error_UnexpectedCharacter((char) c));
+    }
+
+    /**
+     * @return an error at the current position
+     */
+    SyntaxException error(final String message) {
+        return new SyntaxException(message, line, column);
+    }
+
+    /**
+     * a document that is not valid JSON
+     */
+    @Getter
+    static final class SyntaxException extends IOException {
+
+        private static final long serialVersionUID = 4622014402871736930L;
+
+        /**
+         * the line of the error, starting at 1
+         */
+        private final int line;
+
+        /**
+         * the column of the error, starting at 1
+         */
+        private final int column;
+
+        private SyntaxException(final String message, final int line, final int column) {
+            super(message);
+            this.line = line;
+            this.column = column;
+        }
+    }
+}
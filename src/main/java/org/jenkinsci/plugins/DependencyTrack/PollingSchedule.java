@@ -0,0 +1,131 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.stream.Collectors;
+import lombok.NonNull;
+
+/**
+ * Calculates the delays between two checks whether DT has processed a BOM.
+ * <p>
+ * The first check is done after a short delay, so that small BOMs are
+ * finished quickly. Every following delay is doubled up to a maximum, so that
+ * large BOMs do not cause too many requests. The delays vary randomly by up to
+ * 20% so that builds started at the same time do not poll in lockstep.
+ * <p>
+ * If there is an estimate how long DT needs to process the BOM, e.g. from
+ * previous builds, the first check is done shortly before the estimated time
+ * instead and the backoff starts from there.
+ */
+final class PollingSchedule {
+
+    /**
+     * the delay of the first check in milliseconds if there is no estimate
+     */
+    static final long FIRST_DELAY = 1000;
+
+    private static final double MULTIPLIER = 2;
+
+    private static final double JITTER = 0.2;
+
+    /**
+     * share of the estimate to wait before the first check. checking a little
+     * early is cheaper than checking too late.
+     */
+    private static final double ESTIMATE_FACTOR = 0.9;
+
+    /**
+     * the maximum delay between two checks in milliseconds
+     */
+    private final long maxDelay;
+
+    /**
+     * the estimated processing time in milliseconds or {@code 0} if unknown
+     */
+    private final long estimate;
+
+    /**
+     * random numbers between 0 (inclusive) and 1 (exclusive)
+     */
+    private final DoubleSupplier random;
+
+    private final List<Long> delays = new ArrayList<>();
+
+    PollingSchedule(final long maxDelay, final long estimate) {
+        this(maxDelay, estimate, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    PollingSchedule(final long maxDelay, final long estimate, @NonNull final DoubleSupplier random) {
+        this.maxDelay = Math.max(maxDelay, 1);
+        this.estimate = Math.max(estimate, 0);
+        this.random = random;
+    }
+
+    /**
+     * @return the number of milliseconds to wait before the next check
+     */
+    long nextDelay() {
+        final int check = delays.size();
+        final long delay;
+        if (check == 0 && estimate > 0) {
+            // the estimate is not capped. waiting for it is the whole point
+            delay = Math.max((long) (estimate * ESTIMATE_FACTOR), Math.min(FIRST_DELAY, maxDelay));
+        } else {
+            // after a check at the estimated time, the backoff starts from the beginning
+            final int exponent = estimate > 0 ? check - 1 : check;
+            final double backoff = FIRST_DELAY * Math.pow(MULTIPLIER, exponent);
+            final double jitter = 1 + JITTER * (2 * random.getAsDouble() - 1);
+            delay = Math.min((long) (backoff * jitter), maxDelay);
+        }
+        delays.add(delay);
+        return delay;
+    }
+
+    /**
+     * @return the number of delays handed out so far
+     */
+    int getChecks() {
+        return delays.size();
+    }
+
+    /**
+     * @return the sum of all delays handed out so far in milliseconds
+     */
+    long getTotalDelay() {
+        return delays.stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * @return the delays handed out so far in seconds, e.g.
+     * {@code "1.0s, 2.1s, 3.8s"}
+     */
+    @Override
+    public String toString() {
+        return delays.stream()
+                .map(PollingSchedule::formatSeconds)
+                .map(s -> s + "s")
+                .collect(Collectors.joining(", "));
+    }
+
+    static String formatSeconds(final long millis) {
+        return String.format(Locale.ROOT, "%.1f", millis / 1000d);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.model.Run;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import lombok.NonNull;
+import lombok.Value;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Remembers which uuid a project name and version resolve to on a DT instance,
+ * so that they do not have to be looked up after every upload.
+ * <p>
+ * Resolved uuids are kept until they are invalidated, e.g. because DT does not
+ * know the project anymore. Lookups that found no project are remembered for a
+ * short time only. The uuids are also recorded in the {@link ResultLinkAction}
+ * of every build, which is used to fill the cache after a restart.
+ * <p>
+ * The number of entries is limited. If the limit is reached, the entry that
+ * was used least recently is dropped.
+ */
+final class ProjectIdCache {
+
+    /**
+     * in access order, guarded by itself
+     */
+    private final Map<Key, Entry> entries;
+
+    /**
+     * the current time in milliseconds
+     */
+    private final LongSupplier clock;
+
+    /**
+     * the time in milliseconds a lookup that found no project is remembered
+     */
+    private final long negativeTtl;
+
+    /**
+     * @param clock the current time in milliseconds
+     * @param negativeTtl the time in milliseconds a lookup that found no
+     * project is remembered
+     * @param maxSize the maximum number of entries
+     */
+    ProjectIdCache(@NonNull final LongSupplier clock, final long negativeTtl, final int maxSize) {
+        this.clock = clock;
+        this.negativeTtl = negativeTtl;
+        entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the uuid of the project or {@code null} if unknown
+     */
+    @CheckForNull
+    String get(final String url, final String name, final String version) {
+        return Optional.ofNullable(lookup(new Key(url, name, version))).map(Entry::getUuid).orElse(null);
+    }
+
+    /**
+     * Returns the uuid of the project. If it is not cached yet, it is taken
+     * from the given build if that published the same project.
+     *
+     * @param build a previous build of the job, may be {@code null}
+     * @return the uuid of the project or {@code null} if unknown
+     */
+    @CheckForNull
+    String get(final String url, final String name, final String version, @CheckForNull final Run<?, ?> build) {
+        final String uuid = get(url, name, version);
+        if (uuid != null) {
+            return uuid;
+        }
+        return Optional.ofNullable(build)
+                .map(b -> b.getAction(ResultLinkAction.class))
+                .filter(action -> StringUtils.equals(action.getDependencyTrackUrl(), url)
+                && StringUtils.equals(action.getProjectName(), name)
+                && StringUtils.equals(action.getProjectVersion(), version))
+                .map(ResultLinkAction::getProjectId)
+                .map(StringUtils::trimToNull)
+                .map(previousUuid -> {
+                    put(url, name, version, previousUuid);
+                    return previousUuid;
+                })
+                .orElse(null);
+    }
+
+    /**
+     * @return {@code true} if a recent lookup found no such project
+     */
+    boolean isMissing(final String url, final String name, final String version) {
+        final Entry entry = lookup(new Key(url, name, version));
+        return entry != null && entry.getUuid() == null;
+    }
+
+    void put(final String url, final String name, final String version, @NonNull final String uuid) {
+        synchronized (entries) {
+            entries.put(new Key(url, name, version), new Entry(uuid, clock.getAsLong()));
+        }
+    }
+
+    /**
+     * remembers that there is no such project
+     */
+    void putMissing(final String url, final String name, final String version) {
+        synchronized (entries) {
+            entries.put(new Key(url, name, version), new Entry(null, clock.getAsLong()));
+        }
+    }
+
+    void invalidate(final String url, final String name, final String version) {
+        synchronized (entries) {
+            entries.remove(new Key(url, name, version));
+        }
+    }
+
+    /**
+     * @return the number of entries
+     */
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the entry or {@code null} if there is none. An entry of a
+     * missing project that has expired is removed.
+     */
+    @CheckForNull
+    private Entry lookup(final Key key) {
+        synchronized (entries) {
+            final Entry entry = entries.get(key);
+            if (entry != null && entry.getUuid() == null && clock.getAsLong() - entry.getCreatedAt() >= negativeTtl) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    @Value
+    private static class Key {
+
+        private final String url;
+
+        private final String name;
+
+        private final String version;
+    }
+
+    @Value
+    private static class Entry {
+
+        /**
+         * the uuid of the project or {@code null} if there is no such project
+         */
+        private final String uuid;
+
+        private final long createdAt;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.util.Secret;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import jenkins.MasterToSlaveFileCallable;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import org.jenkinsci.plugins.DependencyTrack.model.UploadResult;
+
+/**
+ * Uploads an artifact to Dependency-Track from the machine the artifact is
+ * located on. This way the content of the artifact never passes the remoting
+ * channel and the controller.
+ * <p>
+ * The {@link CircuitBreaker} and the {@link ConcurrencyLimiter} of
+ * Dependency-Track live on the controller. So the controller decides whether
+ * the upload is sent at all, and the agent reports how Dependency-Track
+ * answered, see {@link #upload(FilePath, ConsoleLogger)}.
+ */
+@Builder
+final class RemoteUploader extends MasterToSlaveFileCallable<RemoteUploader.Result> {
+
+    private static final long serialVersionUID = 2961875206396457327L;
+
+    @NonNull
+    private final ApiClientFactory clientFactory;
+
+    @NonNull
+    private final TaskListener listener;
+
+    /**
+     * the base url to DT instance without trailing slashes
+     */
+    @NonNull
+    private final String baseUrl;
+
+    /**
+     * the api key to authorize with against DT. kept as {@link Secret} so that
+     * it is never written out in plain text by accident
+     */
+    @NonNull
+    private final Secret apiKey;
+
+    private final int connectionTimeout;
+
+    private final int readTimeout;
+
+    private final boolean compressUploads;
+
+    private final String projectId;
+
+    private final String projectName;
+
+    private final String projectVersion;
+
+    private final boolean autoCreateProject;
+
+    /**
+     * Uploads the artifact from the machine it is located on and records the
+     * outcome on the controller. Must be called on the controller.
+     *
+     * @param artifact the artifact to upload
+     * @param logger where to log to
+     * @return the result of the upload
+     * @throws IOException if Dependency-Track could not be reached or the
+     * artifact could not be uploaded
+     * @throws InterruptedException if interrupted while uploading
+     */
+    @NonNull
+    UploadResult upload(@NonNull final FilePath artifact, @NonNull final ConsoleLogger logger) throws IOException, InterruptedException {
+        // uploads are never retried, DT would process the BOM twice. but there is no point in sending it while DT is down.
+        if (!ApiClient.tryAcquire(baseUrl, logger)) {
+            return new UploadResult(false, null, true);
+        }
+        final Result result;
+        try {
+            result = artifact.act(this);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            CircuitBreaker.forUrl(baseUrl).release();
+            throw e;
+        }
+        if (result.getOutcome() != null) {
+            result.getOutcome().record(baseUrl);
+        } else {
+            // the artifact could not be read, nothing was sent
+            CircuitBreaker.forUrl(baseUrl).release();
+        }
+        if (result.getFailure() != null) {
+            throw result.getFailure();
+        }
+        return result.getUploadResult();
+    }
+
+    @Override
+    public Result invoke(final File artifact, final VirtualChannel channel) throws IOException, InterruptedException {
+        final ConsoleLogger logger = new ConsoleLogger(listener.getLogger());
+        final ApiClient apiClient = clientFactory.create(baseUrl, apiKey.getPlainText(), logger, connectionTimeout, readTimeout);
+        apiClient.setCompressUploads(compressUploads);
+        apiClient.setOnAgent(true);
+        try {
+            return new Result(apiClient.upload(projectId, projectName, projectVersion, new FilePath(artifact), autoCreateProject), apiClient.getLastOutcome(), null);
+        } catch (IOException e) {
+            // the controller needs to know about the failure before it is thrown
+            return new Result(null, apiClient.getLastOutcome(), e);
+        }
+    }
+
+    /**
+     * what the agent reports back to the controller
+     */
+    @Value
+    static class Result implements Serializable {
+
+        private static final long serialVersionUID = 8317950419546285603L;
+
+        /**
+         * the result of the upload or {@code null} if it failed with
+         * {@link #failure}
+         */
+        @CheckForNull
+        UploadResult uploadResult;
+
+        /**
+         * how Dependency-Track answered or {@code null} if nothing was sent
+         */
+        @CheckForNull
+        ApiClient.Outcome outcome;
+
+        @CheckForNull
+        IOException failure;
+    }
+}
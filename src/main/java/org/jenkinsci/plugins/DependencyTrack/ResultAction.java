@@ -63,6 +63,20 @@ public class ResultAction implements RunAction2, SimpleBuildStep.LastBuildAction
     @Setter
     private String projectId;
 
+    /**
+     * the time in milliseconds Dependency-Track needed to process the BOM, as
+     * observed by polling. {@code 0} if unknown.
+     */
+    @Setter
+    private long bomProcessingTime;
+
+    /**
+     * whether only the number of findings per severity was fetched, in which
+     * case {@link #findings} is empty
+     */
+    @Setter
+    private boolean findingsOmitted;
+
     @Override
     public String getIconFileName() {
         return "/plugin/dependency-track/icons/dt-logo-symbol.svg";
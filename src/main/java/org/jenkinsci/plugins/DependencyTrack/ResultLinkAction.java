@@ -61,6 +61,13 @@ public class ResultLinkAction implements Action, Serializable {
     @Setter
     private String projectVersion;
 
+    /**
+     * the SHA-256 of the published BOM as hex string. {@code null} if it was
+     * not computed.
+     */
+    @Setter
+    private String bomHash;
+
     @Override
     public String getIconFileName() {
         return isEnabled() ? "/plugin/dependency-track/icons/dt-logo-symbol.svg" : null;
@@ -0,0 +1,172 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+import lombok.NonNull;
+
+/**
+ * Records when the stages of a build step start and end, so that the log
+ * shows which of them the step actually waits for.
+ * <p>
+ * Stages in the foreground run one after another. Stages in the background
+ * run concurrently to them and only prolong the step if a foreground stage
+ * has to wait for their result. That wait is recorded as a foreground stage
+ * of its own, so the foreground stages together form the critical path of
+ * the step.
+ */
+final class StageTimings {
+
+    /**
+     * the current time in milliseconds
+     */
+    private final LongSupplier clock;
+
+    private final long start;
+
+    private final List<Stage> stages = Collections.synchronizedList(new ArrayList<>());
+
+    StageTimings() {
+        this(System::currentTimeMillis);
+    }
+
+    StageTimings(@NonNull final LongSupplier clock) {
+        this.clock = clock;
+        start = clock.getAsLong();
+    }
+
+    /**
+     * starts a stage in the foreground. it ends when it is closed.
+     *
+     * @param name the name of the stage
+     * @return the running stage
+     */
+    @NonNull
+    Stage start(@NonNull final String name) {
+        return start(name, true);
+    }
+
+    /**
+     * runs the task as a stage in the background
+     *
+     * @param name the name of the stage
+     * @param task the work of the stage
+     * @param executor runs the task
+     * @return a future that is completed when the task has finished
+     */
+    @NonNull
+    CompletableFuture<Void> runAsync(@NonNull final String name, @NonNull final Runnable task, @NonNull final Executor executor) {
+        return CompletableFuture.runAsync(() -> {
+            try (Stage stage = start(name, false)) {
+                task.run();
+            }
+        }, executor);
+    }
+
+    /**
+     * Waits until a stage in the background has finished. If it has not
+     * finished yet, the time waited is recorded as a stage in the foreground.
+     * Failures of the stage are ignored, the stage is expected to deal with
+     * them itself.
+     *
+     * @param name the name of the stage in the background
+     * @param stage the future of the stage in the background
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void await(@NonNull final String name, @NonNull final Future<?> stage) throws InterruptedException {
+        if (stage.isDone()) {
+            return;
+        }
+        try (Stage waiting = start(Messages.Builder_Stage_Await(name))) {
+            stage.get();
+        } catch (ExecutionException ignore) {
+            // see above
+        }
+    }
+
+    /**
+     * logs the finished stages in the order they started. stages on the
+     * critical path are marked with an asterisk.
+     *
+     * @param logger where to log to
+     */
+    void log(@NonNull final ConsoleLogger logger) {
+        final List<Stage> finished = new ArrayList<>();
+        synchronized (stages) {
+            stages.stream().filter(Stage::isFinished).forEach(finished::add);
+        }
+        if (finished.isEmpty()) {
+            return;
+        }
+        logger.log(Messages.Builder_Timings(PollingSchedule.formatSeconds(clock.getAsLong() - start)));
+        for (Stage stage : finished) {
+            final String from = PollingSchedule.formatSeconds(stage.startedAt - start);
+            final String to = PollingSchedule.formatSeconds(stage.endedAt - start);
+            final String duration = PollingSchedule.formatSeconds(stage.endedAt - stage.startedAt);
+            logger.log(stage.foreground
+                    ? Messages.Builder_Timings_Critical(stage.name, from, to, duration)
+                    : Messages.Builder_Timings_Background(stage.name, from, to, duration));
+        }
+    }
+
+    private Stage start(final String name, final boolean foreground) {
+        final Stage stage = new Stage(name, foreground, clock.getAsLong());
+        stages.add(stage);
+        return stage;
+    }
+
+    /**
+     * a running stage that ends when it is closed
+     */
+    final class Stage implements AutoCloseable {
+
+        private final String name;
+
+        private final boolean foreground;
+
+        private final long startedAt;
+
+        /**
+         * the time in milliseconds when the stage ended or {@code -1} while it
+         * is running
+         */
+        private volatile long endedAt = -1;
+
+        private Stage(final String name, final boolean foreground, final long startedAt) {
+            this.name = name;
+            this.foreground = foreground;
+            this.startedAt = startedAt;
+        }
+
+        private boolean isFinished() {
+            return endedAt >= 0;
+        }
+
+        @Override
+        public void close() {
+            if (!isFinished()) {
+                endedAt = clock.getAsLong();
+            }
+        }
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.AbortException;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamedThreadFactory;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Checks the tokens of all builds that wait for Dependency-Track to process
+ * their BOM. Instead of one polling loop per build, there is one scheduler
+ * thread for the whole controller and a small pool of threads that do the
+ * checks. The number of concurrent checks per Dependency-Track server is
+ * limited, so the load on a server does not grow with the number of waiting
+ * builds.
+ * <p>
+ * Every token keeps its own {@link PollingSchedule}. If the webhook is
+ * enabled, a {@code BOM_PROCESSED} notification triggers the next check right
+ * away. If Dependency-Track is unavailable, the check is repeated with the
+ * next scheduled one instead of retrying while holding a thread of the pool.
+ */
+final class TokenPoller {
+
+    /**
+     * the maximum number of concurrent checks against one server
+     */
+    static final int MAX_CONCURRENT_CHECKS_PER_SERVER = 2;
+
+    /**
+     * the maximum number of concurrent checks against all servers
+     */
+    private static final int MAX_CONCURRENT_CHECKS = 4;
+
+    private static final TokenPoller INSTANCE = new TokenPoller(MAX_CONCURRENT_CHECKS_PER_SERVER, WebhookReceiver::get);
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * does the checks. the threads are only kept while in use.
+     */
+    private final ExecutorService checker;
+
+    private final int maxConcurrentChecksPerServer;
+
+    private final Supplier<WebhookReceiver> webhook;
+
+    private final ConcurrentMap<String, Server> servers = new ConcurrentHashMap<>();
+
+    private final Set<Entry> entries = ConcurrentHashMap.newKeySet();
+
+    TokenPoller(final int maxConcurrentChecksPerServer, @NonNull final Supplier<WebhookReceiver> webhook) {
+        this.maxConcurrentChecksPerServer = maxConcurrentChecksPerServer;
+        this.webhook = webhook;
+        scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(new DaemonThreadFactory(), "Dependency-Track token scheduler"));
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_CONCURRENT_CHECKS, MAX_CONCURRENT_CHECKS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamedThreadFactory(new DaemonThreadFactory(), "Dependency-Track token poller"));
+        executor.allowCoreThreadTimeOut(true);
+        checker = executor;
+    }
+
+    static TokenPoller get() {
+        return INSTANCE;
+    }
+
+    /**
+     * starts checking a token
+     *
+     * @param watch what to check and how
+     * @return a future that is completed when Dependency-Track has processed
+     * the BOM. It is completed exceptionally with an {@link AbortException}
+     * if the deadline has passed or with an {@link ApiClientException} if a
+     * check failed for a reason that does not go away by checking again.
+     * Cancelling it stops the checks.
+     */
+    CompletableFuture<Void> watch(@NonNull final Watch watch) {
+        final Entry entry = new Entry(watch);
+        entries.add(entry);
+        // in case the future is cancelled
+        entry.future.whenComplete((result, failure) -> release(entry));
+        if (watch.isWebhookEnabled()) {
+            entry.subscription = webhook.get().subscribe(watch.getToken(), watch.getProjectId(), watch.getProjectName(), watch.getProjectVersion());
+            waitForNotification(entry);
+        }
+        schedule(entry, watch.getFirstDelay());
+        return entry.future;
+    }
+
+    /**
+     * @return the number of tokens being checked
+     */
+    int getWatchCount() {
+        return entries.size();
+    }
+
+    private void schedule(final Entry entry, final long delay) {
+        synchronized (entry) {
+            if (entry.future.isDone()) {
+                return;
+            }
+            if (entry.pending != null) {
+                entry.pending.cancel(false);
+            }
+            // the last check happens at the deadline at the latest
+            final long effectiveDelay = Math.min(delay, Math.max(entry.watch.getDeadline() - System.currentTimeMillis(), 0));
+            entry.pending = scheduler.schedule(() -> dispatch(entry), effectiveDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void dispatch(final Entry entry) {
+        synchronized (entry) {
+            if (entry.future.isDone()) {
+                return;
+            }
+            if (entry.checking) {
+                // a notification arrived during a check. check once more afterwards.
+                entry.recheck = true;
+                return;
+            }
+            entry.checking = true;
+        }
+        servers.computeIfAbsent(entry.watch.getUrl(), url -> new Server()).submit(entry);
+    }
+
+    private void check(final Entry entry) {
+        final Watch watch = entry.watch;
+        boolean recheck = false;
+        try {
+            if (entry.future.isDone()) {
+                return;
+            }
+            if (!watch.getClient().isTokenBeingProcessed(watch.getToken())) {
+                release(entry);
+                entry.future.complete(null);
+            } else if (watch.getDeadline() < System.currentTimeMillis()) {
+                watch.getLogger().log(Messages.Builder_Polling_Timeout_Exceeded());
+                release(entry);
+                entry.future.completeExceptionally(new AbortException(Messages.Builder_Polling_Timeout_Exceeded()));
+            } else {
+                schedule(entry, watch.getSchedule().nextDelay());
+            }
+        } catch (ApiClientException e) {
+            if (e.isRetryable() && watch.getDeadline() >= System.currentTimeMillis()) {
+                // the next check is the retry, no thread waits for it
+                final long delay = watch.getSchedule().nextDelay();
+                watch.getLogger().log(Messages.Builder_Polling_Retry(e.getLocalizedMessage(), PollingSchedule.formatSeconds(delay)));
+                schedule(entry, delay);
+            } else {
+                release(entry);
+                entry.future.completeExceptionally(e);
+            }
+        } catch (Exception | LinkageError e) {
+            release(entry);
+            entry.future.completeExceptionally(e);
+        } finally {
+            synchronized (entry) {
+                entry.checking = false;
+                recheck = entry.recheck;
+                entry.recheck = false;
+            }
+        }
+        if (recheck) {
+            schedule(entry, 0);
+        }
+        waitForNotification(entry);
+    }
+
+    /**
+     * stops everything that belongs to the entry. done before its future is
+     * completed, so that whoever waits for it sees a clean state.
+     */
+    private void release(final Entry entry) {
+        entries.remove(entry);
+        synchronized (entry) {
+            if (entry.pending != null) {
+                entry.pending.cancel(false);
+            }
+        }
+        final WebhookReceiver.Subscription subscription = entry.subscription;
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * checks right away once the next notification arrives
+     */
+    private void waitForNotification(final Entry entry) {
+        if (entry.subscription == null || entry.future.isDone()) {
+            return;
+        }
+        CompletableFuture<Void> notification = entry.subscription.nextNotification();
+        synchronized (entry) {
+            if (notification == entry.notification && notification.isDone()) {
+                // that one was handled already, the next one is what we are waiting for
+                notification = entry.subscription.nextNotification();
+            }
+            if (notification == entry.notification) {
+                return;
+            }
+            entry.notification = notification;
+        }
+        notification.thenRun(() -> {
+            if (!entry.future.isDone()) {
+                entry.watch.getLogger().log(Messages.Builder_Polling_Notified());
+                schedule(entry, 0);
+            }
+        });
+    }
+
+    /**
+     * what to check and how
+     */
+    @Value
+    @Builder
+    static class Watch {
+
+        /**
+         * the base url of the server, used to limit the concurrent checks per
+         * server
+         */
+        @NonNull
+        private final String url;
+
+        /**
+         * the token to check
+         */
+        @NonNull
+        private final String token;
+
+        /**
+         * the uuid of the project, if known. used to match notifications.
+         */
+        private final String projectId;
+
+        /**
+         * the name of the project, if known. used to match notifications.
+         */
+        private final String projectName;
+
+        /**
+         * the version of the project, if known. used to match notifications.
+         */
+        private final String projectVersion;
+
+        @NonNull
+        private final ApiClient client;
+
+        @NonNull
+        private final ConsoleLogger logger;
+
+        /**
+         * the delays between the checks after the first
+         */
+        @NonNull
+        private final PollingSchedule schedule;
+
+        /**
+         * the delay of the first check in milliseconds
+         */
+        private final long firstDelay;
+
+        /**
+         * the time in milliseconds since the epoch after which the checks are
+         * given up
+         */
+        private final long deadline;
+
+        /**
+         * whether to wait for BOM_PROCESSED notifications
+         */
+        private final boolean webhookEnabled;
+    }
+
+    private static final class Entry {
+
+        private final Watch watch;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        @CheckForNull
+        private volatile WebhookReceiver.Subscription subscription;
+        // guarded by this
+        private ScheduledFuture<?> pending;
+        private CompletableFuture<Void> notification;
+        private boolean checking;
+        private boolean recheck;
+
+        private Entry(final Watch watch) {
+            this.watch = watch;
+        }
+    }
+
+    /**
+     * limits the concurrent checks against one server. checks that exceed the
+     * limit wait in a queue and are done by the threads that are already
+     * checking tokens of that server.
+     */
+    private final class Server {
+
+        // guarded by this
+        private int running;
+        private final Queue<Entry> waiting = new ArrayDeque<>();
+
+        private void submit(final Entry entry) {
+            synchronized (this) {
+                if (running >= maxConcurrentChecksPerServer) {
+                    waiting.add(entry);
+                    return;
+                }
+                running++;
+            }
+            checker.execute(() -> run(entry));
+        }
+
+        private void run(final Entry first) {
+            Entry entry = first;
+            while (entry != null) {
+                check(entry);
+                synchronized (this) {
+                    entry = waiting.poll();
+                    if (entry == null) {
+                        running--;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.FilePath;
+import hudson.XmlFile;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamedThreadFactory;
+import hudson.util.Secret;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import jenkins.model.Jenkins;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import org.jenkinsci.plugins.DependencyTrack.model.UploadResult;
+
+/**
+ * Keeps the uploads of builds in asynchronous mode that could not reach
+ * Dependency-Track and uploads them later, so that the builds do not fail
+ * while Dependency-Track is unavailable.
+ * <p>
+ * Every upload is stored on the controller as a copy of the BOM and an XML
+ * file that describes where to upload it to. The API key is stored as
+ * {@link Secret}. The outbox is drained every minute by a small pool of
+ * threads. The uploads go through the {@link UploadScheduler} with
+ * {@link UploadPriority#LOW}, so that they do not crowd out the uploads of
+ * running builds. A failed upload is attempted again with an increasing delay
+ * and given up after a week.
+ */
+@Extension
+public final class UploadOutbox extends AsyncPeriodicWork {
+
+    /**
+     * the directory in the Jenkins home that holds the outbox
+     */
+    static final String DIRECTORY = "dependency-track-outbox";
+
+    /**
+     * the delay in milliseconds after the first failed attempt. It doubles
+     * with every further attempt.
+     */
+    static final long FIRST_RETRY_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * the maximum delay in milliseconds between two attempts
+     */
+    static final long MAX_RETRY_DELAY = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * the time in milliseconds after which an upload is given up
+     */
+    static final long MAX_AGE = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * the maximum number of concurrent uploads from the outbox to all servers
+     */
+    private static final int MAX_CONCURRENT_UPLOADS = 2;
+
+    private static final String ENTRY_SUFFIX = ".xml";
+
+    private static final String BOM_SUFFIX = ".bom";
+
+    private static final Logger LOGGER = Logger.getLogger(UploadOutbox.class.getName());
+
+    /**
+     * does the uploads. the threads are only kept while in use.
+     */
+    private final ExecutorService uploader;
+
+    @Setter(AccessLevel.PACKAGE)
+    private ApiClientFactory clientFactory = ApiClient::new;
+
+    /**
+     * the current time in milliseconds
+     */
+    @Setter(AccessLevel.PACKAGE)
+    private LongSupplier clock = System::currentTimeMillis;
+
+    public UploadOutbox() {
+        super("Dependency-Track upload outbox");
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_CONCURRENT_UPLOADS, MAX_CONCURRENT_UPLOADS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamedThreadFactory(new DaemonThreadFactory(), "Dependency-Track upload outbox"));
+        executor.allowCoreThreadTimeOut(true);
+        uploader = executor;
+    }
+
+    static UploadOutbox get() {
+        return ExtensionList.lookupSingleton(UploadOutbox.class);
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return TimeUnit.MINUTES.toMillis(1);
+    }
+
+    @Override
+    protected void execute(final TaskListener listener) throws InterruptedException {
+        drain(listener);
+    }
+
+    /**
+     * Stores an upload in the outbox. The artifact is copied, so that it may
+     * be deleted from the workspace right away.
+     *
+     * @param artifact the BOM to upload
+     * @param entry where to upload the BOM to
+     * @return the id of the entry
+     * @throws IOException if the upload could not be stored
+     * @throws InterruptedException if interrupted while copying the BOM
+     */
+    @NonNull
+    String enqueue(@NonNull final FilePath artifact, @NonNull final Entry entry) throws IOException, InterruptedException {
+        final File directory = getDirectory();
+        Files.createDirectories(directory.toPath());
+        final String id = UUID.randomUUID().toString();
+        artifact.copyTo(new FilePath(new File(directory, id + BOM_SUFFIX)));
+        entry.created = clock.getAsLong();
+        entry.nextAttempt = entry.created;
+        // the entry is written last, so that it is only picked up along with its BOM
+        getEntryFile(id).write(entry);
+        return id;
+    }
+
+    /**
+     * uploads all entries that are due and waits until they are done
+     *
+     * @param listener where to log to
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void drain(@NonNull final TaskListener listener) throws InterruptedException {
+        final long now = clock.getAsLong();
+        final List<Callable<Void>> uploads = getEntries().stream()
+                .filter(entry -> entry.nextAttempt <= now)
+                .map(entry -> (Callable<Void>) () -> {
+                    upload(entry, new ConsoleLogger(listener.getLogger()));
+                    return null;
+                })
+                .collect(Collectors.toList());
+        uploader.invokeAll(uploads);
+    }
+
+    /**
+     * @return the stored entries, oldest first
+     */
+    @NonNull
+    List<Entry> getEntries() {
+        final File[] files = getDirectory().listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(files)
+                .map(file -> read(file.getName().substring(0, file.getName().length() - ENTRY_SUFFIX.length())))
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingLong(Entry::getCreated))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param url the base url of the server
+     * @return the number of stored uploads to the server
+     */
+    int getQueuedCount(@NonNull final String url) {
+        return (int) getEntries().stream().filter(entry -> url.equals(entry.getUrl())).count();
+    }
+
+    private void upload(final Entry entry, final ConsoleLogger logger) throws InterruptedException {
+        final DescriptorImpl descriptor = ExtensionList.lookupSingleton(DescriptorImpl.class);
+        final File bom = new File(getDirectory(), entry.id + BOM_SUFFIX);
+        UploadResult result;
+        String reason = null;
+        try (UploadScheduler.Permit permit = UploadScheduler.get().acquire(entry.getUrl(), descriptor.getDependencyTrackMaxConcurrentUploads(),
+                UploadPriority.LOW, entry.getFolder(), logger)) {
+            final ApiClient apiClient = clientFactory.create(entry.getUrl(), Secret.toString(entry.getApiKey()), logger,
+                    descriptor.getDependencyTrackConnectionTimeout(), descriptor.getDependencyTrackReadTimeout());
+            apiClient.setCompressUploads(descriptor.isDependencyTrackCompressUploads());
+            result = apiClient.upload(entry.getProjectId(), entry.getProjectName(), entry.getProjectVersion(), new FilePath(bom), entry.isAutoCreateProject());
+        } catch (IOException e) {
+            result = new UploadResult(false);
+            reason = e.getLocalizedMessage();
+        }
+        if (result.isSuccess()) {
+            LOGGER.log(Level.INFO, "Uploaded the BOM of {0} to {1} after {2} attempts", new Object[]{entry.getRun(), entry.getUrl(), entry.attempts + 1});
+            delete(entry.id);
+            return;
+        }
+        if (reason == null && !result.isRetryable()) {
+            LOGGER.log(Level.WARNING, "Giving up uploading the BOM of {0} to {1}, Dependency-Track rejected it", new Object[]{entry.getRun(), entry.getUrl()});
+            delete(entry.id);
+            return;
+        }
+        failed(entry, reason != null ? reason : Messages.Builder_Upload_Failed());
+    }
+
+    private void failed(final Entry entry, final String reason) {
+        final long now = clock.getAsLong();
+        entry.attempts++;
+        entry.lastFailure = reason;
+        if (now - entry.created >= MAX_AGE) {
+            LOGGER.log(Level.WARNING, "Giving up uploading the BOM of {0} to {1} after {2} attempts: {3}", new Object[]{entry.getRun(), entry.getUrl(), entry.attempts, reason});
+            delete(entry.id);
+            return;
+        }
+        entry.nextAttempt = now + retryDelay(entry.attempts);
+        try {
+            getEntryFile(entry.id).write(entry);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to update the outbox entry " + entry.id, e);
+        }
+    }
+
+    /**
+     * @param attempts the number of failed attempts
+     * @return the delay in milliseconds before the next attempt
+     */
+    static long retryDelay(final int attempts) {
+        // no overflow, the delay is capped long before
+        return Math.min(FIRST_RETRY_DELAY << Math.min(attempts - 1, 16), MAX_RETRY_DELAY);
+    }
+
+    @CheckForNull
+    private Entry read(final String id) {
+        try {
+            final Entry entry = (Entry) getEntryFile(id).read();
+            entry.id = id;
+            return entry;
+        } catch (IOException | ClassCastException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the outbox entry " + id, e);
+            return null;
+        }
+    }
+
+    private void delete(final String id) {
+        for (File file : new File[]{getEntryFile(id).getFile(), new File(getDirectory(), id + BOM_SUFFIX)}) {
+            try {
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to delete " + file, e);
+            }
+        }
+    }
+
+    private XmlFile getEntryFile(final String id) {
+        return new XmlFile(new File(getDirectory(), id + ENTRY_SUFFIX));
+    }
+
+    private static File getDirectory() {
+        return new File(Jenkins.get().getRootDir(), DIRECTORY);
+    }
+
+    /**
+     * an upload that waits in the outbox
+     */
+    @Getter
+    @Builder
+    static final class Entry {
+
+        /**
+         * the name of the file, not stored in it
+         */
+        private transient String id;
+
+        /**
+         * the base url of the server
+         */
+        private final String url;
+
+        private final Secret apiKey;
+
+        private final String projectId;
+
+        private final String projectName;
+
+        private final String projectVersion;
+
+        private final boolean autoCreateProject;
+
+        /**
+         * the full name of the folder the job is in
+         */
+        private final String folder;
+
+        /**
+         * the build that published the BOM, for logging
+         */
+        private final String run;
+
+        /**
+         * the time in milliseconds since the epoch when the upload was stored
+         */
+        private long created;
+
+        private int attempts;
+
+        /**
+         * the time in milliseconds since the epoch after which the next
+         * attempt is due
+         */
+        private long nextAttempt;
+
+        /**
+         * why the last attempt failed
+         */
+        private String lastFailure;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+/**
+ * The order in which waiting uploads are sent to Dependency-Track, e.g. so
+ * that builds of release branches go ahead of builds of pull requests. The
+ * constants are ordered from highest to lowest priority.
+ */
+public enum UploadPriority {
+
+    HIGH,
+    NORMAL,
+    LOW;
+
+    /**
+     * @return the name shown in the job configuration
+     */
+    public String getDisplayName() {
+        switch (this) {
+            case HIGH:
+                return Messages.UploadPriority_High();
+            case LOW:
+                return Messages.UploadPriority_Low();
+            default:
+                return Messages.UploadPriority_Normal();
+        }
+    }
+}
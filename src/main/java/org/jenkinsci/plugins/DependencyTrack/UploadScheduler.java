@@ -0,0 +1,256 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Limits the number of concurrent uploads to each Dependency-Track server for
+ * the whole controller, so that many builds finishing at the same time do not
+ * flood the BOM processing queue of Dependency-Track.
+ * <p>
+ * Uploads that exceed the limit wait. Waiting uploads of a higher
+ * {@link UploadPriority} always go first. Within the same priority, the
+ * folders the jobs are in take turns, so that one folder with many builds
+ * cannot starve the others. Uploads from the same folder go in the order they
+ * arrived.
+ * <p>
+ * The number of concurrent uploads is adapted to the load of the server by
+ * its {@link ConcurrencyLimiter}, up to the configured maximum.
+ */
+final class UploadScheduler {
+
+    private static final UploadScheduler INSTANCE = new UploadScheduler(System::currentTimeMillis, ConcurrencyLimiter::forUrl);
+
+    /**
+     * the current time in milliseconds
+     */
+    private final LongSupplier clock;
+
+    /**
+     * the limiter of a server by its base url
+     */
+    private final Function<String, ConcurrencyLimiter> limiters;
+
+    private final ConcurrentMap<String, Server> servers = new ConcurrentHashMap<>();
+
+    UploadScheduler(@NonNull final LongSupplier clock, @NonNull final Function<String, ConcurrencyLimiter> limiters) {
+        this.clock = clock;
+        this.limiters = limiters;
+    }
+
+    static UploadScheduler get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Waits until the upload may start. The returned permit must be closed
+     * once the upload is done.
+     *
+     * @param url the base url of the server
+     * @param maxLimit the maximum number of concurrent uploads to the server
+     * @param priority the priority of the upload
+     * @param folder the full name of the folder the job is in
+     * @param logger where to report that the upload has to wait and for how
+     * long
+     * @return the permit to upload
+     * @throws InterruptedException if interrupted while waiting. The upload
+     * must not be done then.
+     */
+    Permit acquire(@NonNull final String url, final int maxLimit, @NonNull final UploadPriority priority, @NonNull final String folder, @NonNull final ConsoleLogger logger) throws InterruptedException {
+        final Server server = servers.computeIfAbsent(url, u -> new Server(limiters.apply(u)));
+        final long start = clock.getAsLong();
+        final Waiter waiter = new Waiter();
+        synchronized (server) {
+            server.limiter.setMaxLimit(maxLimit);
+            if (server.running < server.limiter.getLimit() && server.isEmpty()) {
+                server.running++;
+                return new Permit(server, 0);
+            }
+            server.enqueue(priority, folder, waiter);
+            logger.log(Messages.Builder_Upload_Queued(server.running, server.limiter.getLimit(), priority.name()));
+            server.dispatch();
+        }
+        try {
+            waiter.granted.await();
+        } catch (InterruptedException e) {
+            synchronized (server) {
+                if (!server.remove(priority, folder, waiter)) {
+                    // granted in the meantime. pass it on.
+                    server.running--;
+                    server.dispatch();
+                }
+            }
+            throw e;
+        }
+        final long waitTime = clock.getAsLong() - start;
+        logger.log(Messages.Builder_Upload_Dequeued(PollingSchedule.formatSeconds(waitTime)));
+        return new Permit(server, waitTime);
+    }
+
+    /**
+     * @param url the base url of the server
+     * @return the number of uploads to the server that are waiting
+     */
+    int getWaitingCount(@NonNull final String url) {
+        final Server server = servers.get(url);
+        if (server == null) {
+            return 0;
+        }
+        synchronized (server) {
+            return server.size();
+        }
+    }
+
+    /**
+     * @param url the base url of the server
+     * @return the number of uploads to the server that are running
+     */
+    int getRunningCount(@NonNull final String url) {
+        final Server server = servers.get(url);
+        if (server == null) {
+            return 0;
+        }
+        synchronized (server) {
+            return server.running;
+        }
+    }
+
+    /**
+     * allows one upload. closing it lets the next waiting upload start.
+     */
+    final class Permit implements AutoCloseable {
+
+        private final Server server;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * the time in milliseconds the upload had to wait
+         */
+        @Getter
+        private final long waitTime;
+
+        private Permit(final Server server, final long waitTime) {
+            this.server = server;
+            this.waitTime = waitTime;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                synchronized (server) {
+                    server.running--;
+                    server.dispatch();
+                }
+            }
+        }
+    }
+
+    private static final class Waiter {
+
+        private final CountDownLatch granted = new CountDownLatch(1);
+    }
+
+    private static final class Server {
+
+        private final ConcurrencyLimiter limiter;
+
+        // guarded by this
+        private int running;
+
+        /**
+         * the waiting uploads per priority and folder. the folders are in the
+         * order in which they take turns.
+         */
+        private final Map<UploadPriority, LinkedHashMap<String, Deque<Waiter>>> waiting = new EnumMap<>(UploadPriority.class);
+
+        private Server(final ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        private void enqueue(final UploadPriority priority, final String folder, final Waiter waiter) {
+            waiting.computeIfAbsent(priority, p -> new LinkedHashMap<>())
+                    .computeIfAbsent(folder, f -> new ArrayDeque<>())
+                    .add(waiter);
+        }
+
+        private boolean remove(final UploadPriority priority, final String folder, final Waiter waiter) {
+            final LinkedHashMap<String, Deque<Waiter>> folders = waiting.get(priority);
+            final Deque<Waiter> queue = folders != null ? folders.get(folder) : null;
+            if (queue == null || !queue.remove(waiter)) {
+                return false;
+            }
+            if (queue.isEmpty()) {
+                folders.remove(folder);
+            }
+            return true;
+        }
+
+        /**
+         * lets waiting uploads start as long as the limit allows
+         */
+        private void dispatch() {
+            while (running < limiter.getLimit()) {
+                final Waiter next = poll();
+                if (next == null) {
+                    return;
+                }
+                running++;
+                next.granted.countDown();
+            }
+        }
+
+        private Waiter poll() {
+            // the constants of UploadPriority are ordered from highest to lowest
+            for (LinkedHashMap<String, Deque<Waiter>> folders : waiting.values()) {
+                final Iterator<Map.Entry<String, Deque<Waiter>>> it = folders.entrySet().iterator();
+                if (it.hasNext()) {
+                    final Map.Entry<String, Deque<Waiter>> first = it.next();
+                    final Waiter next = first.getValue().poll();
+                    it.remove();
+                    if (!first.getValue().isEmpty()) {
+                        // the folder goes to the end of the line
+                        folders.put(first.getKey(), first.getValue());
+                    }
+                    return next;
+                }
+            }
+            return null;
+        }
+
+        private boolean isEmpty() {
+            return size() == 0;
+        }
+
+        private int size() {
+            return waiting.values().stream().flatMap(folders -> folders.values().stream()).mapToInt(Deque::size).sum();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.UnprotectedRootAction;
+import hudson.security.csrf.CrumbExclusion;
+import hudson.util.HttpResponses;
+import hudson.util.Secret;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+/**
+ * Receives {@code BOM_PROCESSED} notifications from Dependency-Track, so that
+ * builds waiting for their BOM to be processed can continue right away
+ * instead of waiting for the next check.
+ * <p>
+ * Dependency-Track cannot sign its notifications, so the webhook must be
+ * called with the configured secret as query parameter {@code secret}, e.g.
+ * {@code https://jenkins.example.com/dependency-track-webhook/?secret=...}.
+ * <p>
+ * A notification only wakes up the matching builds. Whether the BOM was
+ * processed is still confirmed with the token of the upload, so that a
+ * notification that does not contain a token or that is meant for another
+ * upload of the same project does no harm.
+ */
+@Extension
+public final class WebhookReceiver implements UnprotectedRootAction {
+
+    static final String URL_NAME = "dependency-track-webhook";
+
+    static final String SECRET_PARAM = "secret";
+
+    private static final String BOM_PROCESSED = "BOM_PROCESSED";
+
+    private static final Logger LOGGER = Logger.getLogger(WebhookReceiver.class.getName());
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    /**
+     * handles a notification from Dependency-Track
+     *
+     * @param req the request
+     * @return 200 if the notification was accepted, 403 if the secret is
+     * wrong, 404 if the webhook is disabled
+     * @throws IOException if the body could not be read
+     */
+    @RequirePOST
+    public HttpResponse doIndex(final StaplerRequest req) throws IOException {
+        final Secret secret = getDescriptor().getDependencyTrackWebhookSecret();
+        if (secret == null || StringUtils.isEmpty(secret.getPlainText())) {
+            return HttpResponses.notFound();
+        }
+        final byte[] expected = secret.getPlainText().getBytes(StandardCharsets.UTF_8);
+        final byte[] actual = StringUtils.defaultString(req.getParameter(SECRET_PARAM)).getBytes(StandardCharsets.UTF_8);
+        // constant time comparison, so that the secret cannot be guessed by measuring the response time
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return HttpResponses.status(HttpServletResponse.SC_FORBIDDEN);
+        }
+        final JSONObject notification;
+        try (Reader body = req.getReader()) {
+            notification = JSONObject.fromObject(IOUtils.toString(body)).optJSONObject("notification");
+        } catch (JSONException e) {
+            return HttpResponses.errorWithoutStack(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        }
+        if (notification != null && BOM_PROCESSED.equals(notification.optString("group"))) {
+            final JSONObject subject = Optional.ofNullable(notification.optJSONObject("subject")).orElseGet(JSONObject::new);
+            final JSONObject project = Optional.ofNullable(subject.optJSONObject("project")).orElseGet(JSONObject::new);
+            final int notified = notify(StringUtils.trimToNull(subject.optString("token")), StringUtils.trimToNull(project.optString("uuid")),
+                    StringUtils.trimToNull(project.optString("name")), StringUtils.trimToNull(project.optString("version")));
+            LOGGER.log(Level.FINE, "BOM_PROCESSED for project {0} woke up {1} waiting build(s)", new Object[]{project.optString("uuid"), notified});
+        }
+        return HttpResponses.ok();
+    }
+
+    /**
+     * wakes up all subscriptions that match the notification
+     *
+     * @param token the token of the upload, if Dependency-Track sent it
+     * @param projectId the uuid of the project
+     * @param projectName the name of the project
+     * @param projectVersion the version of the project
+     * @return the number of subscriptions woken up
+     */
+    int notify(@CheckForNull final String token, @CheckForNull final String projectId, @CheckForNull final String projectName, @CheckForNull final String projectVersion) {
+        int count = 0;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.matches(token, projectId, projectName, projectVersion)) {
+                subscription.wakeUp();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * subscribes to notifications for an upload. The subscription must be
+     * closed when it is no longer needed.
+     *
+     * @param token the token of the upload
+     * @param projectId the uuid of the project, if known
+     * @param projectName the name of the project, if known
+     * @param projectVersion the version of the project, if known
+     * @return a new subscription
+     */
+    Subscription subscribe(final String token, @CheckForNull final String projectId, @CheckForNull final String projectName, @CheckForNull final String projectVersion) {
+        final Subscription subscription = new Subscription(token, projectId, projectName, projectVersion);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * @return the number of open subscriptions
+     */
+    int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    static WebhookReceiver get() {
+        return ExtensionList.lookupSingleton(WebhookReceiver.class);
+    }
+
+    private static DescriptorImpl getDescriptor() {
+        return ExtensionList.lookupSingleton(DescriptorImpl.class);
+    }
+
+    /**
+     * a build that waits for Dependency-Track to process its BOM
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    final class Subscription implements AutoCloseable {
+
+        @Getter(AccessLevel.PACKAGE)
+        private final String token;
+        private final String projectId;
+        private final String projectName;
+        private final String projectVersion;
+        private volatile CompletableFuture<Void> notification = new CompletableFuture<>();
+
+        private boolean matches(final String notifiedToken, final String notifiedProjectId, final String notifiedProjectName, final String notifiedProjectVersion) {
+            if (notifiedToken != null) {
+                return notifiedToken.equals(token);
+            }
+            return (projectId != null && projectId.equals(notifiedProjectId))
+                    || (projectName != null && projectName.equals(notifiedProjectName) && StringUtils.equals(projectVersion, notifiedProjectVersion));
+        }
+
+        private void wakeUp() {
+            notification.complete(null);
+        }
+
+        /**
+         * @return a future that is completed by the next notification. A
+         * notification that arrived since the last call completes it right
+         * away.
+         */
+        CompletableFuture<Void> nextNotification() {
+            final CompletableFuture<Void> current = notification;
+            if (current.isDone()) {
+                notification = new CompletableFuture<>();
+            }
+            return current;
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+        }
+    }
+
+    /**
+     * Dependency-Track does not know about crumbs
+     */
+    @Extension
+    public static final class CrumbExclusionImpl extends CrumbExclusion {
+
+        @Override
+        public boolean process(final HttpServletRequest req, final HttpServletResponse resp, final FilterChain chain) throws IOException, ServletException {
+            final String pathInfo = req.getPathInfo();
+            if (pathInfo != null && (pathInfo.equals("/" + URL_NAME) || pathInfo.startsWith("/" + URL_NAME + "/"))) {
+                chain.doFilter(req, resp);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack.model;
+
+import java.io.Serializable;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * the current metrics of a project, i.e. the number of its vulnerabilities per
+ * severity. suppressed findings are not counted.
+ */
+@Value
+@Builder
+public class ProjectMetrics implements Serializable {
+
+    private static final long serialVersionUID = -4818946260343419187L;
+
+    private int critical;
+    private int high;
+    private int medium;
+    private int low;
+    private int unassigned;
+
+    /**
+     * the time in milliseconds since the epoch when DT last calculated the
+     * metrics
+     */
+    private long lastOccurrence;
+
+    /**
+     * the time in milliseconds since the epoch according to the clock of DT
+     * when it answered with the metrics, or {@code 0} if DT did not tell
+     */
+    private long serverTime;
+}
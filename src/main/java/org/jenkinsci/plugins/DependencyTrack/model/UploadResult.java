@@ -15,21 +15,34 @@
  */
 package org.jenkinsci.plugins.DependencyTrack.model;
 
+import java.io.Serializable;
 import lombok.Value;
 
 @Value
-public class UploadResult {
+public class UploadResult implements Serializable {
+
+	private static final long serialVersionUID = -3165237849614758124L;
 
 	private final boolean success;
 	private final String token;
+	/**
+	 * whether a failed upload may succeed later, because Dependency-Track
+	 * could not be reached, was overloaded or failed itself
+	 */
+	private final boolean retryable;
 
 	public UploadResult(boolean success) {
 		this(success, null);
 	}
 
 	public UploadResult(boolean success, String token) {
+		this(success, token, false);
+	}
+
+	public UploadResult(boolean success, String token, boolean retryable) {
 		this.success = success;
 		this.token = token;
+		this.retryable = retryable;
 	}
 
 }
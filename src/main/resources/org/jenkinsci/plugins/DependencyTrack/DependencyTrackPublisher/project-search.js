@@ -0,0 +1,90 @@
+/* global Behaviour, Ajax, findNearBy */
+'use strict';
+
+/*
+Type-ahead for the project of the job configuration. Searches the projects in Dependency-Track by name and sets the
+uuid of the chosen project as value of the field.
+*/
+Behaviour.specify('INPUT.dt-project-search', 'dt-project-search', 0, input => {
+    const DEBOUNCE_MS = 300;
+    const MIN_QUERY_LENGTH = 2;
+    const results = document.createElement('ul');
+    results.className = 'dt-project-search-results';
+    results.style.display = 'none';
+    input.parentNode.appendChild(results);
+    input.setAttribute('autocomplete', 'off');
+
+    let timer = null;
+    let latestRequest = 0;
+
+    const hide = () => {
+        results.style.display = 'none';
+        results.innerHTML = '';
+    };
+
+    const choose = project => {
+        input.value = project.value;
+        hide();
+        // re-validates the field, which shows the name of the chosen project
+        input.dispatchEvent(new Event('change'));
+    };
+
+    const show = projects => {
+        results.innerHTML = '';
+        projects.forEach(project => {
+            const item = document.createElement('li');
+            item.textContent = project.name;
+            item.title = project.value;
+            // mousedown instead of click, so that it happens before the input loses focus
+            item.addEventListener('mousedown', event => {
+                event.preventDefault();
+                choose(project);
+            });
+            results.appendChild(item);
+        });
+        results.style.display = projects.length ? 'block' : 'none';
+    };
+
+    const search = query => {
+        const request = ++latestRequest;
+        const parameters = {q: query};
+        // the job may override the global url and api key
+        ['dependencyTrackUrl', 'dependencyTrackApiKey'].forEach(name => {
+            const field = findNearBy(input, name);
+            if (field) {
+                parameters[name] = field.value;
+            }
+        });
+        new Ajax.Request(input.getAttribute('data-search-url'), {
+            method: 'post',
+            parameters,
+            onSuccess: rsp => {
+                // drop responses to outdated queries
+                if (request === latestRequest && rsp.responseJSON && rsp.responseJSON.status === 'ok') {
+                    show(rsp.responseJSON.data || []);
+                }
+            }
+        });
+    };
+
+    input.addEventListener('input', () => {
+        window.clearTimeout(timer);
+        const query = input.value.trim();
+        if (query.length < MIN_QUERY_LENGTH) {
+            latestRequest++;
+            hide();
+            return;
+        }
+        timer = window.setTimeout(() => search(query), DEBOUNCE_MS);
+    });
+    input.addEventListener('keydown', event => {
+        if (event.key === 'Escape') {
+            hide();
+        } else if (event.key === 'Enter' && results.firstChild) {
+            // prevents submitting the form
+            event.preventDefault();
+            results.firstChild.dispatchEvent(new MouseEvent('mousedown'));
+        }
+    });
+    input.addEventListener('blur', hide);
+});
@@ -15,22 +15,32 @@
  */
 package org.jenkinsci.plugins.DependencyTrack;
 
+import com.sun.management.ThreadMXBean;
 import hudson.FilePath;
+import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.QueryStringDecoder;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.Month;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.List;
-import org.assertj.core.api.InstanceOfAssertFactories;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.io.IOUtils;
 import org.jenkinsci.plugins.DependencyTrack.model.Project;
+import org.jenkinsci.plugins.DependencyTrack.model.ProjectMetrics;
 import org.jenkinsci.plugins.DependencyTrack.model.UploadResult;
 import org.junit.After;
 import org.junit.Rule;
@@ -44,13 +54,16 @@ import reactor.core.publisher.Mono;
 import reactor.netty.DisposableServer;
 import reactor.netty.http.server.HttpServer;
 
-import static org.assertj.core.api.Assertions.as;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.entry;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.matches;
 import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -134,40 +147,96 @@ public class ApiClientTest {
         verify(logger).log(eq("something went wrong"));
     }
 
-    @Test()
-    public void getProjectsTest() throws ApiClientException {
+    @Test
+    public void connectionIsReusedTest() throws ApiClientException {
+        final AtomicInteger acceptedConnections = new AtomicInteger();
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .doOnChannelInit((observer, channel, remoteAddress) -> acceptedConnections.incrementAndGet())
+                .route(routes -> routes
+                        .get(ApiClient.PROJECT_URL, (request, response) -> response.addHeader("X-Powered-By", "Dependency-Track v3.8.0").sendString(Mono.just("[]")))
+                        .get(ApiClient.BOM_TOKEN_URL + "/{uuid}", (request, response) -> response.sendString(Mono.just("{\"processing\":false}")))
+                        .get(ApiClient.PROJECT_FINDINGS_URL + "/{uuid}", (request, response) -> response.status(HttpResponseStatus.NOT_FOUND).sendString(Mono.just("not found")))
+                )
+                .bindNow();
+
+        ApiClient uut = createClient();
+
+        assertThat(uut.testConnection()).isEqualTo("Dependency-Track v3.8.0");
+        for (int i = 0; i < 5; i++) {
+            assertThat(uut.isTokenBeingProcessed("uuid-1")).isFalse();
+        }
+        assertThatCode(() -> uut.getFindings("uuid-1")).isInstanceOf(ApiClientException.class);
+        assertThat(uut.searchProjects("proj", 20)).isEmpty();
+        assertThat(createClient().isTokenBeingProcessed("uuid-1")).isFalse();
+
+        assertThat(acceptedConnections).hasValue(1);
+    }
+
+    @Test
+    public void warmUpTest() throws ApiClientException {
+        final AtomicInteger acceptedConnections = new AtomicInteger();
+        final AtomicInteger versionRequests = new AtomicInteger();
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .doOnChannelInit((observer, channel, remoteAddress) -> acceptedConnections.incrementAndGet())
+                .route(routes -> routes
+                        .get(ApiClient.VERSION_URL, (request, response) -> {
+                            versionRequests.incrementAndGet();
+                            return response.sendString(Mono.just("{\"version\":\"4.5.0\"}"));
+                        })
+                        .get(ApiClient.BOM_TOKEN_URL + "/{uuid}", (request, response) -> response.sendString(Mono.just("{\"processing\":false}")))
+                )
+                .bindNow();
+
+        ApiClient uut = createClient();
+
+        uut.warmUp();
+        assertThat(uut.isTokenBeingProcessed("uuid-1")).isFalse();
+
+        assertThat(versionRequests).hasValue(1);
+        // the request after the warm-up used the same connection
+        assertThat(acceptedConnections).hasValue(1);
+    }
+
+    @Test
+    public void searchProjectsTest() throws ApiClientException {
         server = HttpServer.create()
                 .host("localhost")
                 .port(0)
                 .route(routes -> routes.get(ApiClient.PROJECT_URL, (request, response) -> {
-                    assertThat(request.requestHeaders().contains(ApiClient.API_KEY_HEADER, API_KEY, false)).isTrue();
-                    assertThat(request.requestHeaders().contains(HttpHeaderNames.ACCEPT, HttpHeaderValues.APPLICATION_JSON, true)).isTrue();
                     QueryStringDecoder query = new QueryStringDecoder(request.uri());
                     assertThat(query.parameters())
-                            .contains(entry("limit", Collections.singletonList("500")), entry("excludeInactive", Collections.singletonList("true")))
-                            .containsKey("page").extractingByKey("page", as(InstanceOfAssertFactories.list(String.class)))
-                            .hasSize(1).first().satisfies(p -> {
-                        assertThat(Integer.valueOf(p)).isBetween(1, 3);
-                    });
-                    int page = Integer.valueOf(query.parameters().get("page").get(0));
-                    switch (page) {
-                        case 1:
-                            return response.sendString(Mono.just("[{\"name\":\"Project 1\",\"uuid\":\"uuid-1\",\"version\":null},{\"name\":\"Project 2\",\"uuid\":\"uuid-2\",\"version\":\"null\"}]"));
-                        case 2:
-                            return response.sendString(Mono.just("[{\"name\":\"Project 3\",\"uuid\":\"uuid-3\",\"version\":\"1.2.3\",\"lastBomImportStr\":\"2007-12-03T10:15:30\",\"tags\":[{\"name\":\"tag1\"},{\"name\":\"tag2\"},{\"name\":null}]}]"));
-                    }
-                    return response.sendNotFound();
+                            .contains(entry("limit", Collections.singletonList("20")), entry("page", Collections.singletonList("1")),
+                                    entry("excludeInactive", Collections.singletonList("true")), entry(ApiClient.PROJECT_SEARCH_PARAM, Collections.singletonList("my proj")));
+                    return response.sendString(Mono.just("[{\"name\":\"my project\",\"uuid\":\"uuid-1\",\"version\":\"1.0\"}]"));
                 }))
                 .bindNow();
 
         ApiClient uut = createClient();
-        final List<Project> projects = uut.getProjects();
 
-        assertThat(projects).containsExactly(
-                Project.builder().name("Project 1").uuid("uuid-1").tags(Collections.emptyList()).build(),
-                Project.builder().name("Project 2").uuid("uuid-2").tags(Collections.emptyList()).build(),
-                Project.builder().name("Project 3").uuid("uuid-3").version("1.2.3").tags(Arrays.asList("tag1", "tag2")).lastBomImport(LocalDateTime.of(2007, Month.DECEMBER, 3, 10, 15, 30)).build()
-        );
+        assertThat(uut.searchProjects("my proj", 20)).containsExactly(Project.builder().name("my project").uuid("uuid-1").version("1.0").tags(Collections.emptyList()).build());
+    }
+
+    @Test
+    public void getProjectTest() throws ApiClientException {
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get(ApiClient.PROJECT_URL + "/uuid-1", (request, response) -> response.sendString(Mono.just("{\"name\":\"my project\",\"uuid\":\"uuid-1\",\"version\":\"1.0\"}")))
+                        .get(ApiClient.PROJECT_URL + "/uuid-2", (request, response) -> response.status(HttpResponseStatus.NOT_FOUND).send())
+                        .get(ApiClient.PROJECT_URL + "/uuid-3", (request, response) -> response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).send())
+                )
+                .bindNow();
+
+        ApiClient uut = createClient();
+
+        assertThat(uut.getProject("uuid-1")).isEqualTo(Project.builder().name("my project").uuid("uuid-1").version("1.0").tags(Collections.emptyList()).build());
+        assertThat(uut.getProject("uuid-2")).isNull();
+        assertThatCode(() -> uut.getProject("uuid-3")).isInstanceOf(ApiClientException.class);
     }
 
     @Test
@@ -223,6 +292,85 @@ public class ApiClientTest {
         assertThat(uut.getFindings("uuid-1")).isEmpty();
     }
 
+    @Test
+    public void getCurrentMetricsTest() throws ApiClientException {
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get(ApiClient.PROJECT_METRICS_URL + "/{uuid}/current", (request, response) -> {
+                    assertThat(request.requestHeaders().contains(ApiClient.API_KEY_HEADER, API_KEY, false)).isTrue();
+                    switch (request.param("uuid")) {
+                        case "uuid-1":
+                            return response.header(HttpHeaderNames.DATE, "Sun, 13 Sep 2020 12:30:00 GMT").sendString(Mono.just("{\"critical\":1,\"high\":2,\"medium\":3,\"low\":4,\"unassigned\":5,\"vulnerabilities\":15,"
+                                    + "\"suppressed\":6,\"firstOccurrence\":1600000000000,\"lastOccurrence\":1600000060000}"));
+                        case "uuid-2":
+                            // DT has not calculated any metrics for the project yet
+                            return response.status(HttpResponseStatus.NO_CONTENT).send();
+                        default:
+                            return response.sendNotFound();
+                    }
+                }))
+                .bindNow();
+
+        ApiClient uut = createClient();
+
+        assertThat(uut.getCurrentMetrics("uuid-1")).isEqualTo(ProjectMetrics.builder()
+                .critical(1).high(2).medium(3).low(4).unassigned(5).lastOccurrence(1600000060000L).serverTime(1600000200000L).build());
+        assertThat(uut.getCurrentMetrics("uuid-2")).isNull();
+        assertThatCode(() -> uut.getCurrentMetrics("foo")).isInstanceOf(ApiClientException.class)
+                .hasMessage("An error occurred while retrieving the metrics of the project - HTTP response code: 404 Not Found")
+                .extracting("responseCode").isEqualTo(404);
+    }
+
+    @Test
+    public void getFindingsCompressedTest() throws ApiClientException, IOException {
+        final String findings = new String(Files.readAllBytes(new File("src/test/resources/findings.json").toPath()), StandardCharsets.UTF_8);
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .compress(true)
+                .route(routes -> routes.get(ApiClient.PROJECT_FINDINGS_URL + "/{uuid}", (request, response) -> {
+                    assertThat(request.requestHeaders().contains(HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderValues.GZIP, true)).isTrue();
+                    return response.sendString(Mono.just(findings));
+                }))
+                .bindNow();
+
+        ApiClient uut = createClient();
+
+        assertThat(uut.getFindings("uuid-1")).isEqualTo(FindingParser.parse(new StringReader(findings)));
+        verify(logger).log(matches("Received .+ bytes of findings as .+ compressed bytes \\(\\d+% saved\\)"));
+    }
+
+    @Test
+    public void uploadTestCompressed() throws IOException, InterruptedException {
+        File bom = tmpDir.newFile();
+        Files.write(bom.toPath(), "<test />".getBytes(StandardCharsets.UTF_8));
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.post(ApiClient.BOM_URL, (request, response) -> {
+                    assertThat(request.requestHeaders().contains(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP, true)).isTrue();
+                    return response.sendString(
+                            request.receive().aggregate().asByteArray()
+                            .map(body -> {
+                                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                                    return IOUtils.toString(in, StandardCharsets.UTF_8);
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            })
+                            .filter(body -> body.contains("\r\n\r\n<test />\r\n"))
+                            .map(body -> "{\"token\":\"uuid-1\"}")
+                    );
+                }))
+                .bindNow();
+
+        ApiClient uut = createClient();
+        uut.setCompressUploads(true);
+        assertThat(uut.upload("uuid-1", null, null, new FilePath(bom), false)).isEqualTo(new UploadResult(true, "uuid-1"));
+        verify(logger).log(startsWith("Sent "));
+    }
+
     @Test
     public void uploadTestWithUuid() throws IOException, InterruptedException {
         File bom = tmpDir.newFile();
@@ -230,7 +378,8 @@ public class ApiClientTest {
         server = HttpServer.create()
                 .host("localhost")
                 .port(0)
-                .route(routes -> routes.put(ApiClient.BOM_URL, (request, response) -> {
+                .route(routes -> routes.post(ApiClient.BOM_URL, (request, response) -> response.status(HttpResponseStatus.METHOD_NOT_ALLOWED).send())
+                        .put(ApiClient.BOM_URL, (request, response) -> {
                     assertThat(request.requestHeaders().contains(ApiClient.API_KEY_HEADER, API_KEY, false)).isTrue();
                     assertThat(request.requestHeaders().contains(HttpHeaderNames.ACCEPT, HttpHeaderValues.APPLICATION_JSON, true)).isTrue();
                     assertThat(request.requestHeaders().contains(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON, true)).isTrue();
@@ -246,6 +395,7 @@ public class ApiClientTest {
 
         ApiClient uut = createClient();
         assertThat(uut.upload("uuid-1", null, null, new FilePath(bom), false)).isEqualTo(new UploadResult(true, "uuid-1"));
+        verify(logger).log(eq(Messages.ApiClient_Upload_MultipartFallback()));
         
         File mockFile = mock(File.class);
         when(mockFile.getPath()).thenReturn(tmpDir.getRoot().getPath());
@@ -253,6 +403,33 @@ public class ApiClientTest {
         assertThat(uut.upload(null, "p1", "v1", fileWithError, true)).isEqualTo(new UploadResult(false));
     }
 
+    @Test
+    public void uploadTestMultipartRetried() throws IOException, InterruptedException {
+        File bom = tmpDir.newFile();
+        Files.write(bom.toPath(), "<test />".getBytes(StandardCharsets.UTF_8));
+        final AtomicInteger multipartAttempts = new AtomicInteger();
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.post(ApiClient.BOM_URL, (request, response) -> {
+                    multipartAttempts.incrementAndGet();
+                    return response.status(HttpResponseStatus.METHOD_NOT_ALLOWED).send();
+                }).put(ApiClient.BOM_URL, (request, response) -> response.sendString(request.receive().then(Mono.just("{\"token\":\"uuid-1\"}")))))
+                .bindNow();
+
+        // the rejection is remembered
+        ApiClient uut = createClient();
+        assertThat(uut.upload("uuid-1", null, null, new FilePath(bom), false)).isEqualTo(new UploadResult(true, "uuid-1"));
+        assertThat(uut.upload("uuid-1", null, null, new FilePath(bom), false)).isEqualTo(new UploadResult(true, "uuid-1"));
+        assertThat(multipartAttempts).hasValue(1);
+
+        // but not forever
+        uut.setMultipartRetryInterval(0);
+        assertThat(uut.upload("uuid-1", null, null, new FilePath(bom), false)).isEqualTo(new UploadResult(true, "uuid-1"));
+        assertThat(multipartAttempts).hasValue(2);
+        verify(logger, times(2)).log(eq(Messages.ApiClient_Upload_MultipartFallback()));
+    }
+
     @Test
     public void uploadTestWithName() throws IOException, InterruptedException {
         File bom = tmpDir.newFile();
@@ -260,7 +437,8 @@ public class ApiClientTest {
         server = HttpServer.create()
                 .host("localhost")
                 .port(0)
-                .route(routes -> routes.put(ApiClient.BOM_URL, (request, response) -> {
+                .route(routes -> routes.post(ApiClient.BOM_URL, (request, response) -> response.status(HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE).send())
+                        .put(ApiClient.BOM_URL, (request, response) -> {
                     assertThat(request.requestHeaders().contains(ApiClient.API_KEY_HEADER, API_KEY, false)).isTrue();
                     assertThat(request.requestHeaders().contains(HttpHeaderNames.ACCEPT, HttpHeaderValues.APPLICATION_JSON, true)).isTrue();
                     assertThat(request.requestHeaders().contains(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON, true)).isTrue();
@@ -276,30 +454,98 @@ public class ApiClientTest {
 
         ApiClient uut = createClient();
         assertThat(uut.upload(null, "p1", "v1", new FilePath(bom), false)).isEqualTo(new UploadResult(true));
+        verify(logger).log(eq(Messages.ApiClient_Upload_MultipartFallback()));
+    }
+
+    @Test
+    public void uploadTestMultipart() throws IOException, InterruptedException {
+        File bom = tmpDir.newFile();
+        Files.write(bom.toPath(), "<test />".getBytes(StandardCharsets.UTF_8));
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.post(ApiClient.BOM_URL, (request, response) -> {
+                    assertThat(request.requestHeaders().contains(ApiClient.API_KEY_HEADER, API_KEY, false)).isTrue();
+                    assertThat(request.requestHeaders().contains(HttpHeaderNames.ACCEPT, HttpHeaderValues.APPLICATION_JSON, true)).isTrue();
+                    assertThat(request.requestHeaders().get(HttpHeaderNames.CONTENT_TYPE)).startsWith("multipart/form-data; boundary=");
+                    assertThat(request.requestHeaders().contains(HttpHeaderNames.CONTENT_LENGTH)).isTrue();
+                    return response.sendString(
+                            request.receive().aggregate().asString(StandardCharsets.UTF_8)
+                            .filter(body -> body.contains("name=\"projectName\"\r\nContent-Type: text/plain; charset=UTF-8\r\n\r\np1\r\n"))
+                            .filter(body -> body.contains("name=\"projectVersion\"\r\nContent-Type: text/plain; charset=UTF-8\r\n\r\nv1\r\n"))
+                            .filter(body -> body.contains("name=\"autoCreate\"\r\nContent-Type: text/plain; charset=UTF-8\r\n\r\ntrue\r\n"))
+                            .filter(body -> body.contains("name=\"bom\"; filename=\"" + bom.getName() + "\"\r\nContent-Type: application/octet-stream\r\n\r\n<test />\r\n"))
+                            .map(body -> "{\"token\":\"uuid-1\"}")
+                    );
+                }))
+                .bindNow();
+
+        ApiClient uut = createClient();
+        assertThat(uut.upload(null, "p1", "v1", new FilePath(bom), true)).isEqualTo(new UploadResult(true, "uuid-1"));
+        verify(logger, never()).log(eq(Messages.ApiClient_Upload_MultipartFallback()));
+    }
+
+    @Test
+    public void uploadTestWithLargeBom() throws IOException, InterruptedException {
+        // a sparse file takes no time to create but the BOM would occupy several times its size on the heap if it were not streamed
+        final long bomSize = 256L * 1024 * 1024;
+        File bom = tmpDir.newFile();
+        try (RandomAccessFile raf = new RandomAccessFile(bom, "rw")) {
+            raf.setLength(bomSize);
+        }
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.post(ApiClient.BOM_URL, (request, response) -> {
+                    final long contentLength = Long.parseLong(request.requestHeaders().get(HttpHeaderNames.CONTENT_LENGTH));
+                    assertThat(contentLength).isGreaterThan(bomSize);
+                    return response.sendString(
+                            request.receive()
+                            .map(ByteBuf::readableBytes)
+                            .reduce(0L, (total, length) -> total + length)
+                            .map(total -> String.format("{\"token\":\"%s\"}", total == contentLength ? "complete" : "incomplete"))
+                    );
+                }))
+                .bindNow();
+
+        ApiClient uut = createClient();
+        // the bytes allocated by the uploading thread bound what the upload puts on the heap, regardless of when the GC runs
+        final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        final long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        assertThat(uut.upload("uuid-1", null, null, new FilePath(bom), false)).isEqualTo(new UploadResult(true, "complete"));
+        final long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+        assertThat(allocated).isLessThan(bomSize / 16);
     }
 
     @Test
     public void uploadTestWithErrors() throws IOException, InterruptedException {
         ApiClient uut;
         
-        server = HttpServer.create().host("localhost").port(0).route(routes -> routes.put(ApiClient.BOM_URL, (request, response) -> response.status(HttpResponseStatus.BAD_REQUEST).send())).bindNow();
+        server = HttpServer.create().host("localhost").port(0).route(routes -> routes.post(ApiClient.BOM_URL, (request, response) -> response.status(HttpResponseStatus.BAD_REQUEST).send())).bindNow();
         uut = createClient();
         assertThat(uut.upload(null, "p1", "v1", new FilePath(tmpDir.newFile()), true)).isEqualTo(new UploadResult(false));
         verify(logger).log(eq(Messages.Builder_Payload_Invalid()));
         server.disposeNow();
         
-        server = HttpServer.create().host("localhost").port(0).route(routes -> routes.put(ApiClient.BOM_URL, (request, response) -> response.status(HttpResponseStatus.UNAUTHORIZED).send())).bindNow();
+        server = HttpServer.create().host("localhost").port(0).route(routes -> routes.post(ApiClient.BOM_URL, (request, response) -> response.status(HttpResponseStatus.UNAUTHORIZED).send())).bindNow();
         uut = createClient();
         assertThat(uut.upload(null, "p1", "v1", new FilePath(tmpDir.newFile()), true)).isEqualTo(new UploadResult(false));
         verify(logger).log(eq(Messages.Builder_Unauthorized()));
         server.disposeNow();
         
-        server = HttpServer.create().host("localhost").port(0).route(routes -> routes.put(ApiClient.BOM_URL, (request, response) -> response.status(HttpResponseStatus.NOT_FOUND).send())).bindNow();
+        server = HttpServer.create().host("localhost").port(0).route(routes -> routes.post(ApiClient.BOM_URL, (request, response) -> response.status(HttpResponseStatus.NOT_FOUND).send())).bindNow();
         uut = createClient();
         assertThat(uut.upload(null, "p1", "v1", new FilePath(tmpDir.newFile()), true)).isEqualTo(new UploadResult(false));
         verify(logger).log(eq(Messages.Builder_Project_NotFound()));
         server.disposeNow();
 
+        // may succeed later
+        server = HttpServer.create().host("localhost").port(0).route(routes -> routes.post(ApiClient.BOM_URL, (request, response) -> response.status(HttpResponseStatus.SERVICE_UNAVAILABLE).send())).bindNow();
+        uut = createClient();
+        assertThat(uut.upload(null, "p1", "v1", new FilePath(tmpDir.newFile()), true)).isEqualTo(new UploadResult(false, null, true));
+        server.disposeNow();
+
         File mockFile = mock(File.class);
         when(mockFile.getPath()).thenReturn(tmpDir.getRoot().getPath());
         FilePath fileWithError = new FilePath(mockFile);
@@ -335,4 +581,165 @@ public class ApiClientTest {
         assertThat(uut.isTokenBeingProcessed("uuid-1")).isTrue();
     }
 
+    @Test
+    public void retryTest() throws ApiClientException {
+        final AtomicInteger attempts = new AtomicInteger();
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get(ApiClient.PROJECT_URL + "/uuid-1", (request, response) -> attempts.incrementAndGet() < 3
+                ? response.status(HttpResponseStatus.SERVICE_UNAVAILABLE).addHeader("Retry-After", "0").send()
+                : response.sendString(Mono.just("{\"name\":\"my project\",\"uuid\":\"uuid-1\",\"version\":\"1.0\"}"))))
+                .bindNow();
+
+        ApiClient uut = createClient();
+        uut.setMaxRetries(3);
+        uut.setFirstRetryDelay(10);
+
+        assertThat(uut.getProject("uuid-1")).isNotNull();
+        assertThat(attempts).hasValue(3);
+        verify(logger, times(2)).log(startsWith("Dependency-Track is unavailable (503 Service Unavailable)"));
+    }
+
+    @Test
+    public void retriesExhaustedTest() {
+        final AtomicInteger attempts = new AtomicInteger();
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get(ApiClient.PROJECT_URL + "/uuid-1", (request, response) -> {
+                    attempts.incrementAndGet();
+                    return response.status(HttpResponseStatus.BAD_GATEWAY).send();
+                }))
+                .bindNow();
+
+        ApiClient uut = createClient();
+        uut.setMaxRetries(2);
+        uut.setFirstRetryDelay(10);
+
+        assertThatCode(() -> uut.getProject("uuid-1")).isInstanceOf(ApiClientException.class)
+                .hasMessage(Messages.ApiClient_Error_Connection(502, "Bad Gateway"));
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    public void noRetryWithoutServerErrorTest() {
+        final AtomicInteger attempts = new AtomicInteger();
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get(ApiClient.PROJECT_URL + "/uuid-1", (request, response) -> {
+                            attempts.incrementAndGet();
+                            return response.status(HttpResponseStatus.UNAUTHORIZED).send();
+                        })
+                        // asks for a delay longer than a retry may take
+                        .get(ApiClient.PROJECT_URL + "/uuid-2", (request, response) -> {
+                            attempts.incrementAndGet();
+                            return response.status(HttpResponseStatus.TOO_MANY_REQUESTS).addHeader("Retry-After", "3600").send();
+                        }))
+                .bindNow();
+
+        ApiClient uut = createClient();
+        uut.setMaxRetries(3);
+        uut.setFirstRetryDelay(10);
+
+        assertThatCode(() -> uut.getProject("uuid-1")).isInstanceOf(ApiClientException.class);
+        assertThat(attempts).hasValue(1);
+        assertThatCode(() -> uut.getProject("uuid-2")).isInstanceOf(ApiClientException.class)
+                .hasMessage(Messages.ApiClient_Error_Connection(429, "Too Many Requests"));
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    public void noRetryOfTokenCheckTest() {
+        final AtomicInteger attempts = new AtomicInteger();
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get(ApiClient.BOM_TOKEN_URL + "/uuid-1", (request, response) -> {
+                    attempts.incrementAndGet();
+                    return response.status(HttpResponseStatus.SERVICE_UNAVAILABLE).send();
+                }))
+                .bindNow();
+
+        ApiClient uut = createClient();
+        uut.setMaxRetries(3);
+        uut.setFirstRetryDelay(10);
+
+        // the token poller schedules the next check itself
+        assertThatCode(() -> uut.isTokenBeingProcessed("uuid-1")).isInstanceOfSatisfying(ApiClientException.class, e -> {
+            assertThat(e.getResponseCode()).isEqualTo(503);
+            assertThat(e.isRetryable()).isTrue();
+        });
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    public void circuitBreakerTest() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get(ApiClient.PROJECT_URL + "/uuid-1", (request, response) -> {
+                    attempts.incrementAndGet();
+                    return response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).send();
+                }))
+                .bindNow();
+
+        ApiClient uut = createClient();
+
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            assertThatCode(() -> uut.getProject("uuid-1")).isInstanceOf(ApiClientException.class)
+                    .hasMessage(Messages.ApiClient_Error_Connection(500, "Internal Server Error"));
+        }
+        assertThatCode(() -> uut.getProject("uuid-1")).isInstanceOf(ApiClientException.class)
+                .hasMessageStartingWith("Dependency-Track at " + String.format("http://%s:%d", server.host(), server.port()) + " is currently unavailable")
+                .hasFieldOrPropertyWithValue("circuitOpen", true)
+                .hasFieldOrPropertyWithValue("retryable", true);
+        // uploads are not sent either
+        assertThat(uut.upload(null, "p1", "v1", new FilePath(tmpDir.newFile()), true)).isEqualTo(new UploadResult(false, null, true));
+        assertThat(attempts).hasValue(CircuitBreaker.FAILURE_THRESHOLD);
+    }
+
+    @Test
+    public void concurrencyLimitTest() throws ApiClientException {
+        final AtomicInteger requests = new AtomicInteger();
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get(ApiClient.PROJECT_URL + "/uuid-1", (request, response) -> response.sendString(
+                Mono.just("{\"name\":\"my project\",\"uuid\":\"uuid-1\",\"version\":\"1.0\"}")
+                        // DT gets overloaded
+                        .delayElement(Duration.ofMillis(requests.incrementAndGet() > 5 ? 500 : 0)))))
+                .bindNow();
+
+        ApiClient uut = createClient();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(uut.getProject("uuid-1")).isNotNull();
+        }
+        final ConcurrencyLimiter limiter = ConcurrencyLimiter.find(String.format("http://%s:%d", server.host(), server.port()));
+        assertThat(limiter).isNotNull();
+        assertThat(limiter.getLimit()).isGreaterThan(ConcurrencyLimiter.INITIAL_LIMIT);
+        final int limit = limiter.getLimit();
+
+        assertThat(uut.getProject("uuid-1")).isNotNull();
+
+        assertThat(limiter.getLimit()).isLessThan(limit);
+        assertThat(limiter.getLastDecreaseReason()).startsWith(ApiClient.PROJECT_URL + " answered in");
+        assertThat(limiter.getLatencies()).containsOnlyKeys(ApiClient.PROJECT_URL);
+        assertThat(limiter.getLatencies().get(ApiClient.PROJECT_URL).getLast()).isGreaterThanOrEqualTo(500);
+        assertThat(limiter.getLatencies().get(ApiClient.PROJECT_URL).getSamples()).isEqualTo(6);
+    }
+
+    @Test
+    public void parseRetryAfterTest() {
+        assertThat(ApiClient.parseRetryAfter(null, 0)).isZero();
+        assertThat(ApiClient.parseRetryAfter("", 0)).isZero();
+        assertThat(ApiClient.parseRetryAfter("120", 0)).isEqualTo(120000);
+        assertThat(ApiClient.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT", 1445412470000L)).isEqualTo(10000);
+        assertThat(ApiClient.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT", 1445412490000L)).isZero();
+        assertThat(ApiClient.parseRetryAfter("soon", 0)).isZero();
+    }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 OWASP.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of this plugin. The name intentionally does not
+ * match the test patterns, so it is only executed on demand with
+ * {@code mvn test -Dtest=BenchmarkRunner}.
+ */
+public class BenchmarkRunner {
+
+    @Test
+    public void runBenchmarks() throws Exception {
+        final CommandLineOptions args = new CommandLineOptions(StringUtils.split(System.getProperty("jmh.args", StringUtils.EMPTY)));
+        new Runner(new OptionsBuilder()
+                .parent(args)
+                .include(FindingParserBenchmark.class.getName())
+                .include(BomMergerBenchmark.class.getName())
+                .forks(args.getForkCount().orElse(1))
+                .warmupIterations(args.getWarmupIterations().orElse(3))
+                .measurementIterations(args.getMeasurementIterations().orElse(5))
+                .shouldFailOnError(true)
+                .build()).run();
+    }
+}
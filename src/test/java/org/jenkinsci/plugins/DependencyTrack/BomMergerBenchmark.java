@@ -0,0 +1,160 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Compares merging BOMs by loading them as DOM, as generic merge tools do,
+ * with merging them while streaming. Three synthetic BOMs are merged, of which
+ * every second component is also part of the previous BOM.
+ *
+ * Run with {@code mvn test -Dtest=BenchmarkRunner}. Add
+ * {@code -Djmh.args="-prof gc"} to see the allocation rate of each variant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BomMergerBenchmark {
+
+    private static final String NAMESPACE = "http://cyclonedx.org/schema/bom/1.3";
+
+    private static final String COMPONENT = "<component type=\"library\" bom-ref=\"pkg:maven/org.example/component-%1$d@1.0.%1$d\">"
+            + "<group>org.example</group><name>component-%1$d</name><version>1.0.%1$d</version>"
+            + "<description>A rather long description of the component, as they usually are.</description>"
+            + "<hashes><hash alg=\"SHA-256\">9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08</hash></hashes>"
+            + "<licenses><license><id>Apache-2.0</id></license></licenses>"
+            + "<purl>pkg:maven/org.example/component-%1$d@1.0.%1$d</purl></component>";
+
+    /**
+     * the number of components per BOM
+     */
+    @Param({"1000", "50000"})
+    public int components;
+
+    private List<File> boms;
+
+    @Setup
+    public void setup() throws IOException {
+        final File first = generate(0);
+        final File second = generate(components / 2);
+        final File third = generate(components);
+        boms = Arrays.asList(first, second, third);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (File bom : boms) {
+            Files.delete(bom.toPath());
+        }
+    }
+
+    private File generate(final int offset) throws IOException {
+        final File bom = File.createTempFile("bom", ".xml");
+        try (Writer writer = Files.newBufferedWriter(bom.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><bom xmlns=\"" + NAMESPACE + "\" version=\"1\">");
+            writer.write("<metadata><component type=\"application\"><name>app</name></component></metadata><components>");
+            for (int i = offset; i < offset + components; i++) {
+                writer.write(String.format(COMPONENT, i));
+            }
+            writer.write("</components><dependencies>");
+            for (int i = offset; i < offset + components; i++) {
+                writer.write(String.format("<dependency ref=\"pkg:maven/org.example/component-%1$d@1.0.%1$d\"/>", i));
+            }
+            writer.write("</dependencies></bom>");
+        }
+        return bom;
+    }
+
+    @Benchmark
+    public void dom() throws Exception {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        final DocumentBuilder builder = factory.newDocumentBuilder();
+        final Document merged = builder.parse(boms.get(0));
+        final Element components = (Element) merged.getElementsByTagNameNS(NAMESPACE, "components").item(0);
+        final Element dependencies = (Element) merged.getElementsByTagNameNS(NAMESPACE, "dependencies").item(0);
+        final Set<String> purls = new HashSet<>();
+        final Set<String> refs = new HashSet<>();
+        collect(components, "purl", purls);
+        collect(dependencies, null, refs);
+        for (File bom : boms.subList(1, boms.size())) {
+            final Document document = builder.parse(bom);
+            append(merged, components, document.getElementsByTagNameNS(NAMESPACE, "components").item(0), "purl", purls);
+            append(merged, dependencies, document.getElementsByTagNameNS(NAMESPACE, "dependencies").item(0), null, refs);
+        }
+        try (OutputStream out = new NullOutputStream()) {
+            TransformerFactory.newInstance().newTransformer().transform(new DOMSource(merged), new StreamResult(out));
+        }
+    }
+
+    @Benchmark
+    public BomMerger.Result streaming() throws IOException {
+        try (OutputStream out = new NullOutputStream()) {
+            return BomMerger.merge(boms, out);
+        }
+    }
+
+    private static void collect(final Node parent, final String child, final Set<String> keys) {
+        final NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            keys.add(key((Element) nodes.item(i), child));
+        }
+    }
+
+    private static void append(final Document merged, final Node target, final Node source, final String child, final Set<String> keys) {
+        final NodeList nodes = source.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            final Element element = (Element) nodes.item(i);
+            if (keys.add(key(element, child))) {
+                target.appendChild(merged.importNode(element, true));
+            }
+        }
+    }
+
+    private static String key(final Element element, final String child) {
+        return child != null ? element.getElementsByTagNameNS(NAMESPACE, child).item(0).getTextContent() : element.getAttribute("ref");
+    }
+}
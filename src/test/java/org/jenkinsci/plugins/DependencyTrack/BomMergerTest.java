@@ -0,0 +1,143 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BomMergerTest {
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    @Test
+    public void mergeTest() throws IOException {
+        final File backend = bom("backend.xml", "<bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" serialNumber=\"urn:uuid:1\" version=\"3\">"
+                + "<metadata><component type=\"application\"><name>backend</name></component></metadata>"
+                + "<components>"
+                + "<component type=\"library\" bom-ref=\"pkg:maven/org.example/a@1\"><name>a</name><purl>pkg:maven/org.example/a@1</purl></component>"
+                + "<component type=\"library\" bom-ref=\"b\"><name>b</name><purl>pkg:maven/org.example/b@1</purl></component>"
+                + "</components>"
+                + "<dependencies><dependency ref=\"pkg:maven/org.example/a@1\"><dependency ref=\"b\"/></dependency></dependencies>"
+                + "</bom>");
+        final File frontend = bom("frontend.xml", "<bom xmlns=\"http://cyclonedx.org/schema/bom/1.2\" xmlns:ext=\"urn:example\" version=\"1\">"
+                + "<metadata><component type=\"application\"><name>frontend</name></component></metadata>"
+                + "<components>"
+                + "<component type=\"library\" bom-ref=\"other-b\"><name>b</name><purl> pkg:maven/org.example/b@1 </purl></component>"
+                + "<component type=\"library\" bom-ref=\"c\"><name>c</name><purl>pkg:npm/c@1</purl><ext:origin>npm</ext:origin></component>"
+                + "<component type=\"file\"><name>no-purl</name></component>"
+                + "</components>"
+                + "<dependencies><dependency ref=\"c\"><dependency ref=\"other-b\"/></dependency><dependency ref=\"other-b\"/></dependencies>"
+                + "</bom>");
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BomMerger.Result result = BomMerger.merge(Arrays.asList(backend, frontend), out);
+
+        assertThat(result).isEqualTo(new BomMerger.Result(2, 4, 1));
+        // the order of the attributes is up to the StAX implementation
+        final String merged = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(merged).startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?><bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" ")
+                .contains("<metadata><component type=\"application\"><name>backend</name></component></metadata><components><component ")
+                .doesNotContain("frontend", "other-b", "serialNumber")
+                .contains("<purl>pkg:npm/c@1</purl><ext:origin xmlns:ext=\"urn:example\">npm</ext:origin>")
+                .contains("</components><dependencies><dependency ref=\"pkg:maven/org.example/a@1\"><dependency ref=\"b\"></dependency></dependency>"
+                        + "<dependency ref=\"c\"><dependency ref=\"b\"></dependency></dependency>"
+                        + "<dependency ref=\"b\"></dependency></dependencies></bom>")
+                .containsSubsequence("<name>a</name>", "<name>b</name>", "<name>c</name>", "<name>no-purl</name>");
+        assertThat(merged.split("<component ", -1)).hasSize(6);
+    }
+
+    @Test
+    public void mergeCollidingBomRefsTest() throws IOException {
+        final File first = bom("first.xml", "<bom xmlns=\"http://cyclonedx.org/schema/bom/1.4\" version=\"1\"><components>"
+                + "<component type=\"library\" bom-ref=\"x\"><name>x</name><purl>pkg:npm/x@1</purl></component>"
+                + "<component type=\"library\" bom-ref=\"a\"><name>a</name><purl>pkg:npm/a@1</purl></component>"
+                + "</components><dependencies><dependency ref=\"a\"><dependency ref=\"x\"/></dependency></dependencies></bom>");
+        // "y" is a duplicate of "x", "a" is another component than in the first BOM
+        final File second = bom("second.xml", "<bom xmlns=\"http://cyclonedx.org/schema/bom/1.4\" version=\"1\"><components>"
+                + "<component type=\"library\" bom-ref=\"y\"><name>x</name><purl>pkg:npm/x@1</purl></component>"
+                + "<component type=\"library\" bom-ref=\"a\"><name>a</name><purl>pkg:npm/a@2</purl></component>"
+                + "</components><dependencies><dependency ref=\"a\"><dependency ref=\"y\"/></dependency></dependencies></bom>");
+        // "y" is unrelated to the duplicate of the second BOM
+        final File third = bom("third.xml", "<bom xmlns=\"http://cyclonedx.org/schema/bom/1.4\" version=\"1\"><components>"
+                + "<component type=\"library\" bom-ref=\"y\"><name>y</name><purl>pkg:npm/y@1</purl></component>"
+                + "</components><dependencies><dependency ref=\"y\"/></dependencies></bom>");
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(BomMerger.merge(Arrays.asList(first, second, third), out)).isEqualTo(new BomMerger.Result(3, 4, 1));
+
+        final String merged = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(merged.split("bom-ref=\"a\"", -1)).hasSize(2);
+        assertThat(merged).contains("bom-ref=\"2-a\"", "bom-ref=\"y\"")
+                .endsWith("<dependencies><dependency ref=\"a\"><dependency ref=\"x\"></dependency></dependency>"
+                        + "<dependency ref=\"2-a\"><dependency ref=\"x\"></dependency></dependency>"
+                        + "<dependency ref=\"y\"></dependency></dependencies></bom>");
+    }
+
+    @Test
+    public void mergeWithoutSectionsTest() throws IOException {
+        final File empty = bom("empty.xml", "<bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" version=\"1\"/>");
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(BomMerger.merge(Collections.singletonList(empty), out)).isEqualTo(new BomMerger.Result(1, 0, 0));
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8))
+                .isEqualTo("<?xml version=\"1.0\" encoding=\"UTF-8\"?><bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" version=\"1\"></bom>");
+    }
+
+    @Test
+    public void mergeInvalidTest() throws IOException {
+        final File valid = bom("valid.xml", "<bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" version=\"1\"/>");
+        final File json = bom("bom.json", "{\"bomFormat\": \"CycloneDX\"}");
+        final File other = bom("other.xml", "<project xmlns=\"http://maven.apache.org/POM/4.0.0\"/>");
+
+        assertThatThrownBy(() -> BomMerger.merge(Arrays.asList(valid, json), new ByteArrayOutputStream()))
+                .isInstanceOf(IOException.class).hasMessageStartingWith("Failed to merge " + json);
+        assertThatThrownBy(() -> BomMerger.merge(Arrays.asList(other, valid), new ByteArrayOutputStream()))
+                .isInstanceOf(IOException.class).hasMessageContaining("Not a CycloneDX BOM in XML format");
+    }
+
+    @Test
+    public void mergeIgnoresExternalEntitiesTest() throws IOException {
+        final File secret = bom("secret.txt", "secret");
+        final File bom = bom("bom.xml", "<!DOCTYPE bom [<!ENTITY xxe SYSTEM \"" + secret.toURI() + "\">]>"
+                + "<bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" version=\"1\"><components><component type=\"library\"><name>&xxe;</name></component></components></bom>");
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            BomMerger.merge(Collections.singletonList(bom), out);
+        } catch (IOException e) {
+            // rejecting the BOM is fine, too
+        }
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).doesNotContain("secret");
+    }
+
+    private File bom(final String name, final String content) throws IOException {
+        final File file = tmpDir.newFile(name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
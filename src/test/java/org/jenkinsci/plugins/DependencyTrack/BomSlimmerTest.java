@@ -0,0 +1,93 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BomSlimmerTest {
+
+    private static final List<String> PATHS = Arrays.asList("hashes", "license/text", "description");
+
+    @Test
+    public void parsePathsTest() {
+        assertThat(BomSlimmer.parsePaths(" licenses/license/text,hashes\n/description/ ,, ")).containsExactly("licenses/license/text", "hashes", "description");
+        assertThat(BomSlimmer.parsePaths(null)).isEmpty();
+        assertThat(BomSlimmer.parsePaths(" / ")).isEmpty();
+    }
+
+    @Test
+    public void slimXmlTest() throws IOException {
+        final String bom = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" xmlns:ext=\"urn:example\" version=\"1\"><components>"
+                + "<component type=\"library\" bom-ref=\"a\"><name>a &amp; b</name><description>long</description>"
+                + "<hashes><hash alg=\"SHA-1\">abc</hash></hashes>"
+                + "<licenses><license><id>MIT</id><text><![CDATA[MIT License]]></text></license></licenses>"
+                + "<purl>pkg:maven/org.example/a@1</purl><ext:origin ext:kind=\"npm\">registry</ext:origin></component>"
+                + "</components></bom>";
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(BomSlimmer.slim(new ByteArrayInputStream(bom.getBytes(StandardCharsets.UTF_8)), out, PATHS)).isEqualTo(3);
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" xmlns:ext=\"urn:example\" version=\"1\"><components>"
+                + "<component type=\"library\" bom-ref=\"a\"><name>a &amp; b</name>"
+                + "<licenses><license><id>MIT</id></license></licenses>"
+                + "<purl>pkg:maven/org.example/a@1</purl><ext:origin ext:kind=\"npm\">registry</ext:origin></component>"
+                + "</components></bom>");
+    }
+
+    @Test
+    public void slimJsonTest() throws IOException {
+        final String bom = "\uFEFF{\n  \"bomFormat\": \"CycloneDX\",\n  \"components\": [\n"
+                + "    {\"name\": \"a \\\"b\\\"\", \"description\": {\"nested\": [\"description\"]},"
+                + " \"hashes\": [{\"alg\": \"SHA-1\", \"content\": \"abc\"}],"
+                + " \"licenses\": [{\"license\": {\"id\": \"MIT\", \"text\": {\"content\": \"MIT License\"}}}],"
+                + " \"purl\": \"pkg:npm/a@1\", \"scope\": null, \"weight\": -1.5e3, \"external\": false, \"tags\": [], \"properties\": {}},\n"
+                + "    {\"description\": \"only\"}\n  ]\n}\n";
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(BomSlimmer.slim(new ByteArrayInputStream(bom.getBytes(StandardCharsets.UTF_8)), out, PATHS)).isEqualTo(4);
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("{\"bomFormat\":\"CycloneDX\",\"components\":["
+                + "{\"name\":\"a \\\"b\\\"\",\"licenses\":[{\"license\":{\"id\":\"MIT\"}}],"
+                + "\"purl\":\"pkg:npm/a@1\",\"scope\":null,\"weight\":-1.5e3,\"external\":false,\"tags\":[],\"properties\":{}},"
+                + "{}]}");
+    }
+
+    @Test
+    public void slimInvalidTest() {
+        assertThatThrownBy(() -> BomSlimmer.slim(new ByteArrayInputStream("{\"components\": [1,}".getBytes(StandardCharsets.UTF_8)), new ByteArrayOutputStream(), PATHS))
+                .isInstanceOf(IOException.class).hasMessage("Failed to slim BOM at line 1, column 19: Unexpected character '}'");
+        assertThatThrownBy(() -> BomSlimmer.slim(new ByteArrayInputStream("{\"components\": [".getBytes(StandardCharsets.UTF_8)), new ByteArrayOutputStream(), PATHS))
+                .isInstanceOf(IOException.class).hasMessage("Failed to slim BOM at line 1, column 17: Unexpected end of document");
+        final String nested = "{\"components\": " + StringUtils.repeat("[", 100000) + StringUtils.repeat("]", 100000) + "}";
+        assertThatThrownBy(() -> BomSlimmer.slim(new ByteArrayInputStream(nested.getBytes(StandardCharsets.UTF_8)), new ByteArrayOutputStream(), PATHS))
+                .isInstanceOf(IOException.class).hasMessageEndingWith(Messages.JsonTokenizer_Error_TooDeep(JsonTokenizer.MAX_DEPTH));
+        assertThatThrownBy(() -> BomSlimmer.slim(new ByteArrayInputStream("<bom><components></bom>".getBytes(StandardCharsets.UTF_8)), new ByteArrayOutputStream(), PATHS))
+                .isInstanceOf(IOException.class).hasMessageStartingWith("Failed to slim BOM: ");
+        assertThatThrownBy(() -> BomSlimmer.slim(new ByteArrayInputStream("name,version".getBytes(StandardCharsets.UTF_8)), new ByteArrayOutputStream(), Collections.emptyList()))
+                .isInstanceOf(IOException.class).hasMessage("Not a BOM in XML or JSON format");
+    }
+}
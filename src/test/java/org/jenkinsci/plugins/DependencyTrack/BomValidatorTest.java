@@ -0,0 +1,100 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BomValidatorTest {
+
+    private static final String XML_BOM = "<bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" xmlns:ext=\"urn:example\" version=\"1\">\n"
+            + "<metadata><component type=\"application\"><name>app</name></component></metadata>\n"
+            + "<components>\n%s\n</components>\n"
+            + "<dependencies><dependency ref=\"a\"><dependency ref=\"b\"/></dependency></dependencies>\n"
+            + "</bom>";
+
+    private static final String JSON_BOM = "{\"bomFormat\": \"CycloneDX\", \"specVersion\": \"1.4\",\n"
+            + "\"metadata\": {\"component\": {\"type\": \"application\", \"name\": \"app\"}},\n"
+            + "\"components\": [\n%s\n],\n"
+            + "\"dependencies\": [{\"ref\": \"a\", \"dependsOn\": [\"b\"]}]\n"
+            + "}";
+
+    @Test
+    public void validXmlTest() throws IOException {
+        assertThat(validate(String.format(XML_BOM, "<component type=\"library\" bom-ref=\"a\"><name>a</name><ext:name/>"
+                + "<components><component type=\"library\"><name>b</name></component></components></component>")))
+                .isEqualTo(new BomValidator.Result(BomValidator.XML, "1.3", 3, null, 0, 0));
+    }
+
+    @Test
+    public void invalidXmlTest() throws IOException {
+        assertThat(validate(String.format(XML_BOM, "<component type=\"library\"><version>1</version></component>")))
+                .isEqualTo(new BomValidator.Result(BomValidator.XML, null, 0, "<component> has no <name>", 4, 27));
+        assertThat(validate(String.format(XML_BOM, "<component><name>a</name></component>")))
+                .isEqualTo(new BomValidator.Result(BomValidator.XML, null, 0, "<component> has no attribute \"type\"", 4, 12));
+        assertThat(validate(String.format(XML_BOM, "<library><name>a</name></library>")))
+                .isEqualTo(new BomValidator.Result(BomValidator.XML, null, 0, "<components> must only contain <component> but contains <library>", 4, 10));
+        assertThat(validate(String.format(XML_BOM, "<component type=\"library\"><name>a</component>")))
+                .satisfies(result -> {
+                    assertThat(result.isValid()).isFalse();
+                    assertThat(result.getLine()).isEqualTo(4);
+                });
+        assertThat(validate("<project xmlns=\"http://maven.apache.org/POM/4.0.0\"/>").getError()).startsWith("Not a CycloneDX BOM");
+    }
+
+    @Test
+    public void validJsonTest() throws IOException {
+        assertThat(validate(String.format(JSON_BOM, "{\"type\": \"library\", \"name\": \"a \\\"\\u00e4\\\"\", \"bom-ref\": \"a\", \"properties\": [{\"name\": \"weight\", \"value\": -1.5e+3}],"
+                + " \"components\": [{\"type\": \"library\", \"name\": \"b\", \"scope\": null, \"external\": true}]}")))
+                .isEqualTo(new BomValidator.Result(BomValidator.JSON, "1.4", 3, null, 0, 0));
+    }
+
+    @Test
+    public void invalidJsonTest() throws IOException {
+        assertThat(validate(String.format(JSON_BOM, "{\"type\": \"library\"}")))
+                .isEqualTo(new BomValidator.Result(BomValidator.JSON, null, 0, "A component has no \"name\"", 4, 1));
+        assertThat(validate(String.format(JSON_BOM, "\"library\"")))
+                .isEqualTo(new BomValidator.Result(BomValidator.JSON, null, 0, "Expected an object", 4, 1));
+        assertThat(validate(String.format(JSON_BOM, "{\"type\": \"library\", \"name\": \"a\",}")))
+                .isEqualTo(new BomValidator.Result(BomValidator.JSON, null, 0, "Unexpected character '}'", 4, 33));
+        assertThat(validate(String.format(JSON_BOM, "{\"type\": \"library\", \"name\": \"a\", \"x\": 01}")))
+                .isEqualTo(new BomValidator.Result(BomValidator.JSON, null, 0, "Unexpected character '1'", 4, 40));
+        assertThat(validate("{\"bomFormat\": \"CycloneDX\", \"specVersion\": \"1.4\", \"components\": ["))
+                .isEqualTo(new BomValidator.Result(BomValidator.JSON, null, 0, "Unexpected end of document", 1, 65));
+        assertThat(validate("{\"spdxVersion\": \"SPDX-2.2\"}"))
+                .isEqualTo(new BomValidator.Result(BomValidator.JSON, null, 0, "Not a CycloneDX BOM: \"bomFormat\" must be \"CycloneDX\"", 1, 1));
+        assertThat(validate("name,version\n").getError()).isEqualTo("Not a BOM in XML or JSON format");
+    }
+
+    @Test
+    public void deeplyNestedJsonTest() throws IOException {
+        final String nested = "{\"type\": \"library\", \"name\": \"a\", \"properties\": "
+                + StringUtils.repeat("[", 100000) + StringUtils.repeat("]", 100000) + "}";
+
+        // the BOM, "components" and the component are the first three levels
+        assertThat(validate(String.format(JSON_BOM, nested)))
+                .isEqualTo(new BomValidator.Result(BomValidator.JSON, null, 0, Messages.JsonTokenizer_Error_TooDeep(JsonTokenizer.MAX_DEPTH), 4, 47 + JsonTokenizer.MAX_DEPTH - 2));
+    }
+
+    private static BomValidator.Result validate(final String bom) throws IOException {
+        return BomValidator.validate(new ByteArrayInputStream(bom.getBytes(StandardCharsets.UTF_8)));
+    }
+}
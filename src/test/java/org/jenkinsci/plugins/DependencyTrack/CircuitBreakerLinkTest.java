@@ -0,0 +1,55 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import hudson.model.Item;
+import io.jenkins.plugins.casc.misc.JenkinsConfiguredRule;
+import java.net.URL;
+import jenkins.model.Jenkins;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CircuitBreakerLinkTest {
+
+    @Rule
+    public JenkinsConfiguredRule r = new JenkinsConfiguredRule();
+
+    @Before
+    public void setup() {
+        r.jenkins.setSecurityRealm(r.createDummySecurityRealm());
+        r.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.ADMINISTER).everywhere().to("admin")
+                .grant(Jenkins.READ, Item.READ).everywhere().to("reader"));
+        CircuitBreaker.forUrl("http://dependency-track.example");
+    }
+
+    @Test
+    public void apiRequiresAdministerTest() throws Exception {
+        assertThat(getApi("admin")).isEqualTo(200);
+        assertThat(getApi("reader")).isEqualTo(403);
+    }
+
+    private int getApi(final String user) throws Exception {
+        final JenkinsRule.WebClient wc = r.createWebClient().login(user);
+        wc.getOptions().setThrowExceptionOnFailingStatusCode(false);
+        return wc.getPage(new URL(r.getURL(), "manage/" + CircuitBreakerLink.URL_NAME + "/api/json")).getWebResponse().getStatusCode();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.jenkinsci.plugins.DependencyTrack.CircuitBreaker.State;
+import org.jenkinsci.plugins.DependencyTrack.CircuitBreaker.Transition;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final CircuitBreaker uut = new CircuitBreaker("http://server", now::get, 3, 100);
+
+    @Test
+    public void opensAfterConsecutiveFailuresTest() {
+        failures(2);
+        uut.onSuccess();
+        failures(2);
+        assertThat(uut.getState()).isEqualTo(State.CLOSED);
+        assertThat(uut.getFailures()).isEqualTo(2);
+        assertThat(uut.tryAcquire()).isTrue();
+
+        uut.onFailure("503 Service Unavailable");
+
+        assertThat(uut.getState()).isEqualTo(State.OPEN);
+        assertThat(uut.tryAcquire()).isFalse();
+        now.addAndGet(40);
+        assertThat(uut.getRemainingOpenTime()).isEqualTo(60);
+        assertThat(uut.getTransitions()).extracting(Transition::getFrom, Transition::getTo)
+                .containsExactly(tuple(State.CLOSED, State.OPEN));
+        assertThat(uut.getTransitions().get(0).getReason()).contains("503 Service Unavailable");
+    }
+
+    @Test
+    public void probeSucceedsTest() {
+        failures(3);
+        now.addAndGet(100);
+
+        // only one probe at a time
+        assertThat(uut.tryAcquire()).isTrue();
+        assertThat(uut.getState()).isEqualTo(State.HALF_OPEN);
+        assertThat(uut.tryAcquire()).isFalse();
+
+        uut.onSuccess();
+
+        assertThat(uut.getState()).isEqualTo(State.CLOSED);
+        assertThat(uut.getFailures()).isZero();
+        assertThat(uut.getRemainingOpenTime()).isZero();
+        assertThat(uut.tryAcquire()).isTrue();
+        // latest first
+        assertThat(uut.getTransitions()).extracting(Transition::getTo).containsExactly(State.CLOSED, State.HALF_OPEN, State.OPEN);
+    }
+
+    @Test
+    public void probeFailsTest() {
+        failures(3);
+        now.addAndGet(100);
+        assertThat(uut.tryAcquire()).isTrue();
+
+        uut.onFailure("connection refused");
+
+        assertThat(uut.getState()).isEqualTo(State.OPEN);
+        assertThat(uut.tryAcquire()).isFalse();
+        now.addAndGet(100);
+        assertThat(uut.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void lostProbeTest() {
+        failures(3);
+        now.addAndGet(100);
+        assertThat(uut.tryAcquire()).isTrue();
+
+        // the outcome of the probe is never reported
+        now.addAndGet(99);
+        assertThat(uut.tryAcquire()).isFalse();
+        now.addAndGet(1);
+        assertThat(uut.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void releasedProbeTest() {
+        failures(3);
+        now.addAndGet(100);
+        assertThat(uut.tryAcquire()).isTrue();
+
+        // nothing was sent after all
+        uut.release();
+
+        assertThat(uut.getState()).isEqualTo(State.HALF_OPEN);
+        assertThat(uut.tryAcquire()).isTrue();
+        assertThat(uut.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void transitionsAreLimitedTest() {
+        for (int i = 0; i < 30; i++) {
+            failures(3);
+            now.addAndGet(100);
+            uut.tryAcquire();
+            uut.onSuccess();
+        }
+
+        assertThat(uut.getTransitions()).hasSize(20);
+        assertThat(uut.getTransitions().get(0).getTo()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    public void forUrlTest() {
+        assertThat(CircuitBreaker.forUrl("http://a")).isSameAs(CircuitBreaker.forUrl("http://a")).isNotSameAs(CircuitBreaker.forUrl("http://b"));
+        assertThat(CircuitBreaker.getAll()).extracting(CircuitBreaker::getUrl).contains("http://a", "http://b");
+    }
+
+    private void failures(final int count) {
+        for (int i = 0; i < count; i++) {
+            uut.onFailure("failure " + i);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.jenkinsci.plugins.DependencyTrack.ConcurrencyLimiter.LatencySnapshot;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class ConcurrencyLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final ConcurrencyLimiter uut = new ConcurrencyLimiter("http://server", now::get);
+
+    @Test
+    public void increaseTest() {
+        assertThat(uut.getLimit()).isEqualTo(ConcurrencyLimiter.INITIAL_LIMIT);
+        successes(2);
+        assertThat(uut.getLimit()).isEqualTo(2);
+        successes(1);
+        assertThat(uut.getLimit()).isEqualTo(3);
+        assertThat(uut.getLastDecreaseReason()).isNull();
+    }
+
+    @Test
+    public void maxLimitTest() {
+        uut.setMaxLimit(3);
+        successes(20);
+        assertThat(uut.getLimit()).isEqualTo(3);
+
+        uut.setMaxLimit(1);
+        assertThat(uut.getLimit()).isEqualTo(1);
+
+        uut.setMaxLimit(0);
+        assertThat(uut.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    public void decreaseOnFailureTest() {
+        uut.setMaxLimit(4);
+        successes(20);
+        assertThat(uut.getLimit()).isEqualTo(4);
+
+        uut.onFailure("503 Service Unavailable");
+        assertThat(uut.getLimit()).isEqualTo(3);
+        assertThat(uut.getLastDecreaseReason()).isEqualTo("503 Service Unavailable");
+
+        // the same overload only counts once
+        uut.onFailure("connection refused");
+        assertThat(uut.getLimit()).isEqualTo(3);
+        assertThat(uut.getLastDecreaseReason()).isEqualTo("503 Service Unavailable");
+
+        now.addAndGet(ConcurrencyLimiter.DECREASE_INTERVAL);
+        uut.onFailure("connection refused");
+        assertThat(uut.getLimit()).isEqualTo(2);
+        assertThat(uut.getLastDecreaseReason()).isEqualTo("connection refused");
+
+        for (int i = 0; i < 10; i++) {
+            now.addAndGet(ConcurrencyLimiter.DECREASE_INTERVAL);
+            uut.onFailure("connection refused");
+        }
+        assertThat(uut.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    public void decreaseOnSlowAnswersTest() {
+        uut.onSuccess("projects", 10);
+        uut.onSuccess("projects", 10);
+        uut.onSuccess("projects", 10);
+        assertThat(uut.getLimit()).isEqualTo(3);
+
+        // another endpoint has its own baseline
+        uut.onSuccess("findings", 100);
+        // slower, but not by enough
+        uut.onSuccess("projects", 40);
+        assertThat(uut.getLastDecreaseReason()).isNull();
+
+        uut.onSuccess("projects", 400);
+
+        assertThat(uut.getLimit()).isEqualTo(2);
+        assertThat(uut.getLastDecreaseReason()).startsWith("projects answered in");
+        assertThat(uut.getLatencies()).containsOnlyKeys("findings", "projects")
+                .contains(entry("findings", new LatencySnapshot(100, 100, 100, 1)));
+        assertThat(uut.getLatencies().get("projects")).returns(400L, LatencySnapshot::getLast).returns(5L, LatencySnapshot::getSamples);
+    }
+
+    @Test
+    public void slowFirstAnswerTest() {
+        // e.g. the first connection to DT
+        uut.onSuccess("projects", 500);
+        uut.onSuccess("projects", 10);
+        uut.onSuccess("projects", 10);
+
+        assertThat(uut.getLimit()).isEqualTo(3);
+        assertThat(uut.getLastDecreaseReason()).isNull();
+    }
+
+    private void successes(final int count) {
+        for (int i = 0; i < count; i++) {
+            uut.onSuccess(null, 0);
+        }
+    }
+}
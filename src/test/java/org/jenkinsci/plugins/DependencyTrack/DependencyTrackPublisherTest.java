@@ -22,7 +22,9 @@ import hudson.AbortException;
 import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.model.Action;
 import hudson.model.Job;
+import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.util.Secret;
@@ -33,26 +35,49 @@ import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import jenkins.slaves.WorkspaceList;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.jenkinsci.plugins.DependencyTrack.model.Finding;
 import org.jenkinsci.plugins.DependencyTrack.model.Project;
+import org.jenkinsci.plugins.DependencyTrack.model.ProjectMetrics;
+import org.jenkinsci.plugins.DependencyTrack.model.Severity;
+import org.jenkinsci.plugins.DependencyTrack.model.SeverityDistribution;
 import org.jenkinsci.plugins.DependencyTrack.model.UploadResult;
+import org.jenkinsci.plugins.DependencyTrack.model.Vulnerability;
 import org.jenkinsci.plugins.plaincredentials.impl.StringCredentialsImpl;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.mockito.quality.Strictness;
 
+import static org.assertj.core.api.Assertions.as;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -169,6 +194,115 @@ public class DependencyTrackPublisherTest {
         assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).isInstanceOf(AbortException.class).hasMessage(Messages.Builder_Upload_Failed());
     }
 
+    @Test
+    public void testPerformAsyncUploadFromAgent() throws IOException {
+        File tmp = tmpDir.newFile();
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        final DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), false, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setUploadFromAgent(true);
+
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true));
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        verify(client).upload(eq("uuid-1"), isNull(), isNull(), eq(new FilePath(tmp)), eq(false));
+    }
+
+    @Test
+    public void testPerformAsyncUploadFromAgentRecordsOutcome() throws IOException {
+        File tmp = tmpDir.newFile();
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        final DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), false, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackUrl("http://agent-upload.test");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setUploadFromAgent(true);
+
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false)))
+                .thenReturn(new UploadResult(false, null, true))
+                .thenThrow(new ConnectException("Connection refused"));
+        when(client.getLastOutcome())
+                .thenReturn(new ApiClient.Outcome(503, "503 Service Unavailable", null, 0))
+                .thenReturn(new ApiClient.Outcome(ApiClient.Outcome.UNREACHABLE, "java.net.ConnectException: Connection refused", null, 0));
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).isInstanceOf(AbortException.class).hasMessage(Messages.Builder_Upload_Failed());
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).isInstanceOf(ConnectException.class);
+
+        // the client on the agent leaves the bookkeeping to the controller
+        verify(client, times(2)).setOnAgent(true);
+        assertThat(CircuitBreaker.forUrl("http://agent-upload.test").getFailures()).isEqualTo(2);
+        assertThat(ConcurrencyLimiter.find("http://agent-upload.test").getLastDecreaseReason()).isEqualTo("503 Service Unavailable");
+    }
+
+    @Test
+    public void testPerformAsyncWithQueuedUpload() throws IOException {
+        File tmp = tmpDir.newFile();
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        final DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), false, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setQueueFailedUploads(true);
+
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false)))
+                .thenReturn(new UploadResult(false, null, true), new UploadResult(false, null, true))
+                .thenThrow(new ConnectException("Connection refused"));
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        assertThat(UploadOutbox.get().getEntries()).singleElement().satisfies(entry -> {
+            assertThat(entry.getProjectId()).isEqualTo("uuid-1");
+            assertThat(entry.getApiKey().getPlainText()).isEqualTo(apikey);
+        });
+
+        // synchronous mode needs the result of the upload
+        final DependencyTrackPublisher uut2 = new DependencyTrackPublisher(tmp.getName(), true, clientFactory);
+        uut2.setProjectId("uuid-1");
+        uut2.setDependencyTrackApiKey(apikeyId);
+        uut2.setQueueFailedUploads(true);
+        assertThatCode(() -> uut2.perform(build, workDir, env, launcher, listener)).isInstanceOf(AbortException.class).hasMessage(Messages.Builder_Upload_Failed());
+        assertThat(UploadOutbox.get().getEntries()).hasSize(1);
+
+        // Dependency-Track could not be reached
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        assertThat(UploadOutbox.get().getEntries()).hasSize(2);
+    }
+
+    @Test
+    public void testPerformAsyncWithRejectedUpload() throws IOException {
+        File tmp = tmpDir.newFile();
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        final DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), false, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setQueueFailedUploads(true);
+
+        // 400 Bad Request, Dependency-Track would reject the BOM on every attempt
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(false));
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).isInstanceOf(AbortException.class).hasMessage(Messages.Builder_Upload_Failed());
+        assertThat(UploadOutbox.get().getEntries()).isEmpty();
+    }
+
+    @Test
+    public void remoteUploaderSerializationTest() throws IOException, ClassNotFoundException {
+        RemoteUploader uut = RemoteUploader.builder()
+                .clientFactory(ApiClient::new)
+                .listener(TaskListener.NULL)
+                .baseUrl("http://test.tld")
+                .apiKey(Secret.fromString(apikey))
+                .projectId("uuid-1")
+                .build();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(uut);
+        }
+
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            assertThat(ois.readObject()).isInstanceOf(RemoteUploader.class);
+        }
+    }
+
     @Test
     public void testPerformAsyncWithoutProjectId() throws IOException {
         File tmp = tmpDir.newFile();
@@ -202,6 +336,61 @@ public class DependencyTrackPublisherTest {
         verify(client).getFindings(eq("uuid-1"));
     }
 
+    @Test
+    public void testPerformSyncRecordsProcessingTime() throws IOException {
+        File tmp = tmpDir.newFile();
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), true, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        Run previousBuild = mock(Run.class);
+        ResultAction previousAction = new ResultAction(Collections.emptyList(), new SeverityDistribution(0));
+        previousAction.setBomProcessingTime(1500);
+        when(previousBuild.getAction(ResultAction.class)).thenReturn(previousAction);
+        when(build.getPreviousBuild()).thenReturn(previousBuild);
+
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.FALSE);
+        when(client.getFindings(eq("uuid-1"))).thenReturn(Collections.emptyList());
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        ArgumentCaptor<Action> actions = ArgumentCaptor.forClass(Action.class);
+        verify(build, atLeastOnce()).addOrReplaceAction(actions.capture());
+        // the first check was done after 90% of the previous processing time
+        assertThat(actions.getAllValues()).filteredOn(ResultAction.class::isInstance).hasSize(1).first()
+                .extracting("bomProcessingTime", as(InstanceOfAssertFactories.LONG)).isGreaterThanOrEqualTo(1350L);
+    }
+
+    @Test
+    public void testPerformSyncWithWebhook() throws IOException {
+        File tmp = tmpDir.newFile();
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        r.jenkins.getDescriptorByType(DescriptorImpl.class).setDependencyTrackWebhookSecret(Secret.fromString("my-secret"));
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), true, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.FALSE);
+        when(client.getFindings(eq("uuid-1"))).thenReturn(Collections.emptyList());
+
+        // Dependency-Track notifies long before the first check, which would be after about a minute
+        final WebhookReceiver webhook = WebhookReceiver.get();
+        final Thread notifier = new Thread(() -> {
+            while (webhook.getSubscriptionCount() == 0) {
+                Thread.yield();
+            }
+            webhook.notify("token-1", "uuid-1", null, null);
+        });
+        notifier.start();
+
+        final long start = System.currentTimeMillis();
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        assertThat(System.currentTimeMillis() - start).isLessThan(30000);
+        verify(client).isTokenBeingProcessed(eq("token-1"));
+        assertThat(webhook.getSubscriptionCount()).isZero();
+    }
+
     @Test
     public void testPerformSyncWithoutProjectId() throws IOException {
         File tmp = tmpDir.newFile();
@@ -221,6 +410,288 @@ public class DependencyTrackPublisherTest {
         verify(client).getFindings(eq("uuid-1"));
     }
 
+    @Test
+    public void testPerformSyncLooksUpProjectIdWhileProcessing() throws IOException {
+        File tmp = tmpDir.newFile();
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), true, clientFactory);
+        uut.setProjectName("name-1");
+        uut.setProjectVersion("version-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        final CountDownLatch lookedUp = new CountDownLatch(1);
+
+        when(client.upload(isNull(), eq("name-1"), eq("version-1"), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        // DT is done only after the project has been looked up, so the lookup must happen while waiting
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenAnswer(invocation -> lookedUp.getCount() > 0);
+        when(client.lookupProject(eq("name-1"), eq("version-1"))).thenAnswer(invocation -> {
+            lookedUp.countDown();
+            return Project.builder().uuid("uuid-1").build();
+        });
+        when(client.getFindings(eq("uuid-1"))).thenReturn(Collections.emptyList());
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        verify(client).lookupProject(eq("name-1"), eq("version-1"));
+        verify(client).getFindings(eq("uuid-1"));
+        // the connection is set up while the artifact is read
+        verify(client, timeout(5000)).warmUp();
+    }
+
+    @Test
+    public void testPerformAwaitsWarmUp() throws IOException {
+        File tmp = tmpDir.newFile();
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        final List<String> createdWithApiKey = Collections.synchronizedList(new ArrayList<>());
+        final DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), false, (url, apiKey, logger, connTimeout, readTimeout) -> {
+            createdWithApiKey.add(apiKey);
+            return client;
+        });
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+        when(listener.getLogger()).thenReturn(new PrintStream(log, true, StandardCharsets.UTF_8.name()));
+        final CountDownLatch warmedUp = new CountDownLatch(1);
+
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true));
+        // the upload is done before the connection
+        doAnswer(invocation -> {
+            Thread.sleep(300);
+            warmedUp.countDown();
+            return null;
+        }).when(client).warmUp();
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        assertThat(warmedUp.getCount()).isZero();
+        assertThat(log.toString(StandardCharsets.UTF_8.name())).contains(Messages.Builder_Stage_Await(Messages.Builder_Stage_Connect()));
+        // one client for the warm-up and the rest of the step, one for the upload
+        assertThat(createdWithApiKey).containsExactly(apikey, apikey);
+    }
+
+    @Test
+    public void testPerformSyncWithMetricsOnly() throws IOException {
+        File tmp = tmpDir.newFile();
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), true, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setMetricsOnly(true);
+        uut.setUnstableTotalHigh(2);
+
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.FALSE);
+        // calculated after the upload
+        when(client.getCurrentMetrics(eq("uuid-1"))).thenAnswer(invocation -> ProjectMetrics.builder()
+                .critical(1).high(2).medium(3).lastOccurrence(System.currentTimeMillis()).build());
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        verify(client, never()).getFindings(anyString());
+        verify(build).setResult(Result.UNSTABLE);
+        ArgumentCaptor<Action> actions = ArgumentCaptor.forClass(Action.class);
+        verify(build, atLeastOnce()).addOrReplaceAction(actions.capture());
+        assertThat(actions.getAllValues()).filteredOn(ResultAction.class::isInstance).singleElement().isInstanceOfSatisfying(ResultAction.class, action -> {
+            assertThat(action.isFindingsOmitted()).isTrue();
+            assertThat(action.getFindings()).isEmpty();
+            assertThat(action.getSeverityDistribution().getCritical()).isEqualTo(1);
+            assertThat(action.getSeverityDistribution().getHigh()).isEqualTo(2);
+            assertThat(action.getSeverityDistribution().getMedium()).isEqualTo(3);
+        });
+    }
+
+    @Test
+    public void testPerformSyncWithOutdatedMetrics() throws IOException {
+        File tmp = tmpDir.newFile();
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), true, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setMetricsOnly(true);
+
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.FALSE);
+        // calculated long before the upload
+        when(client.getCurrentMetrics(eq("uuid-1"))).thenReturn(ProjectMetrics.builder().critical(1).lastOccurrence(1600000000000L).build());
+        when(client.getFindings(eq("uuid-1"))).thenReturn(Collections.emptyList());
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        verify(client).getFindings(eq("uuid-1"));
+        ArgumentCaptor<Action> actions = ArgumentCaptor.forClass(Action.class);
+        verify(build, atLeastOnce()).addOrReplaceAction(actions.capture());
+        assertThat(actions.getAllValues()).filteredOn(ResultAction.class::isInstance).singleElement().isInstanceOfSatisfying(ResultAction.class, action -> {
+            assertThat(action.isFindingsOmitted()).isFalse();
+            assertThat(action.getSeverityDistribution().getCritical()).isZero();
+        });
+    }
+
+    @Test
+    public void testPerformSyncWithMetricsOfServerWithOtherClock() throws IOException {
+        File tmp = tmpDir.newFile();
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), true, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setMetricsOnly(true);
+        final long hour = 3600000;
+
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.FALSE);
+        when(client.getFindings(eq("uuid-1"))).thenReturn(Collections.emptyList());
+        // the clock of DT is an hour behind, the metrics were calculated after the upload
+        when(client.getCurrentMetrics(eq("uuid-1"))).thenAnswer(invocation -> ProjectMetrics.builder()
+                .critical(1).lastOccurrence(System.currentTimeMillis() - hour).serverTime(System.currentTimeMillis() - hour).build());
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        verify(client, never()).getFindings(anyString());
+
+        // the clock of DT is an hour ahead, the metrics were calculated ten minutes before the upload
+        when(client.getCurrentMetrics(eq("uuid-1"))).thenAnswer(invocation -> ProjectMetrics.builder()
+                .critical(1).lastOccurrence(System.currentTimeMillis() + hour - 600000).serverTime(System.currentTimeMillis() + hour).build());
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        verify(client).getFindings(eq("uuid-1"));
+    }
+
+    @Test
+    public void testPerformSyncWithProjectIdOfPreviousBuild() throws IOException {
+        File tmp = tmpDir.newFile();
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), true, clientFactory);
+        uut.setProjectName("name-1");
+        uut.setProjectVersion("version-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        Run previousBuild = mock(Run.class);
+        ResultLinkAction previousAction = new ResultLinkAction("", "uuid-1");
+        previousAction.setProjectName("name-1");
+        previousAction.setProjectVersion("version-1");
+        when(previousBuild.getAction(ResultLinkAction.class)).thenReturn(previousAction);
+        when(build.getPreviousBuild()).thenReturn(previousBuild);
+
+        when(client.upload(isNull(), eq("name-1"), eq("version-1"), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.FALSE);
+        when(client.getFindings(eq("uuid-1"))).thenReturn(Collections.emptyList());
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        verify(client).getFindings(eq("uuid-1"));
+        verify(client, never()).lookupProject(anyString(), anyString());
+        // the configured project id must not change
+        assertThat(uut.getProjectId()).isNull();
+        assertThat(r.jenkins.getDescriptorByType(DescriptorImpl.class).getProjectIdCache().get("", "name-1", "version-1")).isEqualTo("uuid-1");
+    }
+
+    @Test
+    public void testPerformSyncWithOutdatedProjectId() throws IOException {
+        File tmp = tmpDir.newFile();
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), true, clientFactory);
+        uut.setProjectName("name-1");
+        uut.setProjectVersion("version-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        r.jenkins.getDescriptorByType(DescriptorImpl.class).getProjectIdCache().put("", "name-1", "version-1", "uuid-old");
+
+        when(client.upload(isNull(), eq("name-1"), eq("version-1"), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.FALSE);
+        when(client.getFindings(eq("uuid-old"))).thenThrow(new ApiClientException("not found", 404));
+        when(client.getFindings(eq("uuid-1"))).thenReturn(Collections.emptyList());
+        when(client.lookupProject(eq("name-1"), eq("version-1"))).thenReturn(Project.builder().uuid("uuid-1").build());
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        verify(client).lookupProject(eq("name-1"), eq("version-1"));
+        verify(client).getFindings(eq("uuid-1"));
+        assertThat(r.jenkins.getDescriptorByType(DescriptorImpl.class).getProjectIdCache().get("", "name-1", "version-1")).isEqualTo("uuid-1");
+    }
+
+    @Test
+    public void testPerformSyncWithUnchangedBom() throws IOException {
+        File tmp = tmpDir.newFile();
+        Files.write(tmp.toPath(), "<bom/>".getBytes(StandardCharsets.UTF_8));
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), true, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setSkipUnchangedBom(true);
+        Run previousBuild = mockPreviousBuild(DigestUtils.sha256Hex("<bom/>"));
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        verify(client, never()).upload(any(), any(), any(), any(FilePath.class), anyBoolean());
+        verify(client, never()).isTokenBeingProcessed(anyString());
+        verify(client, never()).getFindings(anyString());
+        ArgumentCaptor<Action> actions = ArgumentCaptor.forClass(Action.class);
+        verify(build, atLeastOnce()).addOrReplaceAction(actions.capture());
+        // the hash is passed on to the next build
+        assertThat(actions.getAllValues()).filteredOn(ResultLinkAction.class::isInstance).first()
+                .extracting("bomHash").isEqualTo(DigestUtils.sha256Hex("<bom/>"));
+        assertThat(actions.getAllValues()).filteredOn(ResultAction.class::isInstance).hasSize(1).first()
+                .extracting("findings").isEqualTo(previousBuild.getAction(ResultAction.class).getFindings());
+    }
+
+    @Test
+    public void testPerformSyncWithUnchangedBomAndRefreshedFindings() throws IOException {
+        File tmp = tmpDir.newFile();
+        Files.write(tmp.toPath(), "<bom/>".getBytes(StandardCharsets.UTF_8));
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), true, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setSkipUnchangedBom(true);
+        uut.setRefreshFindings(true);
+        mockPreviousBuild(DigestUtils.sha256Hex("<bom/>"));
+
+        when(client.getFindings(eq("uuid-1"))).thenReturn(Collections.emptyList());
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        verify(client, never()).upload(any(), any(), any(), any(FilePath.class), anyBoolean());
+        verify(client, never()).isTokenBeingProcessed(anyString());
+        verify(client).getFindings(eq("uuid-1"));
+    }
+
+    @Test
+    public void testPerformSyncWithChangedBom() throws IOException {
+        File tmp = tmpDir.newFile();
+        Files.write(tmp.toPath(), "<bom/>".getBytes(StandardCharsets.UTF_8));
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), true, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setSkipUnchangedBom(true);
+        mockPreviousBuild(DigestUtils.sha256Hex("<bom></bom>"));
+
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.FALSE);
+        when(client.getFindings(eq("uuid-1"))).thenReturn(Collections.emptyList());
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        verify(client).upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false));
+        ArgumentCaptor<Action> actions = ArgumentCaptor.forClass(Action.class);
+        verify(build, atLeastOnce()).addOrReplaceAction(actions.capture());
+        assertThat(actions.getAllValues()).filteredOn(ResultLinkAction.class::isInstance).first()
+                .extracting("bomHash").isEqualTo(DigestUtils.sha256Hex("<bom/>"));
+    }
+
+    @Test
+    public void testPerformSyncWithUnchangedBomButOtherRemovedElements() throws IOException {
+        File tmp = tmpDir.newFile();
+        Files.write(tmp.toPath(), "<bom/>".getBytes(StandardCharsets.UTF_8));
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(tmp.getName(), true, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setSkipUnchangedBom(true);
+        uut.setRemoveFromBom("/hashes/ licenses/license/text");
+        // the previous build uploaded the artifact as it is
+        mockPreviousBuild(DigestUtils.sha256Hex("<bom/>"));
+
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.FALSE);
+        when(client.getFindings(eq("uuid-1"))).thenReturn(Collections.emptyList());
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        verify(client).upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false));
+        ArgumentCaptor<Action> actions = ArgumentCaptor.forClass(Action.class);
+        verify(build, atLeastOnce()).addOrReplaceAction(actions.capture());
+        // the order and spelling of the paths do not matter
+        assertThat(actions.getAllValues()).filteredOn(ResultLinkAction.class::isInstance).first()
+                .extracting("bomHash").isNotEqualTo(DigestUtils.sha256Hex("<bom/>"))
+                .isEqualTo(new BomDigest(Arrays.asList("licenses/license/text", "hashes")).invoke(tmp, null));
+    }
+
     @Test
     public void testUseOfOverridenProperties() throws IOException {
         File tmp = tmpDir.newFile();
@@ -243,6 +714,160 @@ public class DependencyTrackPublisherTest {
         assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).isInstanceOf(AbortException.class).hasMessage(Messages.Builder_Upload_Failed());
     }
 
+    /**
+     * mocks a previous build that published a BOM with the given hash to
+     * project uuid-1
+     */
+    @Test
+    public void testPerformSyncWithSeveralArtifacts() throws IOException {
+        tmpDir.newFolder("a");
+        tmpDir.newFolder("b");
+        tmpDir.newFile("a/bom.xml");
+        tmpDir.newFile("b/bom.xml");
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher("*/bom.xml", true, clientFactory);
+        uut.setProjectName("name-${DT_ARTIFACT_DIR}");
+        uut.setProjectVersion("${my.var}");
+        uut.setDependencyTrackApiKey(apikeyId);
+
+        Vulnerability vulnerability = new Vulnerability("uuid-v", "source", "vulnId", "title", "subtitle", "description", "recommendation", Severity.HIGH, 1, 2, "cweName");
+        when(client.upload(isNull(), eq("name-a"), eq("my.value"), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-a"));
+        when(client.upload(isNull(), eq("name-b"), eq("my.value"), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-b"));
+        when(client.isTokenBeingProcessed(anyString())).thenReturn(Boolean.FALSE);
+        when(client.lookupProject(eq("name-a"), eq("my.value"))).thenReturn(Project.builder().uuid("uuid-a").build());
+        when(client.lookupProject(eq("name-b"), eq("my.value"))).thenReturn(Project.builder().uuid("uuid-b").build());
+        when(client.getFindings(eq("uuid-a"))).thenReturn(Collections.singletonList(new Finding(null, vulnerability, null, "matrix-a")));
+        when(client.getFindings(eq("uuid-b"))).thenReturn(Collections.singletonList(new Finding(null, vulnerability, null, "matrix-b")));
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        verify(client).isTokenBeingProcessed(eq("token-a"));
+        verify(client).isTokenBeingProcessed(eq("token-b"));
+        ArgumentCaptor<Action> actions = ArgumentCaptor.forClass(Action.class);
+        verify(build, atLeastOnce()).addOrReplaceAction(actions.capture());
+        // one result for all projects and no link to a single project
+        assertThat(actions.getAllValues()).filteredOn(ResultLinkAction.class::isInstance).isEmpty();
+        assertThat(actions.getAllValues()).filteredOn(ResultAction.class::isInstance).singleElement().isInstanceOfSatisfying(ResultAction.class, action -> {
+            assertThat(action.getProjectId()).isNull();
+            assertThat(action.getFindings()).hasSize(2);
+            assertThat(action.getSeverityDistribution().getHigh()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    public void testPerformWithSeveralArtifactsPrechecks() throws IOException {
+        tmpDir.newFolder("a");
+        tmpDir.newFolder("b");
+        tmpDir.newFile("a/bom.xml");
+        tmpDir.newFile("b/bom.xml");
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+
+        final DependencyTrackPublisher uut1 = new DependencyTrackPublisher("*/bom.xml", false, clientFactory);
+        uut1.setProjectId("uuid-1");
+        assertThatCode(() -> uut1.perform(build, workDir, env, launcher, listener)).isInstanceOf(AbortException.class).hasMessage(Messages.Builder_Artifacts_ProjectId());
+
+        final DependencyTrackPublisher uut2 = new DependencyTrackPublisher("*/bom.xml", false, clientFactory);
+        uut2.setProjectName("name-1");
+        uut2.setProjectVersion("${DT_ARTIFACT_NAME}");
+        assertThatCode(() -> uut2.perform(build, workDir, env, launcher, listener)).isInstanceOf(AbortException.class)
+                .hasMessageContaining("project \"name-1\" version \"bom\"");
+
+        final DependencyTrackPublisher uut3 = new DependencyTrackPublisher("*/sbom.json", false, clientFactory);
+        uut3.setProjectName("name-1");
+        uut3.setProjectVersion("version-1");
+        assertThatCode(() -> uut3.perform(build, workDir, env, launcher, listener)).isInstanceOf(AbortException.class).hasMessage(Messages.Builder_Artifact_NonExist("*/sbom.json"));
+        verify(client, never()).upload(any(), any(), any(), any(FilePath.class), anyBoolean());
+    }
+
+    @Test
+    public void testPerformAsyncWithMergedArtifacts() throws IOException {
+        Files.write(tmpDir.newFile("backend.xml").toPath(), ("<bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" version=\"1\"><components>"
+                + "<component type=\"library\"><name>a</name><purl>pkg:maven/org.example/a@1</purl></component></components></bom>").getBytes(StandardCharsets.UTF_8));
+        Files.write(tmpDir.newFile("frontend.xml").toPath(), ("<bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" version=\"1\"><components>"
+                + "<component type=\"library\"><name>a</name><purl>pkg:maven/org.example/a@1</purl></component>"
+                + "<component type=\"library\"><name>b</name><purl>pkg:npm/b@1</purl></component></components></bom>").getBytes(StandardCharsets.UTF_8));
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher("backend.xml,frontend.xml", false, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setMergeArtifacts(true);
+
+        final List<String> uploaded = new ArrayList<>();
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).then(invocation -> {
+            uploaded.add(invocation.<FilePath>getArgument(3).readToString());
+            return new UploadResult(true);
+        });
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        assertThat(uploaded).singleElement().satisfies(bom -> assertThat(bom)
+                .containsSubsequence("<name>a</name>", "<name>b</name>")
+                .containsOnlyOnce("pkg:maven/org.example/a@1"));
+        // the merged BOM does not stay behind
+        assertThat(WorkspaceList.tempDir(workDir).list()).isEmpty();
+    }
+
+    @Test
+    public void testPerformAsyncWithSlimmedBom() throws IOException {
+        final File artifact = tmpDir.newFile("bom.json");
+        Files.write(artifact.toPath(), ("{\"bomFormat\": \"CycloneDX\", \"components\": [{\"name\": \"a\", \"description\": \"long\","
+                + " \"licenses\": [{\"license\": {\"id\": \"MIT\", \"text\": {\"content\": \"MIT License\"}}}], \"purl\": \"pkg:npm/a@1\"}]}").getBytes(StandardCharsets.UTF_8));
+        final String original = new String(Files.readAllBytes(artifact.toPath()), StandardCharsets.UTF_8);
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(artifact.getName(), false, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setRemoveFromBom("license/text, description");
+
+        final List<String> uploaded = new ArrayList<>();
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).then(invocation -> {
+            final FilePath bom = invocation.getArgument(3);
+            assertThat(bom.getName()).endsWith(artifact.getName());
+            uploaded.add(bom.readToString());
+            return new UploadResult(true);
+        });
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+        assertThat(uploaded).containsExactly("{\"bomFormat\":\"CycloneDX\",\"components\":[{\"name\":\"a\","
+                + "\"licenses\":[{\"license\":{\"id\":\"MIT\"}}],\"purl\":\"pkg:npm/a@1\"}]}");
+        // the artifact itself is not changed and the slimmed copy does not stay behind
+        assertThat(artifact).hasContent(original);
+        assertThat(WorkspaceList.tempDir(workDir).list()).isEmpty();
+    }
+
+    @Test
+    public void testPerformWithInvalidBom() throws IOException {
+        final File artifact = tmpDir.newFile("bom.xml");
+        Files.write(artifact.toPath(), ("<bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" version=\"1\">\n<components>\n"
+                + "<component type=\"library\"><version>1</version></component>\n</components></bom>").getBytes(StandardCharsets.UTF_8));
+        FilePath workDir = new FilePath(tmpDir.getRoot());
+        DependencyTrackPublisher uut = new DependencyTrackPublisher(artifact.getName(), false, clientFactory);
+        uut.setProjectId("uuid-1");
+        uut.setDependencyTrackApiKey(apikeyId);
+        uut.setValidateBom(true);
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).isInstanceOf(AbortException.class)
+                .hasMessage(Messages.Builder_Bom_Invalid("bom.xml", "3", "27", "<component> has no <name>"));
+        verify(client, never()).upload(any(), any(), any(), any(FilePath.class), anyBoolean());
+
+        Files.write(artifact.toPath(), ("<bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" version=\"1\"><components>"
+                + "<component type=\"library\"><name>a</name></component></components></bom>").getBytes(StandardCharsets.UTF_8));
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true));
+
+        assertThatCode(() -> uut.perform(build, workDir, env, launcher, listener)).doesNotThrowAnyException();
+    }
+
+    private Run mockPreviousBuild(final String bomHash) {
+        Run previousBuild = mock(Run.class);
+        ResultLinkAction previousLink = new ResultLinkAction("", "uuid-1");
+        previousLink.setBomHash(bomHash);
+        Vulnerability vulnerability = new Vulnerability("uuid-v", "source", "vulnId", "title", "subtitle", "description", "recommendation", Severity.HIGH, 1, 2, "cweName");
+        ResultAction previousResult = new ResultAction(Collections.singletonList(new Finding(null, vulnerability, null, "matrix")), new SeverityDistribution(0));
+        previousResult.setProjectId("uuid-1");
+        when(previousBuild.getAction(ResultLinkAction.class)).thenReturn(previousLink);
+        when(previousBuild.getAction(ResultAction.class)).thenReturn(previousResult);
+        when(build.getPreviousBuild()).thenReturn(previousBuild);
+        return previousBuild;
+    }
+
     @Test
     public void serializationTest() throws IOException, ClassNotFoundException {
         File tmp = tmpDir.newFile();
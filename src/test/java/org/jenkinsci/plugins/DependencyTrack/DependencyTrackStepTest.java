@@ -0,0 +1,355 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.Secret;
+import io.jenkins.plugins.casc.misc.JenkinsConfiguredRule;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jenkinsci.plugins.DependencyTrack.model.UploadResult;
+import org.jenkinsci.plugins.plaincredentials.impl.StringCredentialsImpl;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.quality.Strictness;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DependencyTrackStepTest {
+
+    private static final String STEP_CONTEXT = "step-context";
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule().strictness(Strictness.LENIENT);
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    @Rule
+    public JenkinsConfiguredRule r = new JenkinsConfiguredRule();
+
+    @Mock
+    private StepContext context;
+
+    @Mock
+    private Run build;
+
+    @Mock
+    private TaskListener listener;
+
+    @Mock
+    private Job job;
+
+    @Mock
+    private ApiClient client;
+
+    private final ApiClientFactory clientFactory = (url, apiKey, logger, connTimeout, readTimeout) -> client;
+    private final String apikeyId = "api-key-id";
+
+    private DisposableServer server;
+
+    @Before
+    public void setup() throws IOException, InterruptedException {
+        when(listener.getLogger()).thenReturn(System.err);
+
+        DescriptorImpl descriptor = r.jenkins.getDescriptorByType(DescriptorImpl.class);
+        descriptor.setDependencyTrackPollingInterval(1);
+        CredentialsProvider.lookupStores(r.jenkins).iterator().next().addCredentials(Domain.global(), new StringCredentialsImpl(CredentialsScope.GLOBAL, apikeyId, "DependencyTrackStepTest", Secret.fromString("api-key")));
+
+        // needed for credential tracking
+        when(job.getParent()).thenReturn(r.jenkins);
+        when(job.getName()).thenReturn("u-drive-me-crazy");
+        when(build.getParent()).thenReturn(job);
+        when(build.getNumber()).thenReturn(1);
+
+        when(context.get(Run.class)).thenReturn(build);
+        when(context.get(FilePath.class)).thenReturn(new FilePath(tmpDir.getRoot()));
+        when(context.get(EnvVars.class)).thenReturn(new EnvVars());
+        when(context.get(TaskListener.class)).thenReturn(listener);
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    public void testStartAsync() throws Exception {
+        final File bom = tmpDir.newFile();
+        final DependencyTrackStep step = new DependencyTrackStep(bom.getName(), false, clientFactory);
+        step.setProjectId("uuid-1");
+        step.setDependencyTrackApiKey(apikeyId);
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+
+        final StepExecution uut = step.start(context);
+
+        assertThat(uut.start()).isFalse();
+        verify(context, timeout(5000)).onSuccess(isA(DependencyTrackUploads.class));
+        verify(client, never()).isTokenBeingProcessed(any());
+    }
+
+    @Test
+    public void testWaitWithoutWorkspace() throws Exception {
+        final File bom = tmpDir.newFile();
+        final DependencyTrackStep step = new DependencyTrackStep(bom.getName(), false, clientFactory);
+        step.setProjectId("uuid-1");
+        step.setDependencyTrackApiKey(apikeyId);
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.TRUE).thenReturn(Boolean.FALSE);
+        when(client.getFindings(eq("uuid-1"))).thenReturn(Collections.emptyList());
+
+        step.start(context).start();
+        final ArgumentCaptor<Object> uploads = ArgumentCaptor.forClass(Object.class);
+        verify(context, timeout(5000)).onSuccess(uploads.capture());
+
+        // outside of node, there is neither a workspace nor an environment
+        assertThat(new DependencyTrackWaitStep.StepDescriptorImpl().getRequiredContext()).containsOnly(Run.class, TaskListener.class);
+        final StepContext waitContext = mock(StepContext.class);
+        when(waitContext.get(Run.class)).thenReturn(build);
+        when(waitContext.get(TaskListener.class)).thenReturn(listener);
+        final StepExecution uut = new DependencyTrackWaitStep(uploads.getValue()).start(waitContext);
+
+        assertThat(uut.start()).isFalse();
+        verify(waitContext, timeout(10000)).onSuccess(null);
+        verify(waitContext, never()).get(FilePath.class);
+        verify(client, timeout(1000).times(2)).isTokenBeingProcessed(eq("token-1"));
+        verify(client).upload(any(), any(), any(), any(FilePath.class), eq(false));
+        verify(build).addOrReplaceAction(isA(ResultAction.class));
+        assertThat(uut.getStatus()).isEqualTo(Messages.Step_Status_Polling("token-1"));
+    }
+
+    @Test
+    public void testWaitWithoutUploads() {
+        // e.g. the value returned in synchronous mode
+        assertThatThrownBy(() -> new DependencyTrackWaitStep(null).start(context))
+                .isInstanceOf(AbortException.class).hasMessage(Messages.WaitStep_Error_NoUploads());
+    }
+
+    @Test
+    public void testStartSync() throws Exception {
+        final File bom = tmpDir.newFile();
+        final DependencyTrackStep step = new DependencyTrackStep(bom.getName(), true, clientFactory);
+        step.setProjectId("uuid-1");
+        step.setDependencyTrackApiKey(apikeyId);
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.TRUE).thenReturn(Boolean.FALSE);
+        when(client.getFindings(eq("uuid-1"))).thenReturn(Collections.emptyList());
+
+        final StepExecution uut = step.start(context);
+
+        assertThat(uut.start()).isFalse();
+        verify(context, timeout(10000)).onSuccess(null);
+        verify(context).saveState();
+        verify(client, timeout(1000).times(2)).isTokenBeingProcessed(eq("token-1"));
+        verify(build).addOrReplaceAction(isA(ResultAction.class));
+        assertThat(uut.getStatus()).isEqualTo(Messages.Step_Status_Polling("token-1"));
+    }
+
+    @Test
+    public void testUploadFailed() throws Exception {
+        final File bom = tmpDir.newFile();
+        final DependencyTrackStep step = new DependencyTrackStep(bom.getName(), true, clientFactory);
+        step.setProjectId("uuid-1");
+        step.setDependencyTrackApiKey(apikeyId);
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(false));
+
+        step.start(context).start();
+
+        verify(context, timeout(5000)).onFailure(isA(AbortException.class));
+        verify(context, never()).onSuccess(any());
+    }
+
+    @Test
+    public void testResumeWithoutUploadAgain() throws Exception {
+        final File bom = tmpDir.newFile();
+        final DependencyTrackStep step = new DependencyTrackStep(bom.getName(), true, clientFactory);
+        step.setProjectId("uuid-1");
+        step.setDependencyTrackApiKey(apikeyId);
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        // still being processed when Jenkins "restarts"
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.TRUE, Boolean.TRUE, Boolean.FALSE);
+        when(client.getFindings(eq("uuid-1"))).thenReturn(Collections.emptyList());
+
+        final StepExecution uut = step.start(context);
+        uut.start();
+        verify(client, timeout(5000)).isTokenBeingProcessed(eq("token-1"));
+        // let the first check finish
+        Thread.sleep(200);
+        uut.onResume();
+
+        verify(context, timeout(10000)).onSuccess(null);
+        verify(client).upload(any(), any(), any(), any(FilePath.class), eq(false));
+    }
+
+    @Test
+    public void testResumeAfterRestart() throws Exception {
+        final AtomicInteger uploads = new AtomicInteger();
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .post(ApiClient.BOM_URL, (request, response) -> {
+                            uploads.incrementAndGet();
+                            return response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).send();
+                        })
+                        .get(ApiClient.BOM_TOKEN_URL + "/{uuid}", (request, response) -> response.sendString(Mono.just("{\"processing\":false}")))
+                        .get(ApiClient.PROJECT_FINDINGS_URL + "/{uuid}", (request, response) -> response.sendString(Mono.just("[]"))))
+                .bindNow();
+        final File bom = tmpDir.newFile();
+        final DependencyTrackStep step = new DependencyTrackStep(bom.getName(), true, clientFactory);
+        step.setProjectId("uuid-1");
+        step.setDependencyTrackUrl(String.format("http://%s:%d", server.host(), server.port()));
+        step.setDependencyTrackApiKey(apikeyId);
+        when(client.upload(eq("uuid-1"), isNull(), isNull(), any(FilePath.class), eq(false))).thenReturn(new UploadResult(true, "token-1"));
+        // still being processed when Jenkins shuts down
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.TRUE);
+
+        final StepExecution execution = step.start(context);
+        execution.start();
+        verify(context, timeout(5000)).saveState();
+        verify(client, timeout(5000)).isTokenBeingProcessed(eq("token-1"));
+        final byte[] state = serialize(execution);
+        execution.stop(new InterruptedException());
+
+        // after the restart, the client is no longer the mock but talks to the server
+        final StepContext resumedContext = mock(StepContext.class);
+        when(resumedContext.get(Run.class)).thenReturn(build);
+        when(resumedContext.get(TaskListener.class)).thenReturn(listener);
+        final StepExecution uut = deserialize(state, resumedContext);
+        uut.onResume();
+
+        verify(resumedContext, timeout(10000)).onSuccess(null);
+        verify(build).addOrReplaceAction(isA(ResultAction.class));
+        verify(client).upload(any(), any(), any(), any(FilePath.class), eq(false));
+        assertThat(uploads).hasValue(0);
+    }
+
+    @Test
+    public void serializationTest() throws Exception {
+        final DependencyTrackStep step = new DependencyTrackStep("bom.xml", true, clientFactory);
+        step.setProjectName("name-1");
+        step.setProjectVersion("version-1");
+        step.setAutoCreateProjects(Boolean.FALSE);
+        step.setDependencyTrackUrl("http://test.tld");
+        step.setUnstableTotalCritical(1);
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(step);
+        }
+
+        // the step may be running while it is saved
+        assertThat(step.getPublisher()).satisfies(publisher -> {
+            assertThat(publisher.getProjectName()).isEqualTo("name-1");
+            assertThat(publisher.getProjectVersion()).isEqualTo("version-1");
+            assertThat(publisher.isOverrideGlobals()).isTrue();
+        });
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            assertThat(ois.readObject()).isInstanceOfSatisfying(DependencyTrackStep.class, actual -> {
+                assertThat(actual.getArtifact()).isEqualTo("bom.xml");
+                assertThat(actual.isSynchronous()).isTrue();
+                assertThat(actual.getDependencyTrackUrl()).isEqualTo("http://test.tld");
+                assertThat(actual.getAutoCreateProjects()).isFalse();
+                assertThat(actual.getUnstableTotalCritical()).isEqualTo(1);
+            });
+        }
+    }
+
+    @Test
+    public void testResumeDuringUpload() throws Exception {
+        final DependencyTrackStep step = new DependencyTrackStep("bom.xml", true, clientFactory);
+
+        // never started, so there is no token yet
+        new DependencyTrackStepExecution(step, context).onResume();
+
+        verify(context).onFailure(isA(AbortException.class));
+    }
+
+    /**
+     * serializes the execution without its context, which the pipeline
+     * provides again after a restart
+     */
+    private byte[] serialize(final StepExecution execution) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos) {
+            {
+                enableReplaceObject(true);
+            }
+
+            @Override
+            protected Object replaceObject(final Object obj) {
+                return obj == context ? STEP_CONTEXT : obj;
+            }
+        }) {
+            oos.writeObject(execution);
+        }
+        return baos.toByteArray();
+    }
+
+    private static StepExecution deserialize(final byte[] state, final StepContext context) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(state)) {
+            {
+                enableResolveObject(true);
+            }
+
+            @Override
+            protected Object resolveObject(final Object obj) {
+                return STEP_CONTEXT.equals(obj) ? context : obj;
+            }
+        }) {
+            return (StepExecution) ois.readObject();
+        }
+    }
+}
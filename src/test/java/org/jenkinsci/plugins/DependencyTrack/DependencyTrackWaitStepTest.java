@@ -0,0 +1,102 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import hudson.model.Executor;
+import hudson.util.Secret;
+import io.jenkins.plugins.casc.misc.JenkinsConfiguredRule;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jenkinsci.plugins.plaincredentials.impl.StringCredentialsImpl;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DependencyTrackWaitStepTest {
+
+    @Rule
+    public JenkinsConfiguredRule r = new JenkinsConfiguredRule();
+
+    private DisposableServer server;
+
+    private final AtomicBoolean processing = new AtomicBoolean(true);
+
+    private final AtomicInteger polls = new AtomicInteger();
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .post(ApiClient.BOM_URL, (request, response) -> response.sendString(request.receive().then(Mono.just("{\"token\":\"token-1\"}"))))
+                        .get(ApiClient.BOM_TOKEN_URL + "/{uuid}", (request, response) -> {
+                            polls.incrementAndGet();
+                            return response.sendString(Mono.fromSupplier(() -> "{\"processing\":" + processing.get() + "}"));
+                        })
+                        .get(ApiClient.PROJECT_FINDINGS_URL + "/{uuid}", (request, response) -> response.sendString(Mono.just("[]"))))
+                .bindNow();
+
+        final DescriptorImpl descriptor = r.jenkins.getDescriptorByType(DescriptorImpl.class);
+        descriptor.setDependencyTrackUrl(String.format("http://%s:%d", server.host(), server.port()));
+        descriptor.setDependencyTrackApiKey("api-key-id");
+        descriptor.setDependencyTrackPollingInterval(1);
+        CredentialsProvider.lookupStores(r.jenkins).iterator().next().addCredentials(Domain.global(), new StringCredentialsImpl(CredentialsScope.GLOBAL, "api-key-id", "DependencyTrackWaitStepTest", Secret.fromString("api-key")));
+    }
+
+    @After
+    public void tearDown() {
+        server.disposeNow();
+    }
+
+    @Test
+    public void testWaitReleasesExecutor() throws Exception {
+        final WorkflowJob job = r.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition("def uploads\n"
+                + "node {\n"
+                + "  writeFile file: 'bom.xml', text: '<bom xmlns=\"http://cyclonedx.org/schema/bom/1.3\" version=\"1\"/>'\n"
+                + "  uploads = dependencyTrackPublish artifact: 'bom.xml', projectId: 'uuid-1', synchronous: false\n"
+                + "}\n"
+                + "dependencyTrackWait uploads\n", true));
+
+        final WorkflowRun run = job.scheduleBuild2(0).waitForStart();
+        while (polls.get() == 0) {
+            assertThat(run.isBuilding()).isTrue();
+            Thread.sleep(100);
+        }
+
+        // the build keeps waiting for Dependency-Track, but not on an executor
+        assertThat(run.isBuilding()).isTrue();
+        assertThat(r.jenkins.toComputer().getExecutors()).noneMatch(Executor::isBusy);
+
+        processing.set(false);
+        r.assertBuildStatusSuccess(r.waitForCompletion(run));
+        assertThat(run.getAction(ResultAction.class)).isNotNull();
+    }
+}
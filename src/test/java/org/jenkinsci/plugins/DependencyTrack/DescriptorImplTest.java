@@ -18,30 +18,49 @@ package org.jenkinsci.plugins.DependencyTrack;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.CredentialsScope;
 import com.cloudbees.plugins.credentials.domains.Domain;
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
 import hudson.model.Descriptor;
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
 import hudson.util.FormValidation;
+import hudson.util.HttpResponses;
 import hudson.util.ListBoxModel;
 import hudson.util.Secret;
 import io.jenkins.plugins.casc.misc.JenkinsConfiguredRule;
 import java.io.IOException;
+import java.net.URL;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
+import jenkins.model.Jenkins;
 import net.sf.json.JSONObject;
 import org.jenkinsci.plugins.DependencyTrack.model.Project;
 import org.jenkinsci.plugins.plaincredentials.impl.StringCredentialsImpl;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+import org.kohsuke.stapler.HttpResponse;
 import org.kohsuke.stapler.StaplerRequest;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.mockito.quality.Strictness;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -67,22 +86,118 @@ public class DescriptorImplTest {
     }
 
     @Test
-    public void doFillProjectIdItemsTest() throws ApiClientException {
-        List<Project> projects = new ArrayList<>();
-        projects.add(Project.builder().name("Project 2").uuid("uuid-2").version("1.2.3").build());
-        projects.add(Project.builder().name("Project 1").uuid("uuid-1").build());
-        doReturn(projects).doThrow(new ApiClientException("test failure"))
-                .when(client).getProjects();
-
-        assertThat(uut.doFillProjectIdItems(null, null, null)).usingElementComparatorOnFields("name", "value", "selected").containsExactly(
-                new ListBoxModel.Option("-- Select Project --", null, false),
-                new ListBoxModel.Option("Project 1", "uuid-1", false),
-                new ListBoxModel.Option("Project 2 1.2.3", "uuid-2", false)
-        );
+    public void doSearchProjectsTest() throws ApiClientException {
+        uut.setDependencyTrackUrl("http://url.tld");
+        doReturn(Arrays.asList(
+                Project.builder().name("Project 1").uuid("uuid-1").build(),
+                Project.builder().name("Project 2").uuid("uuid-2").version("1.2.3").build()
+        )).doThrow(new ApiClientException("test failure"))
+                .when(client).searchProjects("Proj", 20);
 
-        assertThat(uut.doFillProjectIdItems(null, null, null)).usingElementComparatorOnFields("name", "value", "selected").containsExactly(
-                new ListBoxModel.Option(Messages.Builder_Error_Projects("test failure"), null, false)
-        );
+        assertThat(getJson(uut.doSearchProjects(" Proj ", null, null, null))).satisfies(json -> {
+            assertThat(json.getString("status")).isEqualTo("ok");
+            assertThat(json.getJSONArray("data")).hasToString("[{\"name\":\"Project 1\",\"value\":\"uuid-1\"},{\"name\":\"Project 2 1.2.3\",\"value\":\"uuid-2\"}]");
+        });
+
+        assertThat(getJson(uut.doSearchProjects("Proj", null, null, null))).satisfies(json -> {
+            assertThat(json.getString("status")).isEqualTo("error");
+            assertThat(json.getString("message")).isEqualTo(Messages.Builder_Error_Projects("test failure"));
+        });
+
+        assertThat(getJson(uut.doSearchProjects("", null, null, null)).getJSONArray("data")).isEmpty();
+        verify(client, times(2)).searchProjects(anyString(), anyInt());
+    }
+
+    @Test
+    public void searchProjectsFromJobConfigTest() throws Exception {
+        final DisposableServer server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get(ApiClient.PROJECT_URL, (request, response) -> response.sendString(Mono.just("[{\"name\":\"Project 1\",\"uuid\":\"uuid-1\"}]"))))
+                .bindNow();
+        try {
+            r.jenkins.getDescriptorByType(DescriptorImpl.class).setDependencyTrackUrl(String.format("http://%s:%d", server.host(), server.port()));
+            final FreeStyleProject job = r.createFreeStyleProject("job");
+            job.getPublishersList().add(new DependencyTrackPublisher("bom.xml", false));
+            // may configure the job but not the global settings
+            r.jenkins.setSecurityRealm(r.createDummySecurityRealm());
+            r.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                    .grant(Jenkins.READ).everywhere().to("dev")
+                    .grant(Item.READ, Item.CONFIGURE).onItems(job).to("dev"));
+            final JenkinsRule.WebClient wc = r.createWebClient().login("dev");
+
+            final HtmlPage config = wc.getPage(job, "configure");
+            final String searchUrl = config.getElementById("projectId").getAttribute("data-search-url");
+            assertThat(searchUrl).isEqualTo(r.contextPath + "/job/job/descriptorByName/" + DependencyTrackPublisher.class.getName() + "/searchProjects");
+
+            final WebRequest request = new WebRequest(new URL(r.getURL(), searchUrl), HttpMethod.POST);
+            request.setRequestParameters(new ArrayList<>(Collections.singletonList(new NameValuePair("q", "Proj"))));
+            wc.addCrumb(request);
+            assertThat(JSONObject.fromObject(wc.getPage(request).getWebResponse().getContentAsString())).satisfies(json -> {
+                assertThat(json.getString("status")).isEqualTo("ok");
+                assertThat(json.getJSONArray("data")).hasToString("[{\"name\":\"Project 1\",\"value\":\"uuid-1\"}]");
+            });
+        } finally {
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    public void doCheckProjectIdTest() throws ApiClientException {
+        final String uuid = "eaed0ba5-3a6d-4e23-9a6b-35e4f8a89dc6";
+        uut.setDependencyTrackUrl("http://url.tld");
+        when(client.getProject(uuid))
+                .thenReturn(Project.builder().name("Project 1").uuid(uuid).version("1.2.3").build())
+                .thenReturn(null)
+                .thenThrow(new ApiClientException("test failure"));
+
+        assertThat(uut.doCheckProjectId(uuid, null, null, null))
+                .hasFieldOrPropertyWithValue("kind", FormValidation.Kind.OK)
+                .hasMessage("Project 1 1.2.3");
+        assertThat(uut.doCheckProjectId(uuid, null, null, null))
+                .hasFieldOrPropertyWithValue("kind", FormValidation.Kind.ERROR)
+                .hasMessage(Messages.Builder_Project_NotFound());
+        assertThat(uut.doCheckProjectId(uuid, null, null, null))
+                .hasFieldOrPropertyWithValue("kind", FormValidation.Kind.WARNING)
+                .hasMessage("test failure");
+        assertThat(uut.doCheckProjectId("Project 1", null, null, null))
+                .hasFieldOrPropertyWithValue("kind", FormValidation.Kind.WARNING);
+        assertThat(uut.doCheckProjectId("", null, null, null)).isEqualTo(FormValidation.ok());
+    }
+
+    @Test
+    public void doCheckProjectNameTest() throws ApiClientException {
+        uut.setDependencyTrackUrl("http://url.tld");
+        when(client.lookupProject("name-1", "version-1")).thenReturn(Project.builder().name("name-1").version("version-1").uuid("uuid-1").build());
+        when(client.lookupProject("name-2", "version-2")).thenThrow(new ApiClientException("not found", 404));
+        when(client.lookupProject("name-3", "version-3")).thenThrow(new ApiClientException("test failure", 500));
+
+        assertThat(uut.doCheckProjectName("name-1", "version-1", null, null, null))
+                .hasFieldOrPropertyWithValue("kind", FormValidation.Kind.OK)
+                .hasMessage(Messages.Builder_Project_Resolved("uuid-1"));
+        // cached
+        assertThat(uut.doCheckProjectName("name-1", "version-1", null, null, null))
+                .hasMessage(Messages.Builder_Project_Resolved("uuid-1"));
+
+        assertThat(uut.doCheckProjectName("name-2", "version-2", null, null, null))
+                .hasFieldOrPropertyWithValue("kind", FormValidation.Kind.OK)
+                .hasMessage(Messages.Builder_Project_Missing());
+        // negative cached
+        assertThat(uut.doCheckProjectName("name-2", "version-2", null, null, null))
+                .hasMessage(Messages.Builder_Project_Missing());
+
+        assertThat(uut.doCheckProjectName("name-3", "version-3", null, null, null))
+                .hasFieldOrPropertyWithValue("kind", FormValidation.Kind.WARNING)
+                .hasMessage("test failure");
+
+        assertThat(uut.doCheckProjectName("${NAME}", "version-1", null, null, null)).isEqualTo(FormValidation.ok());
+        assertThat(uut.doCheckProjectName("name-1", "", null, null, null)).isEqualTo(FormValidation.ok());
+        verify(client, times(3)).lookupProject(anyString(), anyString());
+    }
+
+    private static JSONObject getJson(HttpResponse response) {
+        assertThat(response).isInstanceOf(HttpResponses.JSONObjectResponse.class);
+        return ((HttpResponses.JSONObjectResponse) response).getJsonObject();
     }
 
     @Test
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 OWASP.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.jenkinsci.plugins.DependencyTrack.model.Finding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares reading the whole findings response into a string before parsing
+ * it with parsing it while streaming.
+ *
+ * Run with {@code mvn test -Dtest=BenchmarkRunner}. Add
+ * {@code -Djmh.args="-prof gc"} to see the allocation rate of each variant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FindingParserBenchmark {
+
+    private static final String FINDING = "{\"component\":{\"uuid\":\"c-%1$d\",\"name\":\"component-%1$d\",\"group\":\"org.example\",\"version\":\"1.0.%1$d\",\"purl\":\"pkg:maven/org.example/component-%1$d@1.0.%1$d\"},"
+            + "\"vulnerability\":{\"uuid\":\"v-%1$d\",\"source\":\"NVD\",\"vulnId\":\"CVE-2020-%1$d\",\"title\":\"title\",\"subtitle\":\"subtitle\","
+            + "\"description\":\"A rather long description of the vulnerability, as they usually are, including some \\\"quoted\\\" text and {braces}.\","
+            + "\"recommendation\":null,\"severity\":\"HIGH\",\"severityRank\":1,\"cweId\":79,\"cweName\":\"Cross-site Scripting\"},"
+            + "\"analysis\":{\"state\":\"NOT_SET\",\"isSuppressed\":false},\"matrix\":\"p-%1$d:c-%1$d:v-%1$d\"}";
+
+    @Param({"1000", "30000"})
+    public int findings;
+
+    private byte[] response;
+
+    @Setup
+    public void setup() {
+        response = IntStream.range(0, findings)
+                .mapToObj(i -> String.format(FINDING, i))
+                .collect(Collectors.joining(",", "[", "]"))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<Finding> buffered() throws IOException {
+        // this is how the response used to be read: as a whole, before parsing it
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(response), StandardCharsets.UTF_8));
+        return FindingParser.parse(new StringReader(reader.lines().collect(Collectors.joining())));
+    }
+
+    @Benchmark
+    public List<Finding> streaming() throws IOException {
+        try (Reader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(response), StandardCharsets.UTF_8))) {
+            return FindingParser.parse(reader);
+        }
+    }
+}
@@ -16,6 +16,8 @@
 package org.jenkinsci.plugins.DependencyTrack;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import org.assertj.core.util.Files;
 import org.jenkinsci.plugins.DependencyTrack.model.Analysis;
@@ -26,6 +28,7 @@ import org.jenkinsci.plugins.DependencyTrack.model.Vulnerability;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  *
@@ -34,14 +37,48 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class FindingParserTest {
 
     @Test
-    public void parseTest() {
-        assertThat(FindingParser.parse("[]")).isEmpty();
+    public void parseTest() throws IOException {
+        assertThat(FindingParser.parse(new StringReader("[]"))).isEmpty();
+        assertThat(FindingParser.parse(new StringReader(" [ ]\n"))).isEmpty();
 
         File findings = new File("src/test/resources/findings.json");
         Component c1 = new Component("uuid-1", "name-1", "group-1", "version-1", "purl-1");
         Vulnerability v1 = new Vulnerability("uuid-1", "source-1", "vulnId-1", "title-1", "subtitle-1", "description-1", "recommendation-1", Severity.CRITICAL, 1, 2, "cweName-1");
         Analysis a1 = new Analysis("state-1", false);
         Finding f1 = new Finding(c1, v1, a1, "matrix-1");
-        assertThat(FindingParser.parse(Files.contentOf(findings, StandardCharsets.UTF_8))).containsExactly(f1);
+        assertThat(FindingParser.parse(new StringReader(Files.contentOf(findings, StandardCharsets.UTF_8)))).containsExactly(f1);
+    }
+
+    @Test
+    public void parseStreamingWithSpecialCharactersTest() throws IOException {
+        final String finding = "{\"component\":{\"uuid\":\"uuid-%1$d\",\"name\":\"na]}\\\"me\\\\\",\"version\":null},"
+                + "\"vulnerability\":{\"uuid\":\"uuid-%1$d\",\"title\":\"{[\",\"severity\":\"HIGH\",\"aliases\":[{\"id\":\"x\"}]},"
+                + "\"analysis\":{\"isSuppressed\":true},\"matrix\":\"matrix-%1$d\"}";
+        final String json = "[" + String.format(finding, 1) + ",\n" + String.format(finding, 2) + "]";
+
+        assertThat(FindingParser.parse(new StringReader(json)))
+                .hasSize(2)
+                .first().satisfies(f -> {
+                    assertThat(f.getComponent().getName()).isEqualTo("na]}\"me\\");
+                    assertThat(f.getVulnerability().getTitle()).isEqualTo("{[");
+                    assertThat(f.getAnalysis().isSuppressed()).isTrue();
+                });
+    }
+
+    @Test
+    public void parseStreamingInvalidTest() {
+        assertThatThrownBy(() -> FindingParser.parse(new StringReader(""))).isInstanceOf(IOException.class)
+                .hasMessage(Messages.FindingParser_Error_Invalid(Messages.JsonTokenizer_Error_UnexpectedEnd(), "1", "1"));
+        assertThatThrownBy(() -> FindingParser.parse(new StringReader("{}"))).isInstanceOf(IOException.class)
+                .hasMessage(Messages.FindingParser_Error_NotAnArray('{'));
+        assertThatThrownBy(() -> FindingParser.parse(new StringReader("[{\"matrix\":\"1\"}"))).isInstanceOf(IOException.class)
+                .hasMessage(Messages.FindingParser_Error_Invalid(Messages.JsonTokenizer_Error_UnexpectedEnd(), "1", "16"));
+        assertThatThrownBy(() -> FindingParser.parse(new StringReader("[1]"))).isInstanceOf(IOException.class)
+                .hasMessage(Messages.FindingParser_Error_Invalid(Messages.JsonTokenizer_Error_UnexpectedCharacter('1'), "1", "2"));
+        assertThatThrownBy(() -> FindingParser.parse(new StringReader("[{\"matrix\":\"1\",}]"))).isInstanceOf(IOException.class)
+                .hasMessage(Messages.FindingParser_Error_Invalid(Messages.JsonTokenizer_Error_UnexpectedCharacter('}'), "1", "16"));
+        // the quotes of the message survive the formatting
+        assertThatThrownBy(() -> FindingParser.parse(new StringReader("[]\n x"))).isInstanceOf(IOException.class)
+                .hasMessage("Invalid findings at line 2, column 2: Unexpected character 'x'");
     }
 }
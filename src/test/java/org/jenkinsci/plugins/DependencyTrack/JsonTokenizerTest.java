@@ -0,0 +1,79 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.io.IOException;
+import java.io.StringReader;
+import org.apache.commons.io.output.NullWriter;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JsonTokenizerTest {
+
+    @Test
+    public void valueTest() throws IOException {
+        final JsonTokenizer uut = new JsonTokenizer(new StringReader("\uFEFF {\"a\\\"\" : [ 1, -0.5E+2, true, false, null, \"x\\u00e4\\n\" ] ,\n\"b\": {} }  "));
+        final StringBuilder copy = new StringBuilder();
+
+        uut.value(copy);
+        uut.skipWhitespace();
+
+        assertThat(copy).hasToString("{\"a\\\"\":[1,-0.5E+2,true,false,null,\"x\\u00e4\\n\"],\"b\":{}}");
+        assertThat(uut.current()).isEqualTo(-1);
+    }
+
+    @Test
+    public void structureTest() throws IOException {
+        final JsonTokenizer uut = new JsonTokenizer(new StringReader("{\"short\": \"abc\", \"long\": \"abcd\", \"skipped\": [{}]}"));
+
+        uut.begin();
+        assertThat(uut.name()).isEqualTo("short");
+        assertThat(uut.string(3)).isEqualTo("abc");
+        uut.separator('}');
+        assertThat(uut.name()).isEqualTo("long");
+        assertThat(uut.string(3)).isNull();
+        uut.separator('}');
+        assertThat(uut.name()).isEqualTo("skipped");
+        uut.value(NullWriter.NULL_WRITER);
+        uut.separator('}');
+        assertThat(uut.current()).isEqualTo('}');
+        uut.end();
+        assertThat(uut.current()).isEqualTo(-1);
+    }
+
+    @Test
+    public void invalidTest() {
+        assertError("[1,]", Messages.JsonTokenizer_Error_UnexpectedCharacter(']'), 1, 4);
+        assertError("[01]", Messages.JsonTokenizer_Error_UnexpectedCharacter('1'), 1, 3);
+        assertError("{\"a\" 1}", Messages.JsonTokenizer_Error_UnexpectedCharacter('1'), 1, 6);
+        assertError("[\"\\x\"]", Messages.JsonTokenizer_Error_UnexpectedCharacter('x'), 1, 4);
+        assertError("[\n tru]", Messages.JsonTokenizer_Error_UnexpectedCharacter(']'), 2, 5);
+        assertError("{\"a\": [", Messages.JsonTokenizer_Error_UnexpectedEnd(), 1, 8);
+        assertError(StringUtils.repeat("[", JsonTokenizer.MAX_DEPTH + 1), Messages.JsonTokenizer_Error_TooDeep(JsonTokenizer.MAX_DEPTH), 1, JsonTokenizer.MAX_DEPTH + 1);
+    }
+
+    private static void assertError(final String json, final String message, final int line, final int column) {
+        assertThatThrownBy(() -> new JsonTokenizer(new StringReader(json)).value(NullWriter.NULL_WRITER))
+                .isInstanceOfSatisfying(JsonTokenizer.SyntaxException.class, e -> {
+                    assertThat(e).hasMessage(message);
+                    assertThat(e.getLine()).isEqualTo(line);
+                    assertThat(e.getColumn()).isEqualTo(column);
+                });
+    }
+}
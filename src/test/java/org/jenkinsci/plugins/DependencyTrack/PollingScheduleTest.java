@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 OWASP.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PollingScheduleTest {
+
+    @Test
+    public void backoffWithoutJitterTest() {
+        // 0.5 means no jitter at all
+        final PollingSchedule uut = new PollingSchedule(10000, 0, () -> 0.5);
+
+        assertThat(uut.nextDelay()).isEqualTo(1000);
+        assertThat(uut.nextDelay()).isEqualTo(2000);
+        assertThat(uut.nextDelay()).isEqualTo(4000);
+        assertThat(uut.nextDelay()).isEqualTo(8000);
+        assertThat(uut.nextDelay()).isEqualTo(10000);
+        assertThat(uut.nextDelay()).isEqualTo(10000);
+        assertThat(uut.getChecks()).isEqualTo(6);
+        assertThat(uut.getTotalDelay()).isEqualTo(35000);
+        assertThat(uut).hasToString("1.0s, 2.0s, 4.0s, 8.0s, 10.0s, 10.0s");
+    }
+
+    @Test
+    public void backoffWithJitterTest() {
+        final PollingSchedule lowest = new PollingSchedule(10000, 0, () -> 0);
+        final PollingSchedule highest = new PollingSchedule(10000, 0, () -> 0.999999);
+
+        assertThat(lowest.nextDelay()).isEqualTo(800);
+        assertThat(lowest.nextDelay()).isEqualTo(1600);
+        assertThat(highest.nextDelay()).isBetween(1199L, 1200L);
+        assertThat(highest.nextDelay()).isBetween(2399L, 2400L);
+        // the cap also applies to the jitter
+        for (int i = 0; i < 10; i++) {
+            assertThat(highest.nextDelay()).isLessThanOrEqualTo(10000);
+        }
+    }
+
+    @Test
+    public void backoffWithEstimateTest() {
+        final PollingSchedule uut = new PollingSchedule(10000, 60000, () -> 0.5);
+
+        // the estimate is not capped
+        assertThat(uut.nextDelay()).isEqualTo(54000);
+        assertThat(uut.nextDelay()).isEqualTo(1000);
+        assertThat(uut.nextDelay()).isEqualTo(2000);
+        assertThat(uut.nextDelay()).isEqualTo(4000);
+    }
+
+    @Test
+    public void shortEstimateTest() {
+        assertThat(new PollingSchedule(10000, 100, () -> 0.5).nextDelay()).isEqualTo(1000);
+        assertThat(new PollingSchedule(500, 100, () -> 0.5).nextDelay()).isEqualTo(500);
+    }
+
+    @Test
+    public void maxDelayBelowFirstDelayTest() {
+        final PollingSchedule uut = new PollingSchedule(500, 0, () -> 0.5);
+
+        assertThat(uut.nextDelay()).isEqualTo(500);
+        assertThat(uut.nextDelay()).isEqualTo(500);
+    }
+}
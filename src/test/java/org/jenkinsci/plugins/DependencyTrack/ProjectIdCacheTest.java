@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 OWASP.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import hudson.model.Run;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProjectIdCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final ProjectIdCache uut = new ProjectIdCache(now::get, 100, 3);
+
+    @Test
+    public void putAndInvalidateTest() {
+        assertThat(uut.get("url", "name", "version")).isNull();
+
+        uut.put("url", "name", "version", "uuid-1");
+        assertThat(uut.get("url", "name", "version")).isEqualTo("uuid-1");
+        assertThat(uut.get("other-url", "name", "version")).isNull();
+        assertThat(uut.get("url", "other-name", "version")).isNull();
+        assertThat(uut.get("url", "name", "other-version")).isNull();
+        assertThat(uut.isMissing("url", "name", "version")).isFalse();
+
+        now.set(Long.MAX_VALUE);
+        assertThat(uut.get("url", "name", "version")).isEqualTo("uuid-1");
+
+        uut.invalidate("url", "name", "version");
+        assertThat(uut.get("url", "name", "version")).isNull();
+    }
+
+    @Test
+    public void putMissingTest() {
+        uut.putMissing("url", "name", "version");
+        assertThat(uut.get("url", "name", "version")).isNull();
+        assertThat(uut.isMissing("url", "name", "version")).isTrue();
+
+        now.set(100);
+        assertThat(uut.isMissing("url", "name", "version")).isFalse();
+        // expired entries are removed
+        assertThat(uut.size()).isZero();
+
+        uut.put("url", "name", "version", "uuid-1");
+        assertThat(uut.isMissing("url", "name", "version")).isFalse();
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedTest() {
+        uut.put("url", "name-1", "version", "uuid-1");
+        uut.put("url", "name-2", "version", "uuid-2");
+        uut.putMissing("url", "name-3", "version");
+        // name-1 is used again, so name-2 is the least recently used
+        assertThat(uut.get("url", "name-1", "version")).isEqualTo("uuid-1");
+
+        uut.put("url", "name-4", "version", "uuid-4");
+
+        assertThat(uut.size()).isEqualTo(3);
+        assertThat(uut.get("url", "name-2", "version")).isNull();
+        assertThat(uut.get("url", "name-1", "version")).isEqualTo("uuid-1");
+        assertThat(uut.isMissing("url", "name-3", "version")).isTrue();
+        assertThat(uut.get("url", "name-4", "version")).isEqualTo("uuid-4");
+    }
+
+    @Test
+    public void getFromBuildTest() {
+        final Run<?, ?> build = mock(Run.class);
+        final ResultLinkAction action = new ResultLinkAction("url", "uuid-1");
+        action.setProjectName("name");
+        action.setProjectVersion("version");
+        when(build.getAction(ResultLinkAction.class)).thenReturn(action);
+
+        assertThat(uut.get("url", "name", "version", null)).isNull();
+        assertThat(uut.get("other-url", "name", "version", build)).isNull();
+        assertThat(uut.get("url", "name", "other-version", build)).isNull();
+        assertThat(uut.get("url", "name", "version", build)).isEqualTo("uuid-1");
+        // is cached now
+        assertThat(uut.get("url", "name", "version")).isEqualTo("uuid-1");
+    }
+
+    @Test
+    public void getFromBuildWithoutProjectIdTest() {
+        final Run<?, ?> build = mock(Run.class);
+        final ResultLinkAction action = new ResultLinkAction("url", null);
+        action.setProjectName("name");
+        action.setProjectVersion("version");
+        when(build.getAction(ResultLinkAction.class)).thenReturn(action);
+
+        assertThat(uut.get("url", "name", "version", build)).isNull();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class StageTimingsTest {
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private ConsoleLogger logger;
+
+    private final AtomicLong now = new AtomicLong(10000);
+
+    @Test
+    public void logTest() throws InterruptedException {
+        final StageTimings uut = new StageTimings(now::get);
+        // a stage in the background that has finished before its result is needed
+        final CompletableFuture<Void> connect = uut.runAsync("connect", () -> now.addAndGet(300), Runnable::run);
+        try (StageTimings.Stage stage = uut.start("upload")) {
+            now.addAndGet(1500);
+        }
+        uut.await("connect", connect);
+        // a stage in the background that only runs while its result is awaited
+        final List<Runnable> deferred = new ArrayList<>();
+        final CompletableFuture<Void> lookup = new CompletableFuture<Void>() {
+            @Override
+            public Void get() throws InterruptedException, ExecutionException {
+                deferred.forEach(Runnable::run);
+                return super.get();
+            }
+        };
+        uut.runAsync("lookup", () -> now.addAndGet(200), deferred::add).thenRun(() -> lookup.complete(null));
+        uut.await("lookup", lookup);
+        now.addAndGet(100);
+
+        uut.log(logger);
+
+        final InOrder inOrder = inOrder(logger);
+        inOrder.verify(logger).log(Messages.Builder_Timings("2.1"));
+        inOrder.verify(logger).log(Messages.Builder_Timings_Background("connect", "0.0", "0.3", "0.3"));
+        inOrder.verify(logger).log(Messages.Builder_Timings_Critical("upload", "0.3", "1.8", "1.5"));
+        inOrder.verify(logger).log(Messages.Builder_Timings_Critical(Messages.Builder_Stage_Await("lookup"), "1.8", "2.0", "0.2"));
+        inOrder.verify(logger).log(Messages.Builder_Timings_Background("lookup", "1.8", "2.0", "0.2"));
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void awaitFailedStageTest() throws InterruptedException {
+        final StageTimings uut = new StageTimings(now::get);
+        final CompletableFuture<Void> failed = uut.runAsync("lookup", () -> {
+            throw new IllegalStateException("not found");
+        }, Runnable::run);
+
+        uut.await("lookup", failed);
+
+        assertThat(failed).isCompletedExceptionally();
+        uut.log(logger);
+        verify(logger).log(Messages.Builder_Timings_Background("lookup", "0.0", "0.0", "0.0"));
+    }
+
+    @Test
+    public void unfinishedStagesAreNotLoggedTest() {
+        final StageTimings uut = new StageTimings(now::get);
+        uut.start("upload");
+
+        uut.log(logger);
+
+        verify(logger, never()).log(anyString());
+    }
+}
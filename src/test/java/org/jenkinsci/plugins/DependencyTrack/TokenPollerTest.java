@@ -0,0 +1,189 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import hudson.AbortException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.quality.Strictness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TokenPollerTest {
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule().strictness(Strictness.LENIENT);
+
+    @Mock
+    private ApiClient client;
+
+    @Mock
+    private ConsoleLogger logger;
+
+    private final WebhookReceiver webhook = new WebhookReceiver();
+
+    private final TokenPoller uut = new TokenPoller(2, () -> webhook);
+
+    @Test
+    public void processedTest() throws Exception {
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.TRUE, Boolean.TRUE, Boolean.FALSE);
+
+        final CompletableFuture<Void> processed = uut.watch(watch("http://server", "token-1", client, 10, 60000).build());
+
+        assertThat(processed.get(5, TimeUnit.SECONDS)).isNull();
+        verify(client, times(3)).isTokenBeingProcessed(eq("token-1"));
+        assertThat(uut.getWatchCount()).isZero();
+    }
+
+    @Test
+    public void deadlineTest() throws Exception {
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.TRUE);
+
+        final CompletableFuture<Void> processed = uut.watch(watch("http://server", "token-1", client, 10, 200).build());
+
+        assertThatCode(() -> processed.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(AbortException.class);
+        assertThat(uut.getWatchCount()).isZero();
+    }
+
+    @Test
+    public void errorTest() throws Exception {
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenThrow(new ApiClientException("oops"));
+
+        final CompletableFuture<Void> processed = uut.watch(watch("http://server", "token-1", client, 10, 60000).build());
+
+        assertThatCode(() -> processed.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(ApiClientException.class);
+    }
+
+    @Test
+    public void retryTest() throws Exception {
+        when(client.isTokenBeingProcessed(eq("token-1")))
+                .thenThrow(new ApiClientException("unavailable", 503))
+                .thenThrow(new ApiClientException("unreachable", new ConnectException("refused")))
+                .thenReturn(Boolean.FALSE);
+
+        final CompletableFuture<Void> processed = uut.watch(watch("http://server", "token-1", client, 10, 60000).logger(logger).build());
+
+        assertThat(processed.get(5, TimeUnit.SECONDS)).isNull();
+        verify(client, times(3)).isTokenBeingProcessed(eq("token-1"));
+        verify(logger, times(2)).log(startsWith("Checking the BOM processing status failed"));
+    }
+
+    @Test
+    public void cancelTest() throws Exception {
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.TRUE);
+
+        final CompletableFuture<Void> processed = uut.watch(watch("http://server", "token-1", client, 100, 60000).build());
+        processed.cancel(false);
+        Thread.sleep(500);
+
+        verify(client, times(0)).isTokenBeingProcessed(anyString());
+        assertThat(uut.getWatchCount()).isZero();
+    }
+
+    @Test
+    public void concurrencyPerServerTest() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final ApiClient slowClient = mock(ApiClient.class);
+        when(slowClient.isTokenBeingProcessed(anyString())).then(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            release.await(5, TimeUnit.SECONDS);
+            running.decrementAndGet();
+            return Boolean.FALSE;
+        });
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(uut.watch(watch("http://server", "token-" + i, slowClient, 0, 60000).build()));
+        }
+        // another server is not slowed down by the first one
+        when(client.isTokenBeingProcessed(eq("other"))).thenReturn(Boolean.FALSE);
+        final CompletableFuture<Void> other = uut.watch(watch("http://other-server", "other", client, 0, 60000).build());
+
+        assertThat(other.get(5, TimeUnit.SECONDS)).isNull();
+        Thread.sleep(200);
+        assertThat(running.get()).isEqualTo(2);
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        assertThat(maxRunning.get()).isEqualTo(2);
+        verify(slowClient, times(6)).isTokenBeingProcessed(anyString());
+    }
+
+    @Test
+    public void webhookTest() throws Exception {
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.FALSE);
+
+        // the first check would be after a minute
+        final CompletableFuture<Void> processed = uut.watch(watch("http://server", "token-1", client, 60000, 120000).webhookEnabled(true).build());
+        assertThat(webhook.getSubscriptionCount()).isOne();
+        webhook.notify("token-1", "uuid-1", null, null);
+
+        assertThat(processed.get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(webhook.getSubscriptionCount()).isZero();
+    }
+
+    @Test
+    public void webhookOfOtherUploadTest() throws Exception {
+        when(client.isTokenBeingProcessed(eq("token-1"))).thenReturn(Boolean.FALSE);
+
+        final CompletableFuture<Void> processed = uut.watch(watch("http://server", "token-1", client, 60000, 120000).logger(logger).build());
+        // another upload of the same project was processed
+        webhook.notify("token-2", "uuid-1", null, null);
+        Thread.sleep(200);
+
+        assertThat(processed).isNotDone();
+        verify(client, times(0)).isTokenBeingProcessed(anyString());
+
+        webhook.notify("token-1", "uuid-1", null, null);
+
+        assertThat(processed.get(5, TimeUnit.SECONDS)).isNull();
+        verify(client).isTokenBeingProcessed(eq("token-1"));
+        verify(logger).log(Messages.Builder_Polling_Notified());
+    }
+
+    private static TokenPoller.Watch.WatchBuilder watch(final String url, final String token, final ApiClient client, final long firstDelay, final long timeout) {
+        return TokenPoller.Watch.builder()
+                .url(url)
+                .token(token)
+                .projectId("uuid-1")
+                .client(client)
+                .logger(new ConsoleLogger())
+                .schedule(new PollingSchedule(50, 0, () -> 0.5))
+                .firstDelay(firstDelay)
+                .deadline(System.currentTimeMillis() + timeout);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.util.Secret;
+import io.jenkins.plugins.casc.misc.JenkinsConfiguredRule;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jenkinsci.plugins.DependencyTrack.model.UploadResult;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.quality.Strictness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UploadOutboxTest {
+
+    private static final String URL = "http://outbox.test";
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule().strictness(Strictness.LENIENT);
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    @Rule
+    public JenkinsConfiguredRule r = new JenkinsConfiguredRule();
+
+    @Mock
+    private ApiClient client;
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    private final List<String> apiKeys = new CopyOnWriteArrayList<>();
+
+    private UploadOutbox uut;
+
+    @Before
+    public void setup() {
+        uut = UploadOutbox.get();
+        uut.setClock(now::get);
+        uut.setClientFactory((url, apiKey, logger, connTimeout, readTimeout) -> {
+            apiKeys.add(apiKey);
+            return client;
+        });
+    }
+
+    @Test
+    public void drainTest() throws Exception {
+        when(client.upload(isNull(), eq("name-1"), eq("version-1"), any(FilePath.class), eq(true)))
+                .thenReturn(new UploadResult(false, null, true))
+                .thenReturn(new UploadResult(true));
+        final File bom = tmpDir.newFile();
+        Files.write(bom.toPath(), "<bom/>".getBytes(StandardCharsets.UTF_8));
+        final String id = uut.enqueue(new FilePath(bom), entry());
+        // the workspace may be wiped right away
+        Files.delete(bom.toPath());
+
+        uut.drain(TaskListener.NULL);
+
+        assertThat(uut.getEntries()).singleElement().satisfies(entry -> {
+            assertThat(entry.getId()).isEqualTo(id);
+            assertThat(entry.getAttempts()).isEqualTo(1);
+            assertThat(entry.getNextAttempt()).isEqualTo(1000 + UploadOutbox.FIRST_RETRY_DELAY);
+            assertThat(entry.getLastFailure()).isEqualTo(Messages.Builder_Upload_Failed());
+        });
+        assertThat(uut.getQueuedCount(URL)).isEqualTo(1);
+        assertThat(apiKeys).containsExactly("api-key");
+
+        // not due yet
+        uut.drain(TaskListener.NULL);
+        verify(client, times(1)).upload(isNull(), eq("name-1"), eq("version-1"), any(FilePath.class), eq(true));
+
+        now.addAndGet(UploadOutbox.FIRST_RETRY_DELAY);
+        uut.drain(TaskListener.NULL);
+
+        verify(client, times(2)).upload(isNull(), eq("name-1"), eq("version-1"), any(FilePath.class), eq(true));
+        assertThat(uut.getEntries()).isEmpty();
+        assertThat(new File(r.jenkins.getRootDir(), UploadOutbox.DIRECTORY).list()).isEmpty();
+    }
+
+    @Test
+    public void apiKeyIsEncryptedTest() throws IOException, InterruptedException {
+        uut.enqueue(new FilePath(tmpDir.newFile()), entry());
+
+        final File[] files = new File(r.jenkins.getRootDir(), UploadOutbox.DIRECTORY).listFiles((dir, name) -> name.endsWith(".xml"));
+        assertThat(files).hasSize(1);
+        assertThat(new String(Files.readAllBytes(files[0].toPath()), StandardCharsets.UTF_8)).contains(URL).doesNotContain("api-key");
+    }
+
+    @Test
+    public void giveUpTest() throws Exception {
+        when(client.upload(isNull(), eq("name-1"), eq("version-1"), any(FilePath.class), eq(true))).thenReturn(new UploadResult(false));
+        uut.enqueue(new FilePath(tmpDir.newFile()), entry());
+        now.addAndGet(UploadOutbox.MAX_AGE);
+
+        uut.drain(TaskListener.NULL);
+
+        assertThat(uut.getEntries()).isEmpty();
+    }
+
+    @Test
+    public void rejectedTest() throws Exception {
+        // e.g. 400 Bad Request, Dependency-Track would reject the BOM on every attempt
+        when(client.upload(isNull(), eq("name-1"), eq("version-1"), any(FilePath.class), eq(true))).thenReturn(new UploadResult(false));
+        uut.enqueue(new FilePath(tmpDir.newFile()), entry());
+
+        uut.drain(TaskListener.NULL);
+
+        assertThat(uut.getEntries()).isEmpty();
+    }
+
+    @Test
+    public void retryDelayTest() {
+        assertThat(UploadOutbox.retryDelay(1)).isEqualTo(UploadOutbox.FIRST_RETRY_DELAY);
+        assertThat(UploadOutbox.retryDelay(2)).isEqualTo(2 * UploadOutbox.FIRST_RETRY_DELAY);
+        assertThat(UploadOutbox.retryDelay(100)).isEqualTo(UploadOutbox.MAX_RETRY_DELAY);
+    }
+
+    private UploadOutbox.Entry entry() {
+        return UploadOutbox.Entry.builder()
+                .url(URL)
+                .apiKey(Secret.fromString("api-key"))
+                .projectName("name-1")
+                .projectVersion("version-1")
+                .autoCreateProject(true)
+                .folder("")
+                .run("job#1")
+                .build();
+    }
+}
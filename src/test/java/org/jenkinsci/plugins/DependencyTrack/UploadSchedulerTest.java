@@ -0,0 +1,181 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.quality.Strictness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+public class UploadSchedulerTest {
+
+    private static final String URL = "http://server";
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule().strictness(Strictness.LENIENT);
+
+    @Mock
+    private ConsoleLogger logger;
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final UploadScheduler uut = new UploadScheduler(now::get, url -> new ConcurrencyLimiter(url, now::get));
+
+    private final List<String> started = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void limitTest() throws Exception {
+        final UploadScheduler.Permit first = uut.acquire(URL, 2, UploadPriority.NORMAL, "", logger);
+        final UploadScheduler.Permit second = uut.acquire(URL, 2, UploadPriority.NORMAL, "", logger);
+        assertThat(first.getWaitTime()).isZero();
+        assertThat(uut.getRunningCount(URL)).isEqualTo(2);
+        // other servers have their own limit
+        uut.acquire("http://other-server", 2, UploadPriority.NORMAL, "", logger).close();
+
+        final Thread third = upload("third", 2, UploadPriority.NORMAL, "");
+        awaitWaiting(1);
+        verify(logger).log(Messages.Builder_Upload_Queued(2, 2, "NORMAL"));
+        assertThat(started).isEmpty();
+
+        now.addAndGet(1500);
+        first.close();
+        // closing twice does not release another permit
+        first.close();
+        third.join(5000);
+
+        assertThat(started).containsExactly("third");
+        verify(logger).log(Messages.Builder_Upload_Dequeued("1.5"));
+        second.close();
+        assertThat(uut.getRunningCount(URL)).isZero();
+    }
+
+    @Test
+    public void adaptiveLimitTest() throws Exception {
+        // the configured maximum is not reached before the limiter allows it
+        final UploadScheduler.Permit first = uut.acquire(URL, 8, UploadPriority.NORMAL, "", logger);
+        final UploadScheduler.Permit second = uut.acquire(URL, 8, UploadPriority.NORMAL, "", logger);
+        final Thread third = upload("third", 8, UploadPriority.NORMAL, "");
+        awaitWaiting(1);
+        verify(logger).log(Messages.Builder_Upload_Queued(2, ConcurrencyLimiter.INITIAL_LIMIT, "NORMAL"));
+
+        first.close();
+        third.join(5000);
+
+        assertThat(started).containsExactly("third");
+        second.close();
+    }
+
+    @Test
+    public void priorityTest() throws Exception {
+        final UploadScheduler.Permit running = uut.acquire(URL, 1, UploadPriority.NORMAL, "", logger);
+        final Thread low = upload("low", UploadPriority.LOW, "");
+        awaitWaiting(1);
+        final Thread normal = upload("normal", UploadPriority.NORMAL, "");
+        awaitWaiting(2);
+        final Thread high = upload("high", UploadPriority.HIGH, "");
+        awaitWaiting(3);
+
+        running.close();
+        low.join(5000);
+        normal.join(5000);
+        high.join(5000);
+
+        assertThat(started).containsExactly("high", "normal", "low");
+    }
+
+    @Test
+    public void fairnessTest() throws Exception {
+        final UploadScheduler.Permit running = uut.acquire(URL, 1, UploadPriority.NORMAL, "", logger);
+        final Thread a1 = upload("a1", UploadPriority.NORMAL, "folder-a");
+        awaitWaiting(1);
+        final Thread a2 = upload("a2", UploadPriority.NORMAL, "folder-a");
+        awaitWaiting(2);
+        final Thread a3 = upload("a3", UploadPriority.NORMAL, "folder-a");
+        awaitWaiting(3);
+        final Thread b1 = upload("b1", UploadPriority.NORMAL, "folder-b");
+        awaitWaiting(4);
+        final Thread b2 = upload("b2", UploadPriority.NORMAL, "folder-b");
+        awaitWaiting(5);
+
+        running.close();
+        for (Thread t : new Thread[]{a1, a2, a3, b1, b2}) {
+            t.join(5000);
+        }
+
+        assertThat(started).containsExactly("a1", "b1", "a2", "b2", "a3");
+    }
+
+    @Test
+    public void interruptTest() throws Exception {
+        final UploadScheduler.Permit running = uut.acquire(URL, 1, UploadPriority.NORMAL, "", logger);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final Thread waiting = new Thread(() -> {
+            try {
+                uut.acquire(URL, 1, UploadPriority.NORMAL, "", logger);
+                started.add("interrupted");
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        waiting.start();
+        awaitWaiting(1);
+
+        waiting.interrupt();
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(uut.getWaitingCount(URL)).isZero();
+        running.close();
+        assertThat(uut.getRunningCount(URL)).isZero();
+        assertThat(started).isEmpty();
+    }
+
+    /**
+     * starts an upload that records its start and finishes right away
+     */
+    private Thread upload(final String name, final UploadPriority priority, final String folder) {
+        return upload(name, 1, priority, folder);
+    }
+
+    private Thread upload(final String name, final int limit, final UploadPriority priority, final String folder) {
+        final Thread thread = new Thread(() -> {
+            try (UploadScheduler.Permit permit = uut.acquire(URL, limit, priority, folder, logger)) {
+                started.add(name);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private void awaitWaiting(final int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (uut.getWaitingCount(URL) < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(uut.getWaitingCount(URL)).isEqualTo(count);
+    }
+}
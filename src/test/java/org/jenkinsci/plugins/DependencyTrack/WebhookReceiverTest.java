@@ -0,0 +1,152 @@
+/*
+ * This file is part of Dependency-Track Jenkins plugin.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.DependencyTrack;
+
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import hudson.util.Secret;
+import io.jenkins.plugins.casc.misc.JenkinsConfiguredRule;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.DependencyTrack.WebhookReceiver.Subscription;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WebhookReceiverTest {
+
+    private static final String SECRET = "my-secret";
+
+    @Rule
+    public JenkinsConfiguredRule r = new JenkinsConfiguredRule();
+
+    private WebhookReceiver uut;
+
+    @Before
+    public void setup() {
+        r.jenkins.getDescriptorByType(DescriptorImpl.class).setDependencyTrackWebhookSecret(Secret.fromString(SECRET));
+        uut = WebhookReceiver.get();
+    }
+
+    @Test
+    public void notifyByTokenTest() throws Exception {
+        try (Subscription subscription = uut.subscribe("token-1", "uuid-1", null, null);
+                Subscription other = uut.subscribe("token-2", "uuid-1", null, null)) {
+            assertThat(post(SECRET, notification("token-1", "uuid-1", "name", "version"))).isEqualTo(200);
+
+            assertThat(subscription.nextNotification()).isCompleted();
+            // the notification was for another upload of the same project
+            assertThat(other.nextNotification()).isNotCompleted();
+            // the notification was consumed
+            assertThat(subscription.nextNotification()).isNotCompleted();
+        }
+        assertThat(uut.getSubscriptionCount()).isZero();
+    }
+
+    @Test
+    public void notifyByProjectTest() throws Exception {
+        try (Subscription byId = uut.subscribe("token-1", "uuid-1", null, null);
+                Subscription byName = uut.subscribe("token-2", null, "name", "version");
+                Subscription other = uut.subscribe("token-3", "uuid-2", "other", "version")) {
+            // older versions of Dependency-Track do not send the token
+            assertThat(post(SECRET, notification(null, "uuid-1", "name", "version"))).isEqualTo(200);
+
+            assertThat(byId.nextNotification()).isCompleted();
+            assertThat(byName.nextNotification()).isCompleted();
+            assertThat(other.nextNotification()).isNotCompleted();
+        }
+    }
+
+    @Test
+    public void otherNotificationTest() throws Exception {
+        try (Subscription subscription = uut.subscribe("token-1", "uuid-1", null, null)) {
+            final JSONObject notification = notification("token-1", "uuid-1", "name", "version");
+            notification.getJSONObject("notification").element("group", "NEW_VULNERABILITY");
+            assertThat(post(SECRET, notification)).isEqualTo(200);
+
+            assertThat(subscription.nextNotification()).isNotCompleted();
+        }
+    }
+
+    @Test
+    public void wrongSecretTest() throws Exception {
+        try (Subscription subscription = uut.subscribe("token-1", "uuid-1", null, null)) {
+            assertThat(post("wrong", notification("token-1", "uuid-1", "name", "version"))).isEqualTo(403);
+            assertThat(post("", notification("token-1", "uuid-1", "name", "version"))).isEqualTo(403);
+
+            assertThat(subscription.nextNotification()).isNotCompleted();
+        }
+    }
+
+    @Test
+    public void disabledTest() throws Exception {
+        r.jenkins.getDescriptorByType(DescriptorImpl.class).setDependencyTrackWebhookSecret(null);
+
+        assertThat(post(SECRET, notification("token-1", "uuid-1", "name", "version"))).isEqualTo(404);
+    }
+
+    @Test
+    public void invalidPayloadTest() throws Exception {
+        final JenkinsRule.WebClient wc = r.createWebClient();
+        wc.getOptions().setThrowExceptionOnFailingStatusCode(false);
+        final WebRequest request = new WebRequest(new URL(r.getURL(), WebhookReceiver.URL_NAME + "/?secret=" + SECRET), HttpMethod.POST);
+        request.setRequestBody("no json");
+
+        assertThat(wc.getPage(request).getWebResponse().getStatusCode()).isEqualTo(400);
+    }
+
+    @Test
+    public void nextNotificationTest() throws Exception {
+        try (Subscription subscription = uut.subscribe("token-1", null, null, null)) {
+            final CompletableFuture<Void> next = subscription.nextNotification();
+            // waiting again before a notification arrived waits for the same one
+            assertThat(subscription.nextNotification()).isSameAs(next).isNotCompleted();
+
+            uut.notify("token-1", null, null, null);
+            assertThat(next).isCompleted();
+            assertThat(subscription.nextNotification()).isSameAs(next);
+            assertThat(subscription.nextNotification()).isNotSameAs(next).isNotCompleted();
+        }
+    }
+
+    private int post(final String secret, final JSONObject payload) throws Exception {
+        final JenkinsRule.WebClient wc = r.createWebClient();
+        wc.getOptions().setThrowExceptionOnFailingStatusCode(false);
+        final WebRequest request = new WebRequest(new URL(r.getURL(), WebhookReceiver.URL_NAME + "/?secret=" + URLEncoder.encode(secret, StandardCharsets.UTF_8.name())), HttpMethod.POST);
+        request.setAdditionalHeader("Content-Type", "application/json");
+        request.setRequestBody(payload.toString());
+        return wc.getPage(request).getWebResponse().getStatusCode();
+    }
+
+    private static JSONObject notification(final String token, final String uuid, final String name, final String version) {
+        final JSONObject subject = new JSONObject()
+                .element("project", new JSONObject().element("uuid", uuid).element("name", name).element("version", version));
+        if (token != null) {
+            subject.element("token", token);
+        }
+        return new JSONObject().element("notification", new JSONObject()
+                .element("level", "INFORMATIONAL")
+                .element("scope", "PORTFOLIO")
+                .element("group", "BOM_PROCESSED")
+                .element("subject", subject));
+    }
+}